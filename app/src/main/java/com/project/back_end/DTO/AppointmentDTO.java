@@ -32,6 +32,35 @@ public class AppointmentDTO {
     private LocalDateTime appointmentTime;
     private int status;
 
+    /**
+     * Creates a DTO with all of its fields; used by the JPQL projections of {@code AppointmentRepository},
+     * which select exactly these columns instead of loading the appointment, doctor and patient entities.
+     *
+     * @param id              the ID of the appointment
+     * @param doctorId        the ID of the doctor
+     * @param doctorName      the name of the doctor
+     * @param patientId       the ID of the patient
+     * @param patientName     the name of the patient
+     * @param patientEmail    the email of the patient
+     * @param patientPhone    the phone number of the patient
+     * @param patientAddress  the address of the patient
+     * @param appointmentTime the start of the appointment
+     * @param status          the status of the appointment
+     */
+    public AppointmentDTO(Long id, Long doctorId, String doctorName, Long patientId, String patientName, String patientEmail,
+                          String patientPhone, String patientAddress, LocalDateTime appointmentTime, int status) {
+        this.id = id;
+        this.doctorId = doctorId;
+        this.doctorName = doctorName;
+        this.patientId = patientId;
+        this.patientName = patientName;
+        this.patientEmail = patientEmail;
+        this.patientPhone = patientPhone;
+        this.patientAddress = patientAddress;
+        this.appointmentTime = appointmentTime;
+        this.status = status;
+    }
+
     /**
      * Returns the appointment date as a LocalDate.
      * If appointmentTime is null, returns null.
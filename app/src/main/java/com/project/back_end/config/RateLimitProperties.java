@@ -0,0 +1,36 @@
+package com.project.back_end.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Configuration of the per-client rate limiter, bound from the {@code rate-limit.*} properties.
+ * Each route is identified by a name and limits one HTTP method and path per client IP.
+ */
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+    private int maxKeys = 50_000;
+    private long sweepIntervalMs = 60_000;
+    private Map<String, Route> routes = new LinkedHashMap<>();
+
+    /**
+     * Limit of a single route: a burst of {@code capacity} requests, refilled at {@code refillPerMinute}.
+     */
+    @Getter
+    @Setter
+    public static class Route {
+        private String method = "GET";
+        private String path;
+        private int capacity = 10;
+        private int refillPerMinute = 60;
+    }
+}
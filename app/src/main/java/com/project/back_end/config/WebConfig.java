@@ -1,19 +1,28 @@
 package com.project.back_end.config;
 
 
+import com.project.back_end.controllers.DoctorController;
+import com.project.back_end.security.CurrentPrincipalArgumentResolver;
+import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.lang.NonNull; 
 
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 /**
  * Configuration class for setting up CORS (Cross-Origin Resource Sharing) in the application.
  * This allows the backend to accept requests from different origins, which is useful for frontend-backend communication.
+ * Also registers the resolver that injects the authenticated principal into controller methods.
  */
 
 @Configuration
+@RequiredArgsConstructor
 public class WebConfig implements WebMvcConfigurer {
+    private final CurrentPrincipalArgumentResolver currentPrincipalArgumentResolver;
 
     @Override
     public void addCorsMappings(@NonNull CorsRegistry registry) {
@@ -21,6 +30,12 @@ public class WebConfig implements WebMvcConfigurer {
         registry.addMapping("/**")
                 .allowedOrigins("*")  // Add your frontend URL here
                 .allowedMethods("GET", "POST", "PUT", "DELETE")  // Specify allowed methods
-                .allowedHeaders("*");  // You can restrict headers if needed
+                .allowedHeaders("*")  // You can restrict headers if needed
+                .exposedHeaders(DoctorController.NEXT_CURSOR_HEADER);  // Lets paginated clients read the next cursor
+    }
+
+    @Override
+    public void addArgumentResolvers(@NonNull List<HandlerMethodArgumentResolver> resolvers) {
+        resolvers.add(currentPrincipalArgumentResolver);
     }
 }
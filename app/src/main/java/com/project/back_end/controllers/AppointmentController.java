@@ -1,13 +1,15 @@
 package com.project.back_end.controllers;
 
 import java.time.LocalDate;
-import java.util.HashMap;
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 
-import com.project.back_end.services.CentralService;
+import com.project.back_end.security.AuthPrincipal;
+import com.project.back_end.security.CurrentPrincipal;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -16,12 +18,16 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
-import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.project.back_end.DTO.AppointmentDTO;
+import com.project.back_end.services.AgendaFeed;
 import com.project.back_end.services.AppointmentService;
+import com.project.back_end.util.AppointmentWindow;
+import com.project.back_end.util.KeysetPage;
 
 import jakarta.validation.Valid;
 
@@ -34,160 +40,184 @@ import jakarta.validation.Valid;
 @RequiredArgsConstructor
 public class AppointmentController {
     private final AppointmentService appointmentService;
-    private final CentralService centralService;
+    private final AgendaFeed agendaFeed;
 
     /**
      * Retrieves appointments for a specific date and patient name.
-     * Validates the token before processing the request.
+     * The doctor is authenticated from the token in the path.
      *
      * @param date         the date of the appointments
      * @param patientName  the name of the patient
-     * @param token        the authentication token
-     * @return ResponseEntity with the list of appointments or an error message
+     * @param doctor       the authenticated doctor
+     * @param cursor       the cursor returned with the previous page (optional)
+     * @param limit        the maximum number of appointments to return (optional)
+     * @return ResponseEntity with one page of appointments; the cursor of the next page is sent in the X-Next-Cursor header
      */
     @GetMapping("/{date}/{patientName}/{token}")
-    public ResponseEntity<?> getAppointments(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date, @PathVariable String patientName,@PathVariable String token) {
-        Map<String, Object> map;
-        ResponseEntity<Map<String, String>> tempMap = centralService.validateToken(token, "doctor");
-
-        if (!Objects.requireNonNull(tempMap.getBody()).isEmpty() && tempMap.getStatusCode() != HttpStatus.OK) {
-            map = new HashMap<>(tempMap.getBody());
-            return new ResponseEntity<>(map, tempMap.getStatusCode());
-        }
-
-        // map = appointmentService.getAppointment(patientName, date, token);
-        return ResponseEntity.status(HttpStatus.OK).body(appointmentService.getAppointments(patientName, date, token));
+    public ResponseEntity<?> getAppointments(@PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date, @PathVariable String patientName, @CurrentPrincipal(role = "doctor") AuthPrincipal doctor,
+                                             @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit) {
+        return toResponse(appointmentService.getAppointments(patientName, date, doctor, AppointmentWindow.of(null, null, cursor, limit)));
     }
 
     /**
      * Retrieves appointments for a specific patient.
-     * Validates the token before processing the request.
+     * The doctor is authenticated from the token in the path.
      *
      * @param patientName the name of the patient
-     * @param token       the authentication token
-     * @return ResponseEntity with the list of appointments or an error message
+     * @param doctor      the authenticated doctor
+     * @param from        the first day of the window (optional)
+     * @param to          the last day of the window (optional)
+     * @param cursor      the cursor returned with the previous page (optional)
+     * @param limit       the maximum number of appointments to return (optional)
+     * @return ResponseEntity with one page of appointments; the cursor of the next page is sent in the X-Next-Cursor header
      */
     @GetMapping("/{patientName}/{token}")
-    public ResponseEntity<?> getAppointments(@PathVariable String patientName, @PathVariable String token) {
-        Map<String, Object> map;
-        ResponseEntity<Map<String, String>> tempMap = centralService.validateToken(token, "doctor");
-
-        if (!Objects.requireNonNull(tempMap.getBody()).isEmpty() && tempMap.getStatusCode() != HttpStatus.OK) {
-            map = new HashMap<>(tempMap.getBody());
-            return new ResponseEntity<>(map, tempMap.getStatusCode());
-        }
-
-        return ResponseEntity.status(HttpStatus.OK).body(appointmentService.getAppointments(patientName, null, token));
+    public ResponseEntity<?> getAppointments(@PathVariable String patientName, @CurrentPrincipal(role = "doctor") AuthPrincipal doctor,
+                                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from, @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                             @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit) {
+        return toResponse(appointmentService.getAppointments(patientName, null, doctor, AppointmentWindow.of(from, to, cursor, limit)));
     }
 
     /**
      * Retrieves appointments for the authenticated patient.
-     * Validates the token before processing the request.
+     * The patient is authenticated from the Authorization header.
      *
-     * @param authorizationHeader the Authorization header containing the token
-     * @return ResponseEntity with the list of appointments or an error message
+     * @param patient the authenticated patient
+     * @param from   the first day of the window (optional)
+     * @param to     the last day of the window (optional)
+     * @param cursor the cursor returned with the previous page (optional)
+     * @param limit  the maximum number of appointments to return (optional)
+     * @return ResponseEntity with one page of appointments; the cursor of the next page is sent in the X-Next-Cursor header
      */
     @GetMapping("/patient")
-    public ResponseEntity<?> getAppointmentsByPatient(@RequestHeader("Authorization") String authorizationHeader) {
-        // Extract the token from the Authorization header
-        String token = authorizationHeader.replace("Bearer ", "");
-        
-        ResponseEntity<Map<String, String>> tempMap = centralService.validateToken(token, "patient");
-
-        Map<String, Object> map;
+    public ResponseEntity<?> getAppointmentsByPatient(@CurrentPrincipal(role = "patient") AuthPrincipal patient,
+                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from, @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                      @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit) {
+        return toResponse(appointmentService.getAppointmentsForPatient(patient, AppointmentWindow.of(from, to, cursor, limit)));
+    }
 
-        if (!Objects.requireNonNull(tempMap.getBody()).isEmpty() && tempMap.getStatusCode() != HttpStatus.OK) {
-            map = new HashMap<>(tempMap.getBody());
-            return new ResponseEntity<>(map, tempMap.getStatusCode());
+    /**
+     * Opens a Server-Sent Events stream of the changes to the doctor's agenda.
+     * An {@code appointment} event is pushed for every booking, move or cancellation, so the dashboard
+     * does not need to poll; a comment is sent periodically to keep the connection open.
+     *
+     * @param doctor the authenticated doctor
+     * @return the event stream, or 503 if the feed has no room for more subscribers
+     */
+    @GetMapping("/feed/{token}")
+    public ResponseEntity<SseEmitter> getAgendaFeed(@CurrentPrincipal(role = "doctor") AuthPrincipal doctor) {
+        SseEmitter emitter = agendaFeed.subscribeAgenda(doctor.id());
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "30").build();
         }
-
-        return ResponseEntity.status(HttpStatus.OK).body(appointmentService.getAppointmentsForPatient(token));
+        return ResponseEntity.ok(emitter);
     }
 
     /**
-     * Books an appointment for a patient.
-     * Validates the appointment details and the token before processing the request.
+     * Books an appointment for the authenticated patient.
+     * Validates the appointment details; the patient is taken from the Authorization header, not from the body.
      *
-     * @param appointmentDTO       the appointment details
-     * @param authorizationHeader  the Authorization header containing the token
+     * @param appointmentDTO the appointment details
+     * @param patient        the authenticated patient
      * @return ResponseEntity with a message indicating success or failure
      */
     @PostMapping
-    public ResponseEntity<Map<String, String>> bookAppointment(@RequestBody @Valid AppointmentDTO appointmentDTO, @RequestHeader("Authorization") String authorizationHeader) {
-        // Extract the token from the Authorization header
-        String token = authorizationHeader.replace("Bearer ", "");
-        
-        ResponseEntity<Map<String, String>> tempMap = centralService.validateToken(token, "patient");
-
-        if (isTokenInvalid(tempMap)) return tempMap;
-
-        Map<String, String> response = new HashMap<>();
-        int out = centralService.validateAppointment(appointmentDTO);
-
-        if (out == 1) {
-            int res = appointmentService.bookAppointment(appointmentDTO);
+    public ResponseEntity<Map<String, String>> bookAppointment(@RequestBody @Valid AppointmentDTO appointmentDTO, @CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+        return appointmentService.bookAppointment(appointmentDTO, patient);
+    }
 
-            if (res == 1) {
-                response.put("message", "Appointment Booked Successfully");
-                return ResponseEntity.status(HttpStatus.CREATED).body(response); // 201 Created
+    /**
+     * Reserves a slot for the authenticated patient while the booking form is open.
+     * The hold expires on its own after a short time unless it is renewed by holding the slot again.
+     *
+     * @param doctorId the ID of the doctor
+     * @param time     the start of the slot
+     * @param patient  the authenticated patient
+     * @return ResponseEntity with a message and the lifetime of the hold, or why the slot cannot be held
+     */
+    @PostMapping("/holds/{doctorId}/{time}")
+    public ResponseEntity<Map<String, Object>> holdSlot(@PathVariable Long doctorId, @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime time, @CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+        return appointmentService.holdSlot(doctorId, time, patient);
+    }
 
-            }
-            response.put("message", "Internal Server Error");
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response); // 409 Conflict
+    /**
+     * Releases a slot held by the authenticated patient.
+     *
+     * @param doctorId the ID of the doctor
+     * @param time     the start of the slot
+     * @param patient  the authenticated patient
+     * @return ResponseEntity with a message
+     */
+    @DeleteMapping("/holds/{doctorId}/{time}")
+    public ResponseEntity<Map<String, String>> releaseSlot(@PathVariable Long doctorId, @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime time, @CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+        appointmentService.releaseSlot(doctorId, time, patient);
+        return ResponseEntity.ok(Map.of("message", "Appointment time released"));
+    }
 
-        }
-        else if (out == -1) {
-            response.put("message", "Invalid doctor id");
-            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
-        }
+    /**
+     * Adds the authenticated patient to the waitlist of a doctor's day.
+     * When a slot of that day frees up, it is held for the waiting patients one at a time and offered on their feed.
+     *
+     * @param doctorId the ID of the doctor
+     * @param date     the day to wait for
+     * @param patient  the authenticated patient
+     * @return ResponseEntity with a message and the patient's position in the waitlist
+     */
+    @PostMapping("/waitlist/{doctorId}/{date}")
+    public ResponseEntity<Map<String, Object>> joinWaitlist(@PathVariable Long doctorId, @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date, @CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+        return appointmentService.joinWaitlist(doctorId, date, patient);
+    }
 
-        response.put("message", "Appointment already booked for given time or Doctor not available");
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    /**
+     * Removes the authenticated patient from the waitlist of a doctor's day.
+     *
+     * @param doctorId the ID of the doctor
+     * @param date     the day the patient was waiting for
+     * @param patient  the authenticated patient
+     * @return ResponseEntity with a message
+     */
+    @DeleteMapping("/waitlist/{doctorId}/{date}")
+    public ResponseEntity<Map<String, String>> leaveWaitlist(@PathVariable Long doctorId, @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date, @CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+        appointmentService.leaveWaitlist(doctorId, date, patient);
+        return ResponseEntity.ok(Map.of("message", "Removed from the waitlist"));
     }
 
     /**
      * Updates an existing appointment.
-     * Validates the appointment details and the token before processing the request.
+     * Validates the appointment details; the doctor is authenticated from the token in the path.
      *
-     * @param token          the authentication token
      * @param appointmentDTO the updated appointment details
+     * @param doctor         the authenticated doctor
      * @return ResponseEntity with a message indicating success or failure
      */
     @PutMapping("/{token}")
-    public ResponseEntity<Map<String, String>> updateAppointment(@PathVariable String token, @RequestBody @Valid AppointmentDTO appointmentDTO) {
-        // ResponseEntity<Map<String, String>> tempMap = centralService.validateToken(token, "patient");
-        ResponseEntity<Map<String, String>> tempMap = centralService.validateToken(token, "doctor");
-
-        if (isTokenInvalid(tempMap)) return tempMap;
-
+    public ResponseEntity<Map<String, String>> updateAppointment(@RequestBody @Valid AppointmentDTO appointmentDTO, @CurrentPrincipal(role = "doctor") AuthPrincipal doctor) {
         return appointmentService.updateAppointment(appointmentDTO);
     }
 
     /**
      * Cancels an appointment.
-     * Validates the token before processing the request.
+     * The patient is authenticated from the token in the path.
      *
-     * @param id    the ID of the appointment to cancel
-     * @param token the authentication token
+     * @param id      the ID of the appointment to cancel
+     * @param patient the authenticated patient
      * @return ResponseEntity with a message indicating success or failure
      */
     @DeleteMapping("/{id}/{token}")
-    public ResponseEntity<Map<String, String>>  cancelAppointment(@PathVariable Long id, @PathVariable String token) {
-        ResponseEntity<Map<String, String>> tempMap = centralService.validateToken(token, "patient");
-
-        if (isTokenInvalid(tempMap)) return tempMap;
-
-        return appointmentService.cancelAppointment(id,token);
+    public ResponseEntity<Map<String, String>>  cancelAppointment(@PathVariable Long id, @CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+        return appointmentService.cancelAppointment(id, patient);
     }
 
+
     /**
-     * Checks if the token is invalid based on the validation response.
+     * Sends a page of appointments as a list, with the cursor of the next page in the X-Next-Cursor header.
      *
-     * @param validationResponse the response from the token validation
-     * @return true if the token is invalid, false otherwise
+     * @param page the page of appointments
+     * @return ResponseEntity with the appointments of the page
      */
-    private boolean isTokenInvalid(ResponseEntity<Map<String, String>> validationResponse) {
-        return !Objects.requireNonNull(validationResponse.getBody()).isEmpty() && validationResponse.getStatusCode() != HttpStatus.OK;
+    private static ResponseEntity<List<AppointmentDTO>> toResponse(KeysetPage<AppointmentDTO> page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.OK);
+        if (page.nextCursor() != null) response.header(DoctorController.NEXT_CURSOR_HEADER, page.nextCursor());
+        return response.body(page.items());
     }
-
 }
@@ -0,0 +1,48 @@
+package com.project.back_end.controllers;
+
+import com.project.back_end.security.LoginRejectedException;
+import com.project.back_end.security.UnauthorizedException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Global exception handler for authentication errors in the application.
+ * Catches UnauthorizedException raised while resolving the caller of a request,
+ * and LoginRejectedException raised when the login pool is saturated.
+ */
+@RestControllerAdvice
+public class AuthenticationFailed {
+
+    /**
+     * Handles UnauthorizedException and returns the error message.
+     *
+     * @param ex the exception describing why the caller was rejected
+     * @return ResponseEntity with the error message and a 401 status
+     */
+    @ExceptionHandler(UnauthorizedException.class)
+    public ResponseEntity<Map<String, String>> handleUnauthorizedException(UnauthorizedException ex) {
+        Map<String, String> response = new HashMap<>();
+        response.put("message", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+    }
+
+    /**
+     * Handles LoginRejectedException and asks the client to retry shortly.
+     *
+     * @param ex the exception describing why the credential work was rejected
+     * @return ResponseEntity with the error message and a 503 status
+     */
+    @ExceptionHandler(LoginRejectedException.class)
+    public ResponseEntity<Map<String, String>> handleLoginRejectedException(LoginRejectedException ex) {
+        Map<String, String> response = new HashMap<>();
+        response.put("message", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header("Retry-After", "1").body(response);
+    }
+}
@@ -1,22 +1,36 @@
 package com.project.back_end.controllers;
 
+import com.fasterxml.jackson.databind.util.RawValue;
 import com.project.back_end.DTO.DoctorDTO;
 import com.project.back_end.DTO.Login;
 import com.project.back_end.models.Doctor;
+import com.project.back_end.models.ScheduleInterval;
+import com.project.back_end.models.ScheduleOverride;
+import com.project.back_end.security.AuthPrincipal;
+import com.project.back_end.security.CurrentPrincipal;
+import com.project.back_end.services.AgendaFeed;
 import com.project.back_end.services.CentralService;
+import com.project.back_end.services.DoctorCatalog;
 import com.project.back_end.services.DoctorService;
+import com.project.back_end.services.ScheduleService;
+import com.project.back_end.services.SpecialtyFacets;
+import com.project.back_end.util.KeysetCursor;
+import com.project.back_end.util.KeysetPage;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
 
 /**
  * Controller for managing doctors in the healthcare system.
@@ -27,59 +41,178 @@ import java.util.Objects;
 @RequestMapping("${api.path}doctors")
 @RequiredArgsConstructor
 public class DoctorController {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private final DoctorService doctorService;
     private final CentralService centralService;
+    private final DoctorCatalog doctorCatalog;
+    private final SpecialtyFacets specialtyFacets;
+    private final ScheduleService scheduleService;
+    private final AgendaFeed agendaFeed;
 
     /**
      * Retrieves the availability of a specific doctor for a given date.
-     * Validates the token before processing the request.
+     * The caller is authenticated for the role given by the {@code user} path variable.
      *
-     * @param user       the username of the user making the request
      * @param doctorId   the ID of the doctor
      * @param date       the date for which availability is requested
-     * @param token      the authentication token
+     * @param principal  the authenticated caller
      * @return ResponseEntity with available times or an error message
      */
     @GetMapping("/availability/{user}/{doctorId}/{date}/{token}")
-    public ResponseEntity<Map<String, Object>> getDoctorAvailability(@PathVariable String user, @PathVariable Long doctorId, @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date, @PathVariable String token) {
-        ResponseEntity<Map<String, String>> tempMap = centralService.validateToken(token, user);
+    public ResponseEntity<Map<String, Object>> getDoctorAvailability(@PathVariable Long doctorId, @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date, @CurrentPrincipal AuthPrincipal principal) {
+        List<String> doctorAvailableTimes = doctorService.getDoctorAvailability(doctorId, date);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("availableTimes", doctorAvailableTimes);
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Retrieves the free slots of several doctors over a range of dates in one call, e.g. for a page of doctor cards.
+     * Each doctor has, per day, an hour bitmask ({@code hours}: bit h is set if a free slot starts during hour h)
+     * and the exact start of the earliest free slot ({@code first}: minutes since midnight, -1 if none).
+     * The caller is authenticated for the role given by the {@code user} path variable.
+     *
+     * @param ids        the IDs of the doctors (at most 100)
+     * @param from       the first date (optional, defaults to today)
+     * @param days       the number of days (optional, defaults to 7, at most 31)
+     * @param principal  the authenticated caller
+     * @return ResponseEntity with the first date, the number of days and the free slots per doctor ID, or 400 if too many doctors are requested
+     */
+    @GetMapping("/availability/{user}/{token}")
+    public ResponseEntity<Map<String, Object>> getAvailabilityMatrix(@RequestParam List<Long> ids,
+                                                                     @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                     @RequestParam(required = false) Integer days,
+                                                                     @CurrentPrincipal AuthPrincipal principal) {
+        Map<String, Object> response = new HashMap<>();
 
-        if (!Objects.requireNonNull(tempMap.getBody()).isEmpty() && tempMap.getStatusCode() != HttpStatus.OK) {
-            // Return early with validation error (already wrapped as a response)
-            return new ResponseEntity<>(new HashMap<>(tempMap.getBody()), tempMap.getStatusCode());
+        if (ids.size() > DoctorService.MATRIX_MAX_DOCTORS) {
+            response.put("message", "At most " + DoctorService.MATRIX_MAX_DOCTORS + " doctors can be requested at once");
+            return ResponseEntity.badRequest().body(response);
         }
 
-        List<String> doctorAvailableTimes = doctorService.getDoctorAvailability(doctorId, date);
+        LocalDate first = from != null ? from : LocalDate.now();
+        int count = Math.max(1, Math.min(days != null ? days : DoctorService.MATRIX_DEFAULT_DAYS, DoctorService.MATRIX_MAX_DAYS));
+
+        response.put("from", first);
+        response.put("days", count);
+        response.put("availability", doctorService.getAvailabilityMatrix(ids, first, count));
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Finds the earliest free slots of any doctor of a specialty, e.g. "the earliest cardiology slot".
+     * The caller is authenticated for the role given by the {@code user} path variable.
+     *
+     * @param specialty  the specialty
+     * @param from       the first date to search (optional, defaults to today)
+     * @param days       the number of days to search (optional, defaults to 14, at most 60)
+     * @param limit      the maximum number of slots to return (optional, defaults to 10, at most 50)
+     * @param principal  the authenticated caller
+     * @return ResponseEntity with the free slots in time order
+     */
+    @GetMapping("/next-available/{user}/{token}")
+    public ResponseEntity<Map<String, Object>> getNextAvailable(@RequestParam String specialty,
+                                                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                @RequestParam(required = false) Integer days,
+                                                                @RequestParam(required = false) Integer limit,
+                                                                @CurrentPrincipal AuthPrincipal principal) {
+        List<DoctorService.AvailableSlot> slots = doctorService.findNextAvailable(specialty, from,
+                days != null ? days : DoctorService.NEXT_AVAILABLE_DEFAULT_DAYS,
+                limit != null ? limit : DoctorService.NEXT_AVAILABLE_DEFAULT_LIMIT);
 
         Map<String, Object> response = new HashMap<>();
-        response.put("availableTimes", doctorAvailableTimes);
+        response.put("slots", slots);
 
         return ResponseEntity.ok(response);
     }
 
     /**
-     * Retrieves a list of all doctors.
+     * Opens a Server-Sent Events stream of the slot changes of a doctor, e.g. while a patient is booking.
+     * A {@code slot} event is pushed whenever one of the doctor's slots is taken or freed.
+     * The caller is authenticated for the role given by the {@code user} path variable.
      *
-     * @return ResponseEntity containing a map with the list of doctors
+     * @param id         the ID of the doctor
+     * @param principal  the authenticated caller
+     * @return the event stream, or 503 if the feed has no room for more subscribers
+     */
+    @GetMapping("/{id}/feed/{user}/{token}")
+    public ResponseEntity<SseEmitter> getSlotFeed(@PathVariable Long id, @CurrentPrincipal AuthPrincipal principal) {
+        SseEmitter emitter = agendaFeed.subscribeSlots(id);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "30").build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * Retrieves one page of doctors, sorted by name.
+     * Served from the doctor catalog when it is ready, with an ETag so unchanged pages are answered with 304.
+     *
+     * @param cursor     the cursor returned with the previous page (optional)
+     * @param limit      the maximum number of doctors to return (optional, at most 100)
+     * @param webRequest the current request, used to evaluate If-None-Match
+     * @return ResponseEntity containing a map with the list of doctors and the cursor of the next page
      */
     @GetMapping
-    public ResponseEntity<Map<String, Object>> getDoctors() {
-        List<Doctor> doctors = doctorService.getDoctors();
+    public ResponseEntity<Map<String, Object>> getDoctors(@RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit, WebRequest webRequest) {
+        KeysetCursor keysetCursor = KeysetCursor.decode(cursor);
+        int pageSize = KeysetCursor.clampLimit(limit);
+        Map<String, Object> response = new HashMap<>();
+
+        DoctorCatalog.Page cached = doctorCatalog.page(keysetCursor, pageSize);
+        if (cached != null) {
+            if (webRequest.checkNotModified(cached.etag())) return null;
+
+            response.put("doctors", new RawValue(cached.json()));
+            response.put("nextCursor", cached.nextCursor());
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+        }
+
+        KeysetPage<Doctor> page = doctorService.getDoctors(keysetCursor, pageSize);
+
+        response.put("doctors", page.items());
+        response.put("nextCursor", page.nextCursor());
+
+        return ResponseEntity.ok(response);
+    }
 
+    /**
+     * Retrieves the specialties that have doctors, with the number of doctors per specialty
+     * and how many of them are available in the morning (AM) and afternoon (PM).
+     *
+     * @return ResponseEntity containing a map with the list of specialty counts
+     */
+    @GetMapping("/specialties")
+    public ResponseEntity<Map<String, Object>> getSpecialties() {
         Map<String, Object> response = new HashMap<>();
-        response.put("doctors", doctors);
+        response.put("specialties", specialtyFacets.getCounts());
 
         return ResponseEntity.ok(response);
     }
 
     /**
      * Retrieves a specific doctor by ID.
+     * Served from the doctor catalog when it is ready, with an ETag so an unchanged doctor is answered with 304.
      *
-     * @param id the ID of the doctor
+     * @param id         the ID of the doctor
+     * @param webRequest the current request, used to evaluate If-None-Match
      * @return ResponseEntity containing a map with the doctor's details
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Map<String, Object>> getDoctor(@PathVariable Long id) {
+    public ResponseEntity<Map<String, Object>> getDoctor(@PathVariable Long id, WebRequest webRequest) {
+        DoctorCatalog.Page cached = doctorCatalog.doctor(id);
+        if (cached != null) {
+            if (webRequest.checkNotModified(cached.etag())) return null;
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("doctor", new RawValue(cached.json()));
+            return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(response);
+        }
+
         DoctorDTO doctorDTO = new DoctorDTO();
 
         doctorDTO.copy(doctorService.findDoctorById(id));
@@ -92,23 +225,14 @@ public class DoctorController {
 
     /**
      * Saves a new doctor to the database.
-     * Validates the token from the Authorization header before processing the request.
+     * The admin is authenticated from the Authorization header.
      *
-     * @param doctor                the doctor to be saved
-     * @param authorizationHeader   the Authorization header containing the token
+     * @param doctor the doctor to be saved
+     * @param admin  the authenticated admin
      * @return ResponseEntity with a message indicating success or failure
      */
     @PostMapping
-    public ResponseEntity<Map<String, String>> saveDoctor(@RequestBody @Valid Doctor doctor, @RequestHeader("Authorization") String authorizationHeader) {
-        // Validate the token from the Authorization header
-        String token = authorizationHeader.replace("Bearer ", "").trim();
-
-        ResponseEntity<Map<String, String>> tempMap = centralService.validateToken(token, "admin");
-
-        if (!Objects.requireNonNull(tempMap.getBody()).isEmpty() && tempMap.getStatusCode() != HttpStatus.OK) {
-            return tempMap;
-        }
-
+    public ResponseEntity<Map<String, String>> saveDoctor(@RequestBody @Valid Doctor doctor, @CurrentPrincipal(role = "admin") AuthPrincipal admin) {
         int result = doctorService.saveDoctor(doctor);
         Map<String, String> response = new HashMap<>();
 
@@ -140,20 +264,14 @@ public class DoctorController {
 
     /**
      * Updates an existing doctor's details.
-     * Validates the token before processing the request.
+     * The admin is authenticated from the token in the path.
      *
      * @param doctor the doctor with updated details
-     * @param token  the authentication token
+     * @param admin  the authenticated admin
      * @return ResponseEntity with a message indicating success or failure
      */
     @PutMapping("/{token}")
-    public ResponseEntity<Map<String, String>> updateDoctor(@RequestBody @Valid Doctor doctor, @PathVariable String token) {
-        ResponseEntity<Map<String, String>> tempMap = centralService.validateToken(token, "admin");
-
-        if (!Objects.requireNonNull(tempMap.getBody()).isEmpty() && tempMap.getStatusCode() != HttpStatus.OK) {
-            return tempMap;
-        }
-
+    public ResponseEntity<Map<String, String>> updateDoctor(@RequestBody @Valid Doctor doctor, @CurrentPrincipal(role = "admin") AuthPrincipal admin) {
         int status = doctorService.updateDoctor(doctor);
         Map<String, String> response = new HashMap<>();
 
@@ -173,20 +291,14 @@ public class DoctorController {
 
     /**
      * Deletes a doctor by ID.
-     * Validates the token before processing the request.
+     * The admin is authenticated from the token in the path.
      *
      * @param id    the ID of the doctor to be deleted
-     * @param token the authentication token
+     * @param admin the authenticated admin
      * @return ResponseEntity with a message indicating success or failure
      */
     @DeleteMapping("/{id}/{token}")
-    public ResponseEntity<Map<String, String>> deleteDoctor(@PathVariable Long id, @PathVariable String token) {
-        ResponseEntity<Map<String, String>> tempMap = centralService.validateToken(token, "admin");
-
-        if (!Objects.requireNonNull(tempMap.getBody()).isEmpty() && tempMap.getStatusCode() != HttpStatus.OK) {
-            return tempMap;
-        }
-
+    public ResponseEntity<Map<String, String>> deleteDoctor(@PathVariable Long id, @CurrentPrincipal(role = "admin") AuthPrincipal admin) {
         int status = doctorService.deleteDoctor(id);
         Map<String, String> response = new HashMap<>();
 
@@ -204,6 +316,81 @@ public class DoctorController {
         }
     }
 
+    /**
+     * Retrieves the schedule of a doctor: the weekly intervals and the overrides from today on.
+     *
+     * @param id the ID of the doctor
+     * @return ResponseEntity containing a map with the intervals and overrides
+     */
+    @GetMapping("/{id}/schedule")
+    public ResponseEntity<Map<String, Object>> getSchedule(@PathVariable Long id) {
+        Map<String, Object> response = new HashMap<>();
+        response.put("intervals", scheduleService.getWeeklySchedule(id));
+        response.put("overrides", scheduleService.getOverrides(id, LocalDate.now()));
+
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * Replaces the weekly schedule of the authenticated doctor.
+     *
+     * @param intervals the new weekly intervals
+     * @param doctor    the authenticated doctor
+     * @return ResponseEntity with a message indicating success or failure
+     */
+    @PutMapping("/schedule/{token}")
+    public ResponseEntity<Map<String, String>> updateSchedule(@RequestBody List<ScheduleInterval> intervals, @CurrentPrincipal(role = "doctor") AuthPrincipal doctor) {
+        return scheduleResponse(scheduleService.replaceWeeklySchedule(doctor.id(), intervals), "Schedule updated", "Invalid schedule interval");
+    }
+
+    /**
+     * Adds a date-specific override (vacation or extra clinic) to the schedule of the authenticated doctor.
+     *
+     * @param scheduleOverride the override to add
+     * @param doctor           the authenticated doctor
+     * @return ResponseEntity with a message indicating success or failure
+     */
+    @PostMapping("/schedule/overrides/{token}")
+    public ResponseEntity<Map<String, String>> addScheduleOverride(@RequestBody ScheduleOverride scheduleOverride, @CurrentPrincipal(role = "doctor") AuthPrincipal doctor) {
+        return scheduleResponse(scheduleService.addOverride(doctor.id(), scheduleOverride), "Schedule override added", "Invalid schedule override");
+    }
+
+    /**
+     * Removes a date-specific override from the schedule of the authenticated doctor.
+     *
+     * @param overrideId the ID of the override
+     * @param doctor     the authenticated doctor
+     * @return ResponseEntity with a message indicating success or failure
+     */
+    @DeleteMapping("/schedule/overrides/{overrideId}/{token}")
+    public ResponseEntity<Map<String, String>> removeScheduleOverride(@PathVariable Long overrideId, @CurrentPrincipal(role = "doctor") AuthPrincipal doctor) {
+        return scheduleResponse(scheduleService.removeOverride(doctor.id(), overrideId), "Schedule override removed", "Schedule override not found");
+    }
+
+    /**
+     * Maps the result of a schedule change to a response.
+     *
+     * @param result         1 on success, -1 if the request was rejected, 0 on error
+     * @param successMessage the message on success
+     * @param invalidMessage the message if the request was rejected
+     * @return ResponseEntity with the message and matching status
+     */
+    private ResponseEntity<Map<String, String>> scheduleResponse(int result, String successMessage, String invalidMessage) {
+        Map<String, String> response = new HashMap<>();
+
+        if (result == 1) {
+            response.put("message", successMessage);
+            return ResponseEntity.ok(response);
+        }
+        else if (result == -1) {
+            response.put("message", invalidMessage);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+
+        response.put("message", "Some internal error occurred");
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+    }
+
     // @GetMapping("/filter/{name}/{time}/{specialty}")
     // public ResponseEntity<List<Doctor>> filterDoctors(@PathVariable String name, @PathVariable String time, @PathVariable String specialty) {
     //     return ResponseEntity.ok(centralService.filterDoctor(name, time, specialty));
@@ -216,10 +403,18 @@ public class DoctorController {
      * @param name       the name of the doctor (optional)
      * @param time       the available time of the doctor (optional)
      * @param specialty  the specialty of the doctor (optional)
-     * @return ResponseEntity with a list of filtered doctors
+     * @param cursor     the cursor returned with the previous page (optional)
+     * @param limit      the maximum number of doctors to return (optional, at most 100)
+     * @return ResponseEntity with one page of filtered doctors; the cursor of the next page is sent in the X-Next-Cursor header
      */
     @GetMapping("/filter")
-    public ResponseEntity<List<Doctor>> filterDoctors(@RequestParam(required = false) String name, @RequestParam(required = false) String time, @RequestParam(required = false) String specialty) {
-        return ResponseEntity.ok(centralService.filterDoctor(name, time, specialty));
+    public ResponseEntity<List<Doctor>> filterDoctors(@RequestParam(required = false) String name, @RequestParam(required = false) String time, @RequestParam(required = false) String specialty,
+                                                      @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit) {
+        KeysetPage<Doctor> page = centralService.filterDoctor(name, time, specialty, KeysetCursor.decode(cursor), KeysetCursor.clampLimit(limit));
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) response.header(NEXT_CURSOR_HEADER, page.nextCursor());
+
+        return response.body(page.items());
     }
 }
@@ -2,16 +2,23 @@ package com.project.back_end.controllers;
 
 import com.project.back_end.DTO.Login;
 import com.project.back_end.models.Patient;
+import com.project.back_end.security.AuthPrincipal;
+import com.project.back_end.security.CurrentPrincipal;
+import com.project.back_end.services.AgendaFeed;
 import com.project.back_end.services.CentralService;
 import com.project.back_end.services.PatientService;
+import com.project.back_end.util.AppointmentWindow;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.time.LocalDate;
 import java.util.Map;
-import java.util.Objects;
 
 /**
  * Controller for managing patient-related operations in the healthcare system.
@@ -23,23 +30,34 @@ import java.util.Objects;
 public class PatientController {
     private final PatientService patientService;
     private final CentralService centralService;
+    private final AgendaFeed agendaFeed;
 
     /**
-     * Retrieves patient details based on the provided token.
-     * Validates the token before processing the request.
+     * Retrieves the details of the patient the token in the path belongs to.
      *
-     * @param token the authentication token
+     * @param patient the authenticated patient
      * @return ResponseEntity with patient details or an error message
      */
     @GetMapping("/{token}")
-    public ResponseEntity<?> getPatient(@PathVariable String token) {
-        ResponseEntity<Map<String, String>> tempMap = centralService.validateToken(token, "patient");
+    public ResponseEntity<?> getPatient(@CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+        return patientService.getPatientDetails(patient);
+    }
 
-        if (!Objects.requireNonNull(tempMap.getBody()).isEmpty() && tempMap.getStatusCode() != HttpStatus.OK) {
-            return tempMap;
+    /**
+     * Opens a Server-Sent Events stream of the patient's waitlist offers.
+     * An {@code offer} event is pushed when a freed slot is held for the patient; a comment is sent periodically
+     * to keep the connection open.
+     *
+     * @param patient the authenticated patient
+     * @return the event stream, or 503 if the feed has no room for more subscribers
+     */
+    @GetMapping("/feed/{token}")
+    public ResponseEntity<SseEmitter> getOfferFeed(@CurrentPrincipal(role = "patient") AuthPrincipal patient) {
+        SseEmitter emitter = agendaFeed.subscribePatient(patient.id());
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "30").build();
         }
-
-        return patientService.getPatientDetails(token);
+        return ResponseEntity.ok(emitter);
     }
 
     /**
@@ -98,80 +116,80 @@ public class PatientController {
     }
 
     /**
-     * Updates an existing patient's details.
-     * Validates the token before processing the request.
+     * Retrieves all appointments for a specific patient.
+     * The patient is authenticated from the token in the path.
      *
-     * @param patient the patient with updated details
-     * @param token   the authentication token
-     * @return ResponseEntity with a message indicating success or failure
+     * @param id      the ID of the patient
+     * @param patient the authenticated patient
+     * @param from    the first day of the window (optional)
+     * @param to      the last day of the window (optional)
+     * @param cursor  the cursor returned with the previous page (optional)
+     * @param limit   the maximum number of appointments to return (optional)
+     * @return ResponseEntity with one page of appointments and the cursor of the next page, or an error message
      */
     @GetMapping("/{id}/{token}")
-    public ResponseEntity<?> getPatientAppointment(@PathVariable Long id, @PathVariable String token) {
-        ResponseEntity<Map<String, String>> tempMap = centralService.validateToken(token, "patient");
-
-        if (!Objects.requireNonNull(tempMap.getBody()).isEmpty() && tempMap.getStatusCode() != HttpStatus.OK) {
-            return tempMap;
-        }
-
-        return patientService.getPatientAppointment(id, token);
+    public ResponseEntity<?> getPatientAppointment(@PathVariable Long id, @CurrentPrincipal(role = "patient") AuthPrincipal patient,
+                                                   @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from, @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                   @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit) {
+        return patientService.getPatientAppointment(id, patient, AppointmentWindow.of(from, to, cursor, limit));
     }
 
     /**
      * Retrieves all appointments for a specific patient.
-     * Validates the token before processing the request.
+     * The patient is authenticated from the {@code token} request parameter.
      *
-     * @param id    the ID of the patient
-     * @param token the authentication token
-     * @return ResponseEntity with a list of appointments or an error message
+     * @param id      the ID of the patient
+     * @param patient the authenticated patient
+     * @param from    the first day of the window (optional)
+     * @param to      the last day of the window (optional)
+     * @param cursor  the cursor returned with the previous page (optional)
+     * @param limit   the maximum number of appointments to return (optional)
+     * @return ResponseEntity with one page of appointments and the cursor of the next page, or an error message
      */
     @GetMapping("/appointments")
-    public ResponseEntity<?> getPatientAppointments(@RequestParam Long id, @RequestParam String token) {
-        ResponseEntity<Map<String, String>> tempMap = centralService.validateToken(token, "patient");
-
-        if (!Objects.requireNonNull(tempMap.getBody()).isEmpty() && tempMap.getStatusCode() != HttpStatus.OK) {
-            return tempMap;
-        }
-
-        return patientService.getPatientAppointment(id, token);
+    public ResponseEntity<?> getPatientAppointments(@RequestParam Long id, @CurrentPrincipal(role = "patient") AuthPrincipal patient,
+                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from, @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                    @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit) {
+        return patientService.getPatientAppointment(id, patient, AppointmentWindow.of(from, to, cursor, limit));
     }
 
     /**
      * Filters patient appointments based on name and condition.
-     * Validates the token before processing the request.
+     * The patient is authenticated from the {@code token} request parameter.
      *
      * @param name      the name of the patient
      * @param condition the condition to filter by
-     * @param token     the authentication token
-     * @return ResponseEntity with filtered appointments or an error message
+     * @param patient   the authenticated patient
+     * @param from     the first day of the window (optional)
+     * @param to       the last day of the window (optional)
+     * @param cursor   the cursor returned with the previous page (optional)
+     * @param limit    the maximum number of appointments to return (optional)
+     * @return ResponseEntity with one page of filtered appointments and the cursor of the next page, or an error message
      */
     @GetMapping("/filter/appointments")
-    public ResponseEntity<?> filterPatientAppointment(@RequestParam String name, @RequestParam String condition, @RequestParam String token) {
-        ResponseEntity<Map<String, String>> tempMap = centralService.validateToken(token, "patient");
-
-        if (!Objects.requireNonNull(tempMap.getBody()).isEmpty() && tempMap.getStatusCode() != HttpStatus.OK) {
-            return tempMap;
-        }
-
-        return centralService.filterPatient(name, condition, token);
+    public ResponseEntity<?> filterPatientAppointment(@RequestParam String name, @RequestParam String condition, @CurrentPrincipal(role = "patient") AuthPrincipal patient,
+                                                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from, @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                      @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit) {
+        return centralService.filterPatient(name, condition, patient, AppointmentWindow.of(from, to, cursor, limit));
     }
 
     /**
      * Filters patient appointments by doctor.
-     * Validates the token before processing the request.
+     * The doctor is authenticated from the {@code token} request parameter.
      *
      * @param patientId the ID of the patient
      * @param doctorId  the ID of the doctor
-     * @param token     the authentication token
-     * @return ResponseEntity with filtered appointments or an error message
+     * @param doctor    the authenticated doctor
+     * @param from     the first day of the window (optional)
+     * @param to       the last day of the window (optional)
+     * @param cursor   the cursor returned with the previous page (optional)
+     * @param limit    the maximum number of appointments to return (optional)
+     * @return ResponseEntity with one page of filtered appointments and the cursor of the next page, or an error message
      */
     @GetMapping("/filter")
-    public ResponseEntity<?> filterPatientAppointmentByDoctor(@RequestParam Long patientId, @RequestParam Long doctorId, @RequestParam String token) {
-        ResponseEntity<Map<String, String>> tempMap = centralService.validateToken(token, "doctor");
-
-        if (!Objects.requireNonNull(tempMap.getBody()).isEmpty() && tempMap.getStatusCode() != HttpStatus.OK) {
-            return tempMap;
-        }
-
-        return centralService.filterPatient(patientId, doctorId, token);
+    public ResponseEntity<?> filterPatientAppointmentByDoctor(@RequestParam Long patientId, @RequestParam Long doctorId, @CurrentPrincipal(role = "doctor") AuthPrincipal doctor,
+                                                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from, @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                              @RequestParam(required = false) String cursor, @RequestParam(required = false) Integer limit) {
+        return centralService.filterPatient(patientId, doctorId, doctor, AppointmentWindow.of(from, to, cursor, limit));
     }
 }
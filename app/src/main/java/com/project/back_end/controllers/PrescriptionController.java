@@ -3,18 +3,17 @@ package com.project.back_end.controllers;
 import com.project.back_end.models.Appointment;
 import com.project.back_end.models.Prescription;
 import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.security.AuthPrincipal;
+import com.project.back_end.security.CurrentPrincipal;
 import com.project.back_end.services.AppointmentService;
-import com.project.back_end.services.CentralService;
 import com.project.back_end.services.PrescriptionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
-import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Objects;
 import java.util.Optional;
 
 /**
@@ -26,28 +25,20 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class PrescriptionController {
     private final PrescriptionService prescriptionService;
-    private final CentralService centralService;
     private final AppointmentService appointmentService;
 
     private final AppointmentRepository appointmentRepository;
 
     /**
      * Saves a prescription for a specific appointment.
-     * Validates the token for 'doctor' role before processing the request.
+     * Requires a token for the 'doctor' role in the path.
      *
-     * @param token        the authentication token
      * @param prescription the prescription details to be saved
+     * @param doctor       the authenticated doctor
      * @return ResponseEntity with a message indicating success or failure
      */
     @PostMapping("/{token}")
-    public ResponseEntity<Map<String, String>> savePrescription(@PathVariable String token, @RequestBody @Valid Prescription prescription) {
-        // Validate token for 'doctor' role
-        ResponseEntity<Map<String, String>> tokenValidation = centralService.validateToken(token, "doctor");
-
-        if (!Objects.requireNonNull(tokenValidation.getBody()).isEmpty() && tokenValidation.getStatusCode() != HttpStatus.OK) {
-            return tokenValidation;
-        }
-
+    public ResponseEntity<Map<String, String>> savePrescription(@RequestBody @Valid Prescription prescription, @CurrentPrincipal(role = "doctor") AuthPrincipal doctor) {
         Optional<Appointment> appointmentOptional = appointmentRepository.findById(prescription.getAppointmentId());
         if(appointmentOptional.isEmpty()) {
             Map<String, String> response = new HashMap<>();
@@ -67,21 +58,14 @@ public class PrescriptionController {
 
     /**
      * Retrieves the prescription for a specific appointment.
-     * Validates the token for 'doctor' role before processing the request.
+     * Requires a token for the 'doctor' role in the path.
      *
      * @param appointmentId the ID of the appointment
-     * @param token         the authentication token
+     * @param doctor        the authenticated doctor
      * @return ResponseEntity with the prescription details or an error message
      */
     @GetMapping("/{appointmentId}/{token}")
-    public ResponseEntity<?> getPrescription(@PathVariable Long appointmentId, @PathVariable String token) {
-        // Validate token for 'doctor' role
-        ResponseEntity<Map<String, String>> tokenValidation = centralService.validateToken(token, "doctor");
-
-        if (!Objects.requireNonNull(tokenValidation.getBody()).isEmpty() && tokenValidation.getStatusCode() != HttpStatus.OK) {
-            return tokenValidation;
-        }
-
+    public ResponseEntity<?> getPrescription(@PathVariable Long appointmentId, @CurrentPrincipal(role = "doctor") AuthPrincipal doctor) {
         return prescriptionService.getPrescription(appointmentId);
     }
 }
@@ -1,5 +1,6 @@
 package com.project.back_end.controllers;
 
+import com.project.back_end.util.InvalidCursorException;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -14,6 +15,7 @@ import java.util.stream.Collectors;
 /**
  * Global exception handler for validation errors in the application.
  * Catches MethodArgumentNotValidException and formats the error messages.
+ * Also catches InvalidCursorException raised by paginated endpoints.
  */
 @RestControllerAdvice
 public class ValidationFailed {
@@ -36,4 +38,18 @@ public class ValidationFailed {
 
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
     }
+
+    /**
+     * Handles InvalidCursorException raised when a pagination cursor is malformed.
+     *
+     * @param ex the exception describing the invalid cursor
+     * @return ResponseEntity with the error message and a 400 status
+     */
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidCursorException(InvalidCursorException ex) {
+        Map<String, String> response = new HashMap<>();
+        response.put("message", ex.getMessage());
+
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+    }
 }
@@ -1,5 +1,6 @@
 package com.project.back_end.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.NotNull;
@@ -16,6 +17,8 @@ import java.time.LocalTime;
 /**
  * Represents an Appointment entity in the healthcare system.
  * Contains details such as doctor, patient, appointment time, and status.
+ * A doctor can only have one appointment at a given time.
+ * The doctor and patient are loaded lazily; listings read them through the DTO projections of AppointmentRepository.
  */
 
 @AllArgsConstructor
@@ -23,16 +26,22 @@ import java.time.LocalTime;
 @Getter
 @Setter
 @Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_appointment_doctor_time", columnNames = {"doctor_id", "appointmentTime"}),
+        indexes = {
+                @Index(name = "idx_appointment_patient_time", columnList = "patient_id, appointmentTime, id"),
+                @Index(name = "idx_appointment_patient_status_time", columnList = "patient_id, status, appointmentTime, id"),
+                @Index(name = "idx_appointment_status_time", columnList = "status, appointmentTime")
+        })
 public class Appointment {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @NotNull(message = "Doctor is required!")
     private Doctor doctor;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @NotNull(message = "Patient is required!")
     private Patient patient;
 
@@ -42,6 +51,10 @@ public class Appointment {
     @NotNull(message = "Status is required!")
     private int status;
 
+    // Fence of the booking lease the appointment was written under; null for appointments booked before leases
+    @JsonIgnore
+    private Long leaseFence;
+
     @Transient
     public LocalDateTime getEndTime() {
         return appointmentTime.plusHours(1);
@@ -0,0 +1,44 @@
+package com.project.back_end.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents a short-lived lease on a (doctor, slot) pair, shared by all instances of the application.
+ * The instance holding an unexpired lease is the only one allowed to book the slot.
+ * The fence is incremented on every new claim, so a writer whose lease was taken over can be recognized.
+ */
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_booking_lease_doctor_slot", columnNames = {"doctorId", "slot"}),
+        indexes = @Index(name = "idx_booking_lease_slot", columnList = "slot"))
+public class BookingLease {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull(message = "Doctor id is required!")
+    private Long doctorId;
+
+    @NotNull(message = "Slot is required!")
+    private LocalDateTime slot;
+
+    @NotNull(message = "Holder is required!")
+    private String holder;
+
+    @NotNull(message = "Expiry is required!")
+    private LocalDateTime expiresAt;
+
+    @NotNull(message = "Fence is required!")
+    private Long fence;
+}
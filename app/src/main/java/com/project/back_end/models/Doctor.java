@@ -1,6 +1,8 @@
 package com.project.back_end.models;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.project.back_end.util.HelperUtil;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.AllArgsConstructor;
@@ -14,6 +16,11 @@ import java.util.List;
 /**
  * Represents a Doctor entity in the healthcare system.
  * Contains details such as name, specialty, email, password, phone number, and available times
+ * The hours the doctor works are also kept as an hour bitmask and as AM/PM flags, so AM/PM filtering can be done by the database
+ * through an index. They are derived from the weekly schedule if the doctor has one, otherwise from the available times,
+ * and are set by the services whenever either changes.
+ * The available times are loaded lazily; queries that return doctors for serialization fetch them
+ * through the {@code Doctor.availableTimes} entity graph or in batches.
  */
 
 @AllArgsConstructor
@@ -21,6 +28,16 @@ import java.util.List;
 @Getter
 @Setter
 @Entity
+@NamedEntityGraph(name = "Doctor.availableTimes", attributeNodes = @NamedAttributeNode("availableTimes"))
+@Table(indexes = {
+        @Index(name = "idx_doctor_name_id", columnList = "name, id"),
+        @Index(name = "idx_doctor_am_name", columnList = "has_am, name, id"),
+        @Index(name = "idx_doctor_pm_name", columnList = "has_pm, name, id"),
+        @Index(name = "idx_doctor_specialty_am_name", columnList = "specialty, has_am, name, id"),
+        @Index(name = "idx_doctor_specialty_pm_name", columnList = "specialty, has_pm, name, id"),
+        @Index(name = "idx_doctor_email", columnList = "email"),
+        @Index(name = "idx_doctor_specialty_name", columnList = "specialty, name")
+})
 public class Doctor {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -47,7 +64,33 @@ public class Doctor {
     @Pattern(regexp = "\\d{10}", message = "Phone number must be 10 digits!")
     private String phone;
 
-    @ElementCollection(fetch = FetchType.EAGER)
+    @ElementCollection
+    @CollectionTable(indexes = @Index(name = "idx_doctor_available_times_doctor", columnList = "doctor_id, available_times"))
     private List<String> availableTimes;
+
+    // Bit h is set if a slot starts at hour h; bits 0-11 are AM, bits 12-23 are PM
+    @JsonIgnore
+    @Column(name = "availability_mask")
+    private Integer availabilityMask;
+
+    // Whether any slot starts before noon, and at or after noon
+    @JsonIgnore
+    @Column(name = "has_am")
+    private boolean hasAm;
+
+    @JsonIgnore
+    @Column(name = "has_pm")
+    private boolean hasPm;
+
+    /**
+     * Sets the availability bitmask and derives the AM/PM flags from it.
+     *
+     * @param availabilityMask the hours the doctor works, as a bitmask
+     */
+    public void applyAvailabilityMask(int availabilityMask) {
+        this.availabilityMask = availabilityMask;
+        this.hasAm = (availabilityMask & HelperUtil.AM_HOURS) != 0;
+        this.hasPm = (availabilityMask & HelperUtil.PM_HOURS) != 0;
+    }
 }
 
@@ -0,0 +1,37 @@
+package com.project.back_end.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Represents a revoked principal in the healthcare system.
+ * Tokens issued to a revoked admin, doctor or patient are rejected even though their signature is still valid.
+ */
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_revoked_principal_role_principal", columnNames = {"role", "principalId"}),
+        indexes = @Index(name = "idx_revoked_principal_revoked_at", columnList = "revokedAt"))
+public class RevokedPrincipal {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @NotNull(message = "Role is required!")
+    private String role;
+
+    @NotNull(message = "Principal id is required!")
+    private Long principalId;
+
+    @NotNull(message = "Revocation time is required!")
+    private LocalDateTime revokedAt;
+}
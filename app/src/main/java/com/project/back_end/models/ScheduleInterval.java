@@ -0,0 +1,40 @@
+package com.project.back_end.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+
+/**
+ * Represents a recurring weekly working interval of a doctor, e.g. every Monday from 09:00 to 12:00.
+ * The interval is cut into one-hour appointment slots.
+ */
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(indexes = @Index(name = "idx_schedule_interval_doctor_day", columnList = "doctorId, dayOfWeek, startTime"))
+public class ScheduleInterval {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long doctorId;
+
+    @NotNull(message = "Day of week is required!")
+    @Enumerated(EnumType.STRING)
+    private DayOfWeek dayOfWeek;
+
+    @NotNull(message = "Start time is required!")
+    private LocalTime startTime;
+
+    @NotNull(message = "End time is required!")
+    private LocalTime endTime;
+}
@@ -0,0 +1,40 @@
+package com.project.back_end.models;
+
+import jakarta.persistence.*;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+/**
+ * Represents a date-specific change to a doctor's weekly schedule.
+ * An unavailable override removes slots (a vacation, or the whole day if no times are given);
+ * an available override adds slots (an extra clinic).
+ */
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Entity
+@Table(indexes = @Index(name = "idx_schedule_override_doctor_date", columnList = "doctorId, date"))
+public class ScheduleOverride {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long doctorId;
+
+    @NotNull(message = "Date is required!")
+    private LocalDate date;
+
+    private LocalTime startTime;
+
+    private LocalTime endTime;
+
+    private boolean available;
+}
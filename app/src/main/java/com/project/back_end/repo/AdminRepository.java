@@ -2,6 +2,8 @@ package com.project.back_end.repo;
 
 import com.project.back_end.models.Admin;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -14,6 +16,7 @@ import org.springframework.stereotype.Repository;
 public interface AdminRepository extends JpaRepository<Admin, Long> {
     Admin findByUsername(String username);
 
-    // Used in TokenService for token validation
-    boolean existsByUsername(String username);
+    // Used by PrincipalRegistry for token validation
+    @Query("SELECT a.id FROM Admin a WHERE a.username = :username")
+    Long findIdByUsername(@Param("username") String username);
 }
@@ -1,12 +1,15 @@
 package com.project.back_end.repo;
 
+import com.project.back_end.DTO.AppointmentDTO;
 import com.project.back_end.models.Appointment;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.*;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -17,21 +20,41 @@ import java.util.List;
 
 @Repository
 public interface AppointmentRepository extends JpaRepository<Appointment, Long> {
-    List<Appointment> findByDoctorIdAndAppointmentTimeBetweenOrderByAppointmentTime(Long doctorId, LocalDateTime start, LocalDateTime end);
-    List<Appointment> findByDoctorIdAndPatient_NameContainingIgnoreCaseAndAppointmentTimeBetweenOrderByAppointmentTime(Long doctorId, String patientName, LocalDateTime start, LocalDateTime end);
+    // Selects the AppointmentDTO columns of an appointment and its doctor and patient in one joined query, without loading the entities
+    String SELECT_DTO = "SELECT new com.project.back_end.DTO.AppointmentDTO(a.id, d.id, d.name, p.id, p.name, p.email, p.phone, p.address, a.appointmentTime, a.status)"
+            + " FROM Appointment a JOIN a.doctor d JOIN a.patient p";
 
+    // Written out because the derived query joins the doctor table to filter on d.id, which hides the (doctor_id, time) key
+    @Query("SELECT a FROM Appointment a WHERE a.doctor.id = :doctorId AND a.appointmentTime BETWEEN :start AND :end ORDER BY a.appointmentTime")
+    List<Appointment> findByDoctorIdAndAppointmentTimeBetweenOrderByAppointmentTime(@Param("doctorId") Long doctorId, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // Booked start times of several doctors in [start, end), as (doctor id, appointment time) rows
+    @Query("SELECT a.doctor.id, a.appointmentTime FROM Appointment a WHERE a.doctor.id IN :doctorIds AND a.appointmentTime >= :start AND a.appointmentTime < :end")
+    List<Object[]> findStartsByDoctorIdIn(@Param("doctorIds") Collection<Long> doctorIds, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    // One bulk delete on the doctor_id column, instead of the derived query's join and a delete per loaded appointment
     @Modifying
     @Transactional
-    void deleteAllByDoctorId(Long doctorId);
-
-    List<Appointment> findByPatientIdOrderByAppointmentTime(Long patientId);
-    List<Appointment> findByPatient_IdAndStatusOrderByAppointmentTimeAsc(Long patientId, int status);
+    @Query("DELETE FROM Appointment a WHERE a.doctor.id = :doctorId")
+    void deleteAllByDoctorId(@Param("doctorId") Long doctorId);
 
-    @Query("SELECT a FROM Appointment a WHERE LOWER(a.doctor.name) LIKE LOWER(CONCAT('%', :doctorName, '%')) AND a.patient.id = :patientId")
-    List<Appointment> filterByDoctorNameContainingIgnoreCaseAndPatientIdOrderByAppointmentTime(@Param("doctorName") String doctorName, @Param("patientId") Long patientId);
+    // One (appointmentTime, id) keyset page of a doctor's appointments in (after, to), optionally narrowed to one patient or a patient name
+    @Query(SELECT_DTO + " WHERE d.id = :doctorId"
+            + " AND (:patientId IS NULL OR p.id = :patientId)"
+            + " AND (:patientName IS NULL OR LOWER(p.name) LIKE LOWER(CONCAT('%', :patientName, '%')))"
+            + " AND (a.appointmentTime > :afterTime OR (a.appointmentTime = :afterTime AND a.id > :afterId)) AND a.appointmentTime < :to"
+            + " ORDER BY a.appointmentTime, a.id")
+    List<AppointmentDTO> findDoctorPage(@Param("doctorId") Long doctorId, @Param("patientId") Long patientId, @Param("patientName") String patientName,
+                                     @Param("afterTime") LocalDateTime afterTime, @Param("afterId") long afterId, @Param("to") LocalDateTime to, Limit limit);
 
-    @Query("SELECT a FROM Appointment a WHERE LOWER(a.doctor.name) LIKE LOWER(CONCAT('%', :doctorName, '%')) AND a.patient.id = :patientId AND a.status = :status")
-    List<Appointment> filterByDoctorNameContainingIgnoreCaseAndPatientIdAndStatusOrderByAppointmentTime(@Param("doctorName") String doctorName, @Param("patientId") Long patientId, @Param("status") int status);
+    // One (appointmentTime, id) keyset page of a patient's appointments in (after, to), optionally narrowed to a doctor name or a status
+    @Query(SELECT_DTO + " WHERE p.id = :patientId"
+            + " AND (:doctorName IS NULL OR LOWER(d.name) LIKE LOWER(CONCAT('%', :doctorName, '%')))"
+            + " AND (:status IS NULL OR a.status = :status)"
+            + " AND (a.appointmentTime > :afterTime OR (a.appointmentTime = :afterTime AND a.id > :afterId)) AND a.appointmentTime < :to"
+            + " ORDER BY a.appointmentTime, a.id")
+    List<AppointmentDTO> findPatientPage(@Param("patientId") Long patientId, @Param("doctorName") String doctorName, @Param("status") Integer status,
+                                      @Param("afterTime") LocalDateTime afterTime, @Param("afterId") long afterId, @Param("to") LocalDateTime to, Limit limit);
 
     // Update appointment status
     @Modifying
@@ -39,8 +62,9 @@ public interface AppointmentRepository extends JpaRepository<Appointment, Long>
     @Query("UPDATE Appointment a SET a.status = :status WHERE a.id = :id")
     void updateStatus(@Param("status") int status, @Param("id") Long id);
 
-    List<Appointment> findByDoctorIdOrderByAppointmentTime(Long doctorId);
-    List<Appointment> findByDoctorIdAndPatient_NameContainingIgnoreCaseOrderByAppointmentTime(Long doctorId, String patientName);
-
-    List<Appointment> findByDoctorIdAndPatientIdOrderByAppointmentTime(Long doctorId, Long patientId);
-}
+    // Marks at most limit future (0) appointments that started before now as past (1); driven by idx_appointment_status_time
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE appointment SET status = 1 WHERE status = 0 AND appointment_time < :now LIMIT :limit", nativeQuery = true)
+    int markPast(@Param("now") LocalDateTime now, @Param("limit") int limit);
+}
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.BookingLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository interface for managing BookingLease entities.
+ * Claims, confirmations and releases are single conditional updates, so they never block on another holder.
+ * Expiry times are computed and compared with the database's clock, never an instance's, so instances whose
+ * clocks drift apart still agree on when a lease has expired.
+ * Extends JpaRepository for basic CRUD functionality.
+ */
+
+@Repository
+public interface BookingLeaseRepository extends JpaRepository<BookingLease, Long> {
+    // Takes over an expired lease and starts a new fence
+    @Modifying
+    @Query("update BookingLease l set l.holder = :holder, l.expiresAt = local datetime + (:ttlNanos) nanosecond, l.fence = l.fence + 1 " +
+            "where l.doctorId = :doctorId and l.slot = :slot and l.expiresAt <= local datetime")
+    int claimExpired(@Param("doctorId") Long doctorId,
+                     @Param("slot") LocalDateTime slot,
+                     @Param("holder") String holder,
+                     @Param("ttlNanos") long ttlNanos);
+
+    // Leases a slot that was never leased with fence 1; fails on the unique (doctor, slot) key if it has a lease
+    @Modifying
+    @Query("insert into BookingLease (doctorId, slot, holder, expiresAt, fence) " +
+            "values (:doctorId, :slot, :holder, local datetime + (:ttlNanos) nanosecond, 1)")
+    int claimNew(@Param("doctorId") Long doctorId,
+                 @Param("slot") LocalDateTime slot,
+                 @Param("holder") String holder,
+                 @Param("ttlNanos") long ttlNanos);
+
+    @Query("select l.fence from BookingLease l where l.doctorId = :doctorId and l.slot = :slot and l.holder = :holder")
+    Long findFence(@Param("doctorId") Long doctorId, @Param("slot") LocalDateTime slot, @Param("holder") String holder);
+
+    // Succeeds only while the lease is unexpired and still carries the given fence; locks the row until commit
+    @Modifying
+    @Query("update BookingLease l set l.expiresAt = local datetime + (:ttlNanos) nanosecond " +
+            "where l.doctorId = :doctorId and l.slot = :slot and l.holder = :holder and l.fence = :fence and l.expiresAt > local datetime")
+    int confirm(@Param("doctorId") Long doctorId,
+                @Param("slot") LocalDateTime slot,
+                @Param("holder") String holder,
+                @Param("fence") Long fence,
+                @Param("ttlNanos") long ttlNanos);
+
+    // Expires the lease right away; the row and its fence are kept for the next claim
+    @Modifying
+    @Transactional
+    @Query("update BookingLease l set l.expiresAt = local datetime " +
+            "where l.doctorId = :doctorId and l.slot = :slot and l.holder = :holder and l.fence = :fence")
+    int release(@Param("doctorId") Long doctorId,
+                @Param("slot") LocalDateTime slot,
+                @Param("holder") String holder,
+                @Param("fence") Long fence);
+
+    // Leases of slots in the past can no longer be booked
+    @Modifying
+    @Transactional
+    void deleteBySlotBefore(LocalDateTime slot);
+}
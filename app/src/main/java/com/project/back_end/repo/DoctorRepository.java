@@ -1,30 +1,58 @@
 package com.project.back_end.repo;
 
 import com.project.back_end.models.Doctor;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * Repository interface for managing Doctor entities.
  * Provides methods to perform CRUD operations and custom queries.
- * Extends JpaRepository for basic CRUD functionality.
+ * Extends JpaRepository for basic CRUD functionality, and JpaSpecificationExecutor for dynamic filters.
  */
 
 @Repository
-public interface DoctorRepository extends JpaRepository<Doctor, Long> {
+public interface DoctorRepository extends JpaRepository<Doctor, Long>, JpaSpecificationExecutor<Doctor> {
     Doctor findByEmail(String email);
 
-    @Query("SELECT d FROM Doctor d WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', :name, '%'))")
-    List<Doctor> findByNameLikeOrderByName(@Param("name") String name);
+    List<Doctor> findByAvailabilityMaskIsNull();
 
-    @Query("SELECT d FROM Doctor d WHERE LOWER(d.name) LIKE LOWER(CONCAT('%', :name, '%')) AND LOWER(d.specialty) = LOWER(:specialty)")
-    List<Doctor> findByNameContainingIgnoreCaseAndSpecialtyIgnoreCaseOrderByName(@Param("name") String name, @Param("specialty") String specialty);
+    // Used by DoctorSearchIndex to build the trigram index
+    @Query("SELECT d.id, d.name FROM Doctor d")
+    List<Object[]> findAllIdsAndNames();
 
-    List<Doctor> findBySpecialtyIgnoreCaseOrderByName(String specialty);
+    // Used by SpecialtyFacets to build the specialty counts
+    @Query("SELECT d.id, d.specialty, d.availabilityMask FROM Doctor d")
+    List<Object[]> findAllSpecialtiesAndAvailability();
 
-    boolean existsByEmail(String email);
+    // Ids and names of the doctors of one specialty, for searches across all of its doctors
+    @Query("SELECT d.id, d.name FROM Doctor d WHERE d.specialty = :specialty")
+    List<Object[]> findIdsAndNamesBySpecialty(@Param("specialty") String specialty);
+
+    // Available times of several doctors at once, as (id, time label) rows
+    @Query("SELECT d.id, t FROM Doctor d JOIN d.availableTimes t WHERE d.id IN :ids")
+    List<Object[]> findAvailableTimesByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Available times of one doctor, without loading the doctor
+    @Query("SELECT t FROM Doctor d JOIN d.availableTimes t WHERE d.id = :id")
+    List<String> findAvailableTimesById(@Param("id") Long id);
+
+    // A doctor with its available times, in one query
+    @EntityGraph("Doctor.availableTimes")
+    Optional<Doctor> findWithAvailableTimesById(Long id);
+
+    // All doctors with their available times, sorted for the catalog, in one query
+    @EntityGraph("Doctor.availableTimes")
+    List<Doctor> findAllByOrderByNameAscIdAsc();
+
+    // Used by PrincipalRegistry for token validation
+    @Query("SELECT d.id FROM Doctor d WHERE d.email = :email")
+    Long findIdByEmail(@Param("email") String email);
 }
@@ -0,0 +1,73 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.util.KeysetCursor;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Query builder for filtering doctors by name, specialty and time of day in a single query.
+ */
+public final class DoctorSpecifications {
+    private DoctorSpecifications() {
+    }
+
+    /**
+     * Builds the filter for the given criteria; criteria that are null are ignored.
+     * Specialty and time of day are compared by equality, so they can use the (specialty, has_am/has_pm, name, id)
+     * and (has_am/has_pm, name, id) indexes; callers pass the specialty in the same title case it is stored in.
+     *
+     * @param ids       candidate ids from the name search index, or null if not available
+     * @param name      the text the name must contain, used only if {@code ids} is null
+     * @param specialty the specialty of the doctor
+     * @param amOrPm    the time of day (AM/PM) the doctor must have a slot in
+     * @return the specification combining all given criteria
+     */
+    public static Specification<Doctor> filter(Collection<Long> ids, String name, String specialty, String amOrPm) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (ids != null) {
+                predicates.add(root.get("id").in(ids));
+            }
+            else if (name != null) {
+                predicates.add(cb.like(cb.lower(root.get("name")), "%" + name.toLowerCase() + "%"));
+            }
+
+            if (specialty != null) {
+                predicates.add(cb.equal(root.get("specialty"), specialty));
+            }
+
+            if (amOrPm != null) {
+                if (amOrPm.equalsIgnoreCase("AM")) {
+                    predicates.add(cb.isTrue(root.get("hasAm")));
+                }
+                else if (amOrPm.equalsIgnoreCase("PM")) {
+                    predicates.add(cb.isTrue(root.get("hasPm")));
+                }
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    /**
+     * Restricts a (name, id) ordered query to the rows after the given cursor.
+     *
+     * @param cursor the cursor of the previous page, or null for the first page
+     * @return the specification, matching every row if the cursor is null
+     */
+    public static Specification<Doctor> after(KeysetCursor cursor) {
+        return (root, query, cb) -> {
+            if (cursor == null) return cb.conjunction();
+
+            return cb.or(
+                    cb.greaterThan(root.get("name"), cursor.name()),
+                    cb.and(cb.equal(root.get("name"), cursor.name()), cb.greaterThan(root.get("id"), cursor.id())));
+        };
+    }
+}
@@ -2,6 +2,8 @@ package com.project.back_end.repo;
 
 import com.project.back_end.models.Patient;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 /**
@@ -15,6 +17,7 @@ public interface PatientRepository extends JpaRepository<Patient, Long> {
     Patient findByEmail(String email);
     Patient findByEmailOrPhone(String email, String phone);
 
-    // Used in TokenService for token validation
-    boolean existsByEmail(String email);
+    // Used by PrincipalRegistry for token validation
+    @Query("SELECT p.id FROM Patient p WHERE p.email = :email")
+    Long findIdByEmail(@Param("email") String email);
 }
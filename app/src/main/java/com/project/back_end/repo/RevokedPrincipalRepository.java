@@ -0,0 +1,25 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.RevokedPrincipal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Repository interface for managing RevokedPrincipal entities.
+ * Provides methods to perform CRUD operations and custom queries.
+ * Extends JpaRepository for basic CRUD functionality.
+ */
+
+@Repository
+public interface RevokedPrincipalRepository extends JpaRepository<RevokedPrincipal, Long> {
+    boolean existsByRoleAndPrincipalId(String role, Long principalId);
+
+    // Revocations older than the token lifetime no longer match any live token
+    @Modifying
+    @Transactional
+    void deleteByRevokedAtBefore(LocalDateTime revokedAt);
+}
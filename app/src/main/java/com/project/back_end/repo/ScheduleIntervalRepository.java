@@ -0,0 +1,32 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.ScheduleInterval;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.DayOfWeek;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for managing ScheduleInterval entities.
+ * Provides methods to perform CRUD operations and custom queries.
+ * Extends JpaRepository for basic CRUD functionality.
+ */
+
+@Repository
+public interface ScheduleIntervalRepository extends JpaRepository<ScheduleInterval, Long> {
+    List<ScheduleInterval> findByDoctorIdOrderByDayOfWeekAscStartTimeAsc(Long doctorId);
+
+    List<ScheduleInterval> findByDoctorIdAndDayOfWeek(Long doctorId, DayOfWeek dayOfWeek);
+
+    boolean existsByDoctorId(Long doctorId);
+
+    List<ScheduleInterval> findByDoctorIdIn(Collection<Long> doctorIds);
+
+    @Modifying
+    @Transactional
+    void deleteByDoctorId(Long doctorId);
+}
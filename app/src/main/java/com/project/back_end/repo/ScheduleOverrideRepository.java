@@ -0,0 +1,30 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.ScheduleOverride;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository interface for managing ScheduleOverride entities.
+ * Provides methods to perform CRUD operations and custom queries.
+ * Extends JpaRepository for basic CRUD functionality.
+ */
+
+@Repository
+public interface ScheduleOverrideRepository extends JpaRepository<ScheduleOverride, Long> {
+    List<ScheduleOverride> findByDoctorIdAndDate(Long doctorId, LocalDate date);
+
+    List<ScheduleOverride> findByDoctorIdAndDateGreaterThanEqualOrderByDate(Long doctorId, LocalDate date);
+
+    List<ScheduleOverride> findByDoctorIdInAndDateBetween(Collection<Long> doctorIds, LocalDate from, LocalDate to);
+
+    @Modifying
+    @Transactional
+    void deleteByDoctorId(Long doctorId);
+}
@@ -0,0 +1,13 @@
+package com.project.back_end.security;
+
+/**
+ * Compact view of the authenticated caller, resolved once per request.
+ * Passed to controllers and services instead of the raw token, so they no longer
+ * need to parse the token or look the caller up again.
+ *
+ * @param role  the role the caller was authenticated for (admin, doctor, patient)
+ * @param id    the id of the admin, doctor or patient entity
+ * @param email the username (admin) or email (doctor, patient) carried by the token
+ */
+public record AuthPrincipal(String role, Long id, String email) {
+}
@@ -0,0 +1,64 @@
+package com.project.back_end.security;
+
+import com.project.back_end.services.TokenService;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Servlet filter that verifies the token of a request once, before it reaches the controllers.
+ * The token is read from the Authorization header, the {@code token} request parameter,
+ * or the last path segment, which is where the REST endpoints expect it.
+ * Verified claims are stored as a request attribute; requests without a valid token are
+ * passed through untouched, since authorization is enforced per endpoint by {@link CurrentPrincipal}.
+ */
+@Component
+@RequiredArgsConstructor
+public class AuthenticationFilter extends OncePerRequestFilter {
+    public static final String CLAIMS_ATTRIBUTE = AuthenticationFilter.class.getName() + ".claims";
+
+    private static final Pattern JWT_PATTERN = Pattern.compile("[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]+");
+
+    private final TokenService tokenService;
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String token = extractToken(request);
+
+        if (token != null) {
+            Claims claims = tokenService.parseClaims(token);
+            if (claims != null) request.setAttribute(CLAIMS_ATTRIBUTE, claims);
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Finds the token of the request, if any.
+     *
+     * @param request the current request
+     * @return the raw token, or null if the request does not carry one
+     */
+    private String extractToken(HttpServletRequest request) {
+        String authorization = request.getHeader("Authorization");
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            return authorization.substring("Bearer ".length()).trim();
+        }
+
+        String parameter = request.getParameter("token");
+        if (parameter != null && !parameter.isBlank()) return parameter;
+
+        String uri = request.getRequestURI();
+        String lastSegment = uri.substring(uri.lastIndexOf('/') + 1);
+        return JWT_PATTERN.matcher(lastSegment).matches() ? lastSegment : null;
+    }
+}
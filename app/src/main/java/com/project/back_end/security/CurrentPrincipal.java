@@ -0,0 +1,21 @@
+package com.project.back_end.security;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a controller method parameter to the {@link AuthPrincipal} of the current request.
+ * The request is rejected with 401 Unauthorized if the token is missing, invalid,
+ * or does not belong to a principal of the required role.
+ */
+@Target(ElementType.PARAMETER)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CurrentPrincipal {
+    /**
+     * The role the caller must have (admin, doctor, patient).
+     * When left empty, the role is taken from the {@code user} path variable.
+     */
+    String role() default "";
+}
@@ -0,0 +1,75 @@
+package com.project.back_end.security;
+
+import com.project.back_end.services.TokenService;
+import io.jsonwebtoken.Claims;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.MethodParameter;
+import org.springframework.lang.NonNull;
+import org.springframework.stereotype.Component;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Map;
+
+/**
+ * Resolves parameters annotated with {@link CurrentPrincipal} from the claims verified by
+ * {@link AuthenticationFilter}. The principal is built from the role and id claims of the token
+ * and memoized on the request, so it is resolved at most once per request and role.
+ */
+@Component
+@RequiredArgsConstructor
+public class CurrentPrincipalArgumentResolver implements HandlerMethodArgumentResolver {
+    private static final String PRINCIPAL_ATTRIBUTE = CurrentPrincipalArgumentResolver.class.getName() + ".principal.";
+
+    private final TokenService tokenService;
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return parameter.hasParameterAnnotation(CurrentPrincipal.class)
+                && AuthPrincipal.class.equals(parameter.getParameterType());
+    }
+
+    @Override
+    public AuthPrincipal resolveArgument(@NonNull MethodParameter parameter, ModelAndViewContainer mavContainer, @NonNull NativeWebRequest webRequest, WebDataBinderFactory binderFactory) {
+        HttpServletRequest request = webRequest.getNativeRequest(HttpServletRequest.class);
+        if (request == null) throw new UnauthorizedException("Invalid or expired token.");
+
+        String role = requiredRole(parameter, request);
+        if (role == null) throw new UnauthorizedException("Invalid or expired token.");
+
+        String attribute = PRINCIPAL_ATTRIBUTE + role;
+        if (request.getAttribute(attribute) instanceof AuthPrincipal principal) return principal;
+
+        Claims claims = (Claims) request.getAttribute(AuthenticationFilter.CLAIMS_ATTRIBUTE);
+
+        AuthPrincipal principal = tokenService.resolvePrincipal(claims, role);
+        if (principal == null) throw new UnauthorizedException("Invalid or expired token.");
+
+        request.setAttribute(attribute, principal);
+        return principal;
+    }
+
+    /**
+     * Determines the role required by the parameter, falling back to the {@code user} path variable.
+     *
+     * @param parameter the annotated method parameter
+     * @param request   the current request
+     * @return the lower-cased role, or null if none is available
+     */
+    @SuppressWarnings("unchecked")
+    private String requiredRole(MethodParameter parameter, HttpServletRequest request) {
+        CurrentPrincipal annotation = parameter.getParameterAnnotation(CurrentPrincipal.class);
+        String role = annotation != null ? annotation.role() : "";
+
+        if (role.isEmpty()) {
+            Map<String, String> pathVariables = (Map<String, String>) request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+            role = pathVariables != null ? pathVariables.get("user") : null;
+        }
+
+        return role != null && !role.isBlank() ? role.toLowerCase() : null;
+    }
+}
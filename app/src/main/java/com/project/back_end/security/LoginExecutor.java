@@ -0,0 +1,97 @@
+package com.project.back_end.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dedicated execution path for CPU-heavy credential work (password hashing and verification).
+ * Runs on a small, bounded pool sized to the CPU count instead of on the shared Tomcat request threads.
+ * Work waits in a bounded queue; when the queue is full the call is rejected immediately, and work
+ * that is still queued when its deadline passes is skipped rather than computed for a caller that gave up.
+ */
+@Component
+public class LoginExecutor {
+    private final ThreadPoolExecutor executor;
+    private final long deadlineMillis;
+
+    private final Counter rejected;
+    private final Counter expired;
+
+    public LoginExecutor(@Value("${auth.login.threads:0}") int threads,
+                         @Value("${auth.login.queue-capacity:64}") int queueCapacity,
+                         @Value("${auth.login.deadline-ms:2000}") long deadlineMillis,
+                         MeterRegistry meterRegistry) {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger counter = new AtomicInteger();
+
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "login-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.deadlineMillis = deadlineMillis;
+
+        this.rejected = meterRegistry.counter("auth.login.rejected", "reason", "saturated");
+        this.expired = meterRegistry.counter("auth.login.rejected", "reason", "deadline");
+        meterRegistry.gauge("auth.login.queue.size", executor, pool -> pool.getQueue().size());
+        meterRegistry.gauge("auth.login.active", executor, ThreadPoolExecutor::getActiveCount);
+    }
+
+    /**
+     * Runs a credential task on the login pool and waits for its result until the deadline.
+     *
+     * @param task the CPU-heavy task, e.g. a password verification
+     * @return the result of the task
+     * @throws LoginRejectedException if the pool is saturated or the deadline passed
+     */
+    public <T> T execute(Callable<T> task) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+
+        Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                // Skip work whose caller has already given up while it was queued
+                if (System.nanoTime() - deadline > 0) throw new TimeoutException();
+                return task.call();
+            });
+        }
+        catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new LoginRejectedException("Too many login attempts, please try again shortly.");
+        }
+
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        }
+        catch (TimeoutException e) {
+            future.cancel(true);
+            expired.increment();
+            throw new LoginRejectedException("Login timed out, please try again shortly.");
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof TimeoutException) {
+                expired.increment();
+                throw new LoginRejectedException("Login timed out, please try again shortly.");
+            }
+            throw new IllegalStateException("Credential check failed", e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LoginRejectedException("Login was interrupted, please try again.");
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,11 @@
+package com.project.back_end.security;
+
+/**
+ * Thrown when a credential check cannot be served because the login pool is saturated
+ * or the check did not finish before its deadline.
+ */
+public class LoginRejectedException extends RuntimeException {
+    public LoginRejectedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,126 @@
+package com.project.back_end.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Salted, adaptive password hashing based on PBKDF2-HMAC-SHA256.
+ * Hashes are stored as {@code pbkdf2$<iterations>$<salt>$<hash>}, so the cost factor can be raised
+ * later and existing hashes upgraded on the next successful login.
+ * Passwords stored before hashing was introduced are still accepted and reported as needing a rehash.
+ */
+@Component
+public class PasswordHasher {
+    private static final String PREFIX = "pbkdf2$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final SecureRandom random = new SecureRandom();
+    private final int iterations;
+
+    public PasswordHasher(@Value("${auth.password.iterations:100000}") int iterations) {
+        this.iterations = iterations;
+    }
+
+    /**
+     * Hashes a raw password with a fresh salt and the configured cost factor.
+     *
+     * @param rawPassword the password as entered by the user
+     * @return the encoded hash
+     */
+    public String hash(String rawPassword) {
+        byte[] salt = new byte[SALT_BYTES];
+        random.nextBytes(salt);
+
+        Base64.Encoder encoder = Base64.getEncoder();
+        return PREFIX + iterations + "$" + encoder.encodeToString(salt) + "$" + encoder.encodeToString(pbkdf2(rawPassword, salt, iterations));
+    }
+
+    /**
+     * Checks a raw password against a stored hash (or a legacy plaintext password).
+     *
+     * @param rawPassword    the password as entered by the user
+     * @param storedPassword the encoded hash or legacy plaintext password
+     * @return true if the password matches, false otherwise
+     */
+    public boolean matches(String rawPassword, String storedPassword) {
+        if (rawPassword == null || storedPassword == null) return false;
+
+        if (!isHashed(storedPassword)) {
+            return MessageDigest.isEqual(rawPassword.getBytes(StandardCharsets.UTF_8), storedPassword.getBytes(StandardCharsets.UTF_8));
+        }
+
+        String[] parts = storedPassword.split("\\$");
+        if (parts.length != 4) return false;
+
+        Base64.Decoder decoder = Base64.getDecoder();
+        byte[] expected = decoder.decode(parts[3]);
+        byte[] actual = pbkdf2(rawPassword, decoder.decode(parts[2]), Integer.parseInt(parts[1]));
+
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    /**
+     * Checks a raw password and, if it matches a legacy or outdated hash, computes its replacement.
+     *
+     * @param rawPassword    the password as entered by the user
+     * @param storedPassword the encoded hash or legacy plaintext password
+     * @return the outcome of the check, with the upgraded hash to store if one is needed
+     */
+    public Verification verify(String rawPassword, String storedPassword) {
+        if (!matches(rawPassword, storedPassword)) return new Verification(false, null);
+
+        return new Verification(true, needsRehash(storedPassword) ? hash(rawPassword) : null);
+    }
+
+    /**
+     * Checks whether a stored password should be re-hashed, either because it is a legacy plaintext
+     * password or because it was hashed with a different cost factor.
+     *
+     * @param storedPassword the encoded hash or legacy plaintext password
+     * @return true if the password should be re-hashed after a successful login
+     */
+    public boolean needsRehash(String storedPassword) {
+        return !isHashed(storedPassword) || !storedPassword.startsWith(PREFIX + iterations + "$");
+    }
+
+    /**
+     * Checks whether a stored password is already hashed by this class.
+     *
+     * @param storedPassword the stored password
+     * @return true if the password is an encoded hash
+     */
+    public boolean isHashed(String storedPassword) {
+        return storedPassword != null && storedPassword.startsWith(PREFIX);
+    }
+
+    /**
+     * Outcome of a password check.
+     *
+     * @param matches      whether the password matched
+     * @param upgradedHash the new hash to store, or null if the stored password is up to date
+     */
+    public record Verification(boolean matches, String upgradedHash) {
+    }
+
+    private static byte[] pbkdf2(String rawPassword, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(rawPassword.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256").generateSecret(spec).getEncoded();
+        }
+        catch (GeneralSecurityException e) {
+            throw new IllegalStateException("PBKDF2WithHmacSHA256 is not available", e);
+        }
+        finally {
+            spec.clearPassword();
+        }
+    }
+}
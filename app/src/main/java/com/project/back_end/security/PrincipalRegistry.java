@@ -0,0 +1,131 @@
+package com.project.back_end.security;
+
+import com.project.back_end.repo.AdminRepository;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.PatientRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * In-memory registry of known principals per role (admin, doctor, patient).
+ * Maps the identifier carried by a token (username or email) to the entity id, so token validation
+ * does not need a database round trip on every request.
+ * Entries expire after a configurable TTL, and writes to doctors or patients invalidate them immediately.
+ * Only existing principals are cached. A lookup only stores its result if no invalidation of the role happened
+ * while it was reading the database, so an invalidation always wins over a concurrent lookup.
+ */
+@Component
+public class PrincipalRegistry {
+    private final Map<String, Function<String, Long>> loaders;
+    private final Map<String, Map<String, Entry>> entries = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final long ttlMillis;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public PrincipalRegistry(AdminRepository adminRepository,
+                             DoctorRepository doctorRepository,
+                             PatientRepository patientRepository,
+                             @Value("${auth.principal-cache.ttl-seconds:300}") long ttlSeconds,
+                             MeterRegistry meterRegistry) {
+        this.loaders = Map.of(
+                "admin", adminRepository::findIdByUsername,
+                "doctor", doctorRepository::findIdByEmail,
+                "patient", patientRepository::findIdByEmail
+        );
+        this.ttlMillis = ttlSeconds * 1000L;
+        this.hits = meterRegistry.counter("auth.principal.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("auth.principal.cache.requests", "result", "miss");
+
+        for (String role : loaders.keySet()) {
+            entries.put(role, new ConcurrentHashMap<>());
+            versions.put(role, new AtomicLong());
+        }
+    }
+
+    /**
+     * Resolves the id of the principal with the given role and identifier.
+     * Unknown principals are not remembered, so an account created on another instance is found right away.
+     *
+     * @param role       the role of the principal (admin, doctor, patient)
+     * @param identifier the username (admin) or email (doctor, patient) of the principal
+     * @return the id of the principal, or null if it does not exist or the role is unknown
+     */
+    public Long resolve(String role, String identifier) {
+        if (role == null || identifier == null) return null;
+
+        String key = role.toLowerCase();
+        Map<String, Entry> roleEntries = entries.get(key);
+        if (roleEntries == null) return null;
+
+        long now = System.currentTimeMillis();
+        Entry entry = roleEntries.get(identifier);
+
+        if (entry != null && entry.expiresAt() > now) {
+            hits.increment();
+            return entry.id();
+        }
+
+        misses.increment();
+        AtomicLong version = versions.get(key);
+        long versionRead = version.get();
+        Long id = loaders.get(key).apply(identifier);
+        if (id == null) return null;
+
+        // Stored under the key's lock, which invalidate() also takes after bumping the version
+        roleEntries.compute(identifier, (k, current) -> version.get() == versionRead ? new Entry(id, now + ttlMillis) : current);
+        return id;
+    }
+
+    /**
+     * Checks whether a principal with the given role and identifier exists.
+     *
+     * @param role       the role of the principal (admin, doctor, patient)
+     * @param identifier the username (admin) or email (doctor, patient) of the principal
+     * @return true if the principal exists, false otherwise
+     */
+    public boolean exists(String role, String identifier) {
+        return resolve(role, identifier) != null;
+    }
+
+    /**
+     * Drops the cached entry of a single principal, e.g. after it was created or deleted.
+     * Inside a transaction this is repeated once it completes, so a lookup that read the row before the
+     * change was committed cannot leave it cached.
+     *
+     * @param role       the role of the principal (admin, doctor, patient)
+     * @param identifier the username (admin) or email (doctor, patient) of the principal
+     */
+    public void invalidate(String role, String identifier) {
+        String key = role.toLowerCase();
+        if (!entries.containsKey(key) || identifier == null) return;
+
+        drop(key, identifier);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    drop(key, identifier);
+                }
+            });
+        }
+    }
+
+    private void drop(String role, String identifier) {
+        versions.get(role).incrementAndGet();
+        entries.get(role).remove(identifier);
+    }
+
+    private record Entry(Long id, long expiresAt) {
+    }
+}
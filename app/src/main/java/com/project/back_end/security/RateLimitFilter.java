@@ -0,0 +1,142 @@
+package com.project.back_end.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.back_end.config.RateLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Servlet filter that limits login and public search endpoints per client IP and route.
+ * Each (client, route) pair is a lock-free token bucket implemented with the generic cell rate
+ * algorithm: a single AtomicLong holds the theoretical arrival time of the next request, so a check
+ * is one compare-and-set with no per-bucket locking. Over-limit requests are answered with 429
+ * before they reach the controllers.
+ * A bucket whose arrival time lies in the past is indistinguishable from a new one, so idle buckets
+ * are evicted periodically without losing any state, which keeps memory bounded.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@RequiredArgsConstructor
+public class RateLimitFilter extends OncePerRequestFilter {
+    private final RateLimitProperties properties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, Limit> limits = new HashMap<>();
+    private final Map<String, AtomicLong> buckets = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() {
+        properties.getRoutes().forEach((name, route) -> {
+            long interval = TimeUnit.MINUTES.toNanos(1) / Math.max(1, route.getRefillPerMinute());
+            long tolerance = interval * Math.max(1, route.getCapacity());
+            limits.put(route.getMethod().toUpperCase() + " " + route.getPath(),
+                    new Limit(name, interval, tolerance, meterRegistry.counter("rate.limit.rejected", "route", name)));
+        });
+        meterRegistry.gaugeMapSize("rate.limit.keys", Tags.empty(), buckets);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(@NonNull HttpServletRequest request) {
+        return !properties.isEnabled() || limits.isEmpty();
+    }
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request, @NonNull HttpServletResponse response, @NonNull FilterChain filterChain) throws ServletException, IOException {
+        Limit limit = limits.get(request.getMethod() + " " + request.getServletPath());
+
+        if (limit != null) {
+            long waitNanos = acquire(request.getRemoteAddr() + "|" + limit.name(), limit);
+            if (waitNanos > 0) {
+                limit.rejected().increment();
+                reject(response, waitNanos);
+                return;
+            }
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * Takes one token from the bucket of the given key.
+     *
+     * @param key   the client and route the request belongs to
+     * @param limit the limit of the route
+     * @return 0 if the request is allowed, otherwise the nanoseconds until it would be
+     */
+    private long acquire(String key, Limit limit) {
+        if (buckets.size() >= properties.getMaxKeys()) sweep();
+
+        long now = System.nanoTime();
+        AtomicLong bucket = buckets.computeIfAbsent(key, k -> new AtomicLong(now));
+
+        while (true) {
+            long arrival = bucket.get();
+            long next = (arrival - now > 0 ? arrival : now) + limit.interval();
+            long excess = next - now - limit.tolerance();
+
+            if (excess > 0) return excess;
+            if (bucket.compareAndSet(arrival, next)) return 0;
+        }
+    }
+
+    /**
+     * Writes the 429 response, telling the client when to retry.
+     *
+     * @param response  the current response
+     * @param waitNanos the nanoseconds until the next request would be allowed
+     */
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        Map<String, String> body = new HashMap<>();
+        body.put("message", "Too many requests. Please try again later.");
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        // Rejected before CORS is applied by Spring MVC, so mirror the allowed origins from WebConfig
+        response.setHeader("Access-Control-Allow-Origin", "*");
+        response.setHeader("Retry-After", String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos) + 1)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+
+    /**
+     * Drops every bucket that has fully refilled. If the limiter still holds more keys than allowed
+     * (e.g. during a scan from many addresses), arbitrary buckets are dropped as well.
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.sweep-interval-ms:60000}")
+    public void sweep() {
+        long now = System.nanoTime();
+        buckets.values().removeIf(bucket -> bucket.get() - now <= 0);
+
+        Iterator<String> iterator = buckets.keySet().iterator();
+        while (buckets.size() >= properties.getMaxKeys() * 9 / 10 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private record Limit(String name, long interval, long tolerance, Counter rejected) {
+    }
+}
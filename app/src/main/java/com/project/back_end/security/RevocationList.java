@@ -0,0 +1,130 @@
+package com.project.back_end.security;
+
+import com.project.back_end.models.RevokedPrincipal;
+import com.project.back_end.repo.RevokedPrincipalRepository;
+import com.project.back_end.services.TokenService;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * In-memory set of revoked principals (deleted doctors, removed patients), checked on every request
+ * without touching the database. A Bloom filter answers the common "not revoked" case with a few bit
+ * probes; the exact set is only consulted when the filter reports a possible match.
+ * The set is backed by the revoked_principal table, loaded at startup and refreshed periodically
+ * so revocations made by other instances are picked up as well.
+ */
+@Component
+@RequiredArgsConstructor
+public class RevocationList {
+    private static final Logger logger = LoggerFactory.getLogger(RevocationList.class);
+
+    // 2^16 bits (8 KB) and 3 probes keep false positives well under 1% for a few thousand revocations
+    private static final int FILTER_BITS = 1 << 16;
+    private static final int PROBES = 3;
+
+    private final RevokedPrincipalRepository revokedPrincipalRepository;
+
+    private final Set<String> revoked = ConcurrentHashMap.newKeySet();
+    private final AtomicLongArray filter = new AtomicLongArray(FILTER_BITS / 64);
+
+    /**
+     * Loads the revocations that can still match a live token.
+     */
+    @PostConstruct
+    void load() {
+        revokedPrincipalRepository.deleteByRevokedAtBefore(LocalDateTime.now().minus(TokenService.TOKEN_VALIDITY));
+        refresh();
+    }
+
+    /**
+     * Adds revocations recorded in the revoked_principal table, including those made by other instances.
+     * Revocations are never lifted, so the filter and the exact set only grow.
+     */
+    @Scheduled(fixedDelayString = "${auth.revocation.refresh-ms:60000}", initialDelayString = "${auth.revocation.refresh-ms:60000}")
+    public void refresh() {
+        try {
+            List<RevokedPrincipal> rows = revokedPrincipalRepository.findAll();
+
+            for (RevokedPrincipal row : rows) {
+                String key = key(row.getRole(), row.getPrincipalId());
+                if (revoked.add(key)) mark(filter, key);
+            }
+        }
+        catch (Exception e) {
+            logger.error("Failed to refresh revoked principals: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Revokes every token issued to the given principal.
+     *
+     * @param role the role of the principal (admin, doctor, patient)
+     * @param id   the id of the principal
+     */
+    public void revoke(String role, Long id) {
+        String normalizedRole = role.toLowerCase();
+        String key = key(normalizedRole, id);
+
+        revoked.add(key);
+        mark(filter, key);
+
+        if (!revokedPrincipalRepository.existsByRoleAndPrincipalId(normalizedRole, id)) {
+            revokedPrincipalRepository.save(new RevokedPrincipal(null, normalizedRole, id, LocalDateTime.now()));
+        }
+    }
+
+    /**
+     * Checks whether the tokens of the given principal have been revoked.
+     *
+     * @param role the role of the principal (admin, doctor, patient)
+     * @param id   the id of the principal
+     * @return true if the principal is revoked, false otherwise
+     */
+    public boolean isRevoked(String role, Long id) {
+        String key = key(role.toLowerCase(), id);
+        return mightContain(filter, key) && revoked.contains(key);
+    }
+
+    private static String key(String role, Long id) {
+        return role + ":" + id;
+    }
+
+    private static void mark(AtomicLongArray bits, String key) {
+        int hash = key.hashCode();
+        int step = spread(hash);
+
+        for (int i = 0; i < PROBES; i++) {
+            int bit = (hash + i * step) & (FILTER_BITS - 1);
+            bits.getAndAccumulate(bit >>> 6, 1L << bit, (current, mask) -> current | mask);
+        }
+    }
+
+    private static boolean mightContain(AtomicLongArray bits, String key) {
+        int hash = key.hashCode();
+        int step = spread(hash);
+
+        for (int i = 0; i < PROBES; i++) {
+            int bit = (hash + i * step) & (FILTER_BITS - 1);
+            if ((bits.get(bit >>> 6) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Derives a second, odd hash from the first one for double hashing.
+     */
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return (h ^ (h >>> 16)) | 1;
+    }
+}
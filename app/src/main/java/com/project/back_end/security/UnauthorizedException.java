@@ -0,0 +1,10 @@
+package com.project.back_end.security;
+
+/**
+ * Thrown when a request does not carry a valid token for the required role.
+ */
+public class UnauthorizedException extends RuntimeException {
+    public UnauthorizedException(String message) {
+        super(message);
+    }
+}
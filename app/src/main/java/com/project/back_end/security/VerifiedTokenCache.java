@@ -0,0 +1,116 @@
+package com.project.back_end.security;
+
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded cache of JWT claims whose signature has already been verified.
+ * Entries are keyed by a SHA-256 digest of the token and expire together with the token itself,
+ * so a cache hit never extends the lifetime of a token.
+ */
+@Component
+public class VerifiedTokenCache {
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final int maxSize;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public VerifiedTokenCache(@Value("${jwt.cache.max-size:10000}") int maxSize, MeterRegistry meterRegistry) {
+        this.maxSize = maxSize;
+        this.hits = meterRegistry.counter("jwt.cache.requests", "result", "hit");
+        this.misses = meterRegistry.counter("jwt.cache.requests", "result", "miss");
+        this.evictions = meterRegistry.counter("jwt.cache.evictions");
+        meterRegistry.gaugeMapSize("jwt.cache.size", Tags.empty(), entries);
+    }
+
+    /**
+     * Returns the verified claims of the token if they are cached and the token has not expired.
+     *
+     * @param token the raw JWT token
+     * @return the cached claims, or null on a miss
+     */
+    public Claims get(String token) {
+        String key = digest(token);
+        Entry entry = entries.get(key);
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        if (entry.expiresAt() <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+
+        hits.increment();
+        return entry.claims();
+    }
+
+    /**
+     * Stores the claims of a token whose signature has just been verified.
+     * Tokens without an expiration are not cached.
+     *
+     * @param token  the raw JWT token
+     * @param claims the verified claims of the token
+     */
+    public void put(String token, Claims claims) {
+        Date expiration = claims.getExpiration();
+        if (expiration == null) return;
+
+        if (entries.size() >= maxSize) evict();
+
+        entries.put(digest(token), new Entry(claims, expiration.getTime()));
+    }
+
+    /**
+     * Makes room for new entries: expired tokens are dropped first, then arbitrary entries
+     * until the cache is back under 90% of its capacity.
+     */
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAt() <= now);
+
+        Iterator<String> iterator = entries.keySet().iterator();
+        while (entries.size() >= maxSize * 9 / 10 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    /**
+     * Computes the cache key of a token, so raw tokens are never kept in memory longer than needed.
+     *
+     * @param token the raw JWT token
+     * @return the Base64 encoded SHA-256 digest of the token
+     */
+    private static String digest(String token) {
+        try {
+            MessageDigest messageDigest = MessageDigest.getInstance("SHA-256");
+            return Base64.getEncoder().encodeToString(messageDigest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private record Entry(Claims claims, long expiresAt) {
+    }
+}
@@ -0,0 +1,321 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.back_end.util.SlotSet;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server-Sent Events feed of appointment and slot changes, replacing polling of the appointment and availability endpoints.
+ * Doctors subscribe to their agenda and receive an {@code appointment} event for every booking, move or cancellation;
+ * patients viewing a doctor receive a {@code slot} event whenever one of the doctor's slots is taken or freed,
+ * and patients on a waitlist receive an {@code offer} event on their own feed when a slot is offered to them.
+ * <p>
+ * Idle subscribers only cost their emitter and an empty queue: connections are held by the servlet container's
+ * async support, not by threads. Events are serialized once and queued per subscriber in a bounded buffer that a
+ * small dispatcher pool drains; a subscriber whose buffer overflows is disconnected instead of slowing down the others,
+ * and its EventSource reconnects and reloads. A periodic heartbeat keeps proxies from closing idle connections and
+ * detects clients that went away.
+ */
+@Component
+public class AgendaFeed {
+    private static final Logger log = LoggerFactory.getLogger(AgendaFeed.class);
+
+    private final ObjectMapper objectMapper;
+    private final SlotHolds slotHolds;
+    private final Map<String, Set<Subscriber>> topics = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ExecutorService dispatcher;
+    private final int maxSubscribers;
+    private final int bufferSize;
+    private final long timeoutMillis;
+
+    private final Counter overflows;
+
+    public AgendaFeed(ObjectMapper objectMapper,
+                      SlotHolds slotHolds,
+                      @Value("${feed.max-subscribers:10000}") int maxSubscribers,
+                      @Value("${feed.buffer-size:64}") int bufferSize,
+                      @Value("${feed.timeout-ms:1800000}") long timeoutMillis,
+                      @Value("${feed.dispatch-threads:2}") int dispatchThreads,
+                      MeterRegistry meterRegistry) {
+        this.objectMapper = objectMapper;
+        this.slotHolds = slotHolds;
+        this.maxSubscribers = maxSubscribers;
+        this.bufferSize = bufferSize;
+        this.timeoutMillis = timeoutMillis;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, runnable -> {
+            Thread thread = new Thread(runnable, "feed-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.overflows = meterRegistry.counter("feed.subscribers.dropped", "reason", "overflow");
+        meterRegistry.gauge("feed.subscribers", subscriberCount);
+    }
+
+    /**
+     * Subscribes to the agenda of a doctor.
+     *
+     * @param doctorId the ID of the doctor
+     * @return the emitter of the subscription, or null if the feed is at capacity
+     */
+    public SseEmitter subscribeAgenda(Long doctorId) {
+        return subscribe(agendaTopic(doctorId));
+    }
+
+    /**
+     * Subscribes to the slot changes of a doctor.
+     *
+     * @param doctorId the ID of the doctor
+     * @return the emitter of the subscription, or null if the feed is at capacity
+     */
+    public SseEmitter subscribeSlots(Long doctorId) {
+        return subscribe(slotTopic(doctorId));
+    }
+
+    /**
+     * Subscribes to the waitlist offers of a patient.
+     *
+     * @param patientId the ID of the patient
+     * @return the emitter of the subscription, or null if the feed is at capacity
+     */
+    public SseEmitter subscribePatient(Long patientId) {
+        return subscribe(patientTopic(patientId));
+    }
+
+    /**
+     * Pushes an appointment change to the doctors' agendas and to the viewers of their slots.
+     * Runs after the waitlist, so a freed slot that was just offered to a waiting patient is not announced as available.
+     *
+     * @param event the committed change
+     */
+    @Order(2)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        Map<String, Object> appointment = new LinkedHashMap<>();
+        appointment.put("type", event.type());
+        appointment.put("appointmentId", event.appointmentId());
+        appointment.put("time", event.time());
+        appointment.put("previousTime", event.previousTime());
+
+        publish(agendaTopic(event.doctorId()), "appointment", appointment);
+        if (event.previousDoctorId() != null && !event.previousDoctorId().equals(event.doctorId())) {
+            publish(agendaTopic(event.previousDoctorId()), "appointment", appointment);
+        }
+
+        if (event.type() == AppointmentChangedEvent.Type.MOVED) {
+            publishSlot(event.previousDoctorId(), event.previousTime(), !slotHolds.isHeldByOther(event.previousDoctorId(), event.previousTime(), null));
+        }
+        publishSlot(event.doctorId(), event.time(), event.type() == AppointmentChangedEvent.Type.CANCELLED
+                && !slotHolds.isHeldByOther(event.doctorId(), event.time(), null));
+    }
+
+    /**
+     * Tells the viewers of a doctor's slots that a slot was taken or freed.
+     *
+     * @param doctorId  the ID of the doctor
+     * @param time      the start of the slot
+     * @param available whether the slot can be booked now
+     */
+    public void publishSlot(Long doctorId, LocalDateTime time, boolean available) {
+        Map<String, Object> slot = new LinkedHashMap<>();
+        slot.put("doctorId", doctorId);
+        slot.put("date", time.toLocalDate());
+        slot.put("time", SlotSet.labelOf(SlotSet.minuteOf(time.toLocalTime())));
+        slot.put("available", available);
+
+        publish(slotTopic(doctorId), "slot", slot);
+    }
+
+    /**
+     * Offers a freed slot to a patient on the waitlist.
+     *
+     * @param patientId        the ID of the patient
+     * @param doctorId         the ID of the doctor
+     * @param time             the start of the slot, held for the patient
+     * @param expiresInSeconds how long the patient has to book the slot
+     */
+    public void publishOffer(Long patientId, Long doctorId, LocalDateTime time, long expiresInSeconds) {
+        Map<String, Object> offer = new LinkedHashMap<>();
+        offer.put("doctorId", doctorId);
+        offer.put("date", time.toLocalDate());
+        offer.put("time", SlotSet.labelOf(SlotSet.minuteOf(time.toLocalTime())));
+        offer.put("expiresInSeconds", expiresInSeconds);
+
+        publish(patientTopic(patientId), "offer", offer);
+    }
+
+    /**
+     * Sends a heartbeat comment to every subscriber.
+     */
+    @Scheduled(fixedDelayString = "${feed.heartbeat-ms:25000}", initialDelayString = "${feed.heartbeat-ms:25000}")
+    public void heartbeat() {
+        Message heartbeat = new Message(null, "heartbeat");
+        topics.values().forEach(subscribers -> subscribers.forEach(subscriber -> subscriber.offer(heartbeat)));
+    }
+
+    private void publish(String topic, String name, Object payload) {
+        Set<Subscriber> subscribers = topics.get(topic);
+        if (subscribers == null || subscribers.isEmpty()) return;
+
+        Message message;
+        try {
+            message = new Message(name, objectMapper.writeValueAsString(payload));
+        }
+        catch (JsonProcessingException e) {
+            log.warn("Failed to serialize {} event: {}", name, e.getMessage());
+            return;
+        }
+
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(message);
+        }
+    }
+
+    private SseEmitter subscribe(String topic) {
+        if (subscriberCount.incrementAndGet() > maxSubscribers) {
+            subscriberCount.decrementAndGet();
+            return null;
+        }
+
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(topic, emitter);
+
+        emitter.onCompletion(subscriber::remove);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(error -> subscriber.remove());
+
+        topics.compute(topic, (key, subscribers) -> {
+            Set<Subscriber> set = subscribers != null ? subscribers : ConcurrentHashMap.newKeySet();
+            set.add(subscriber);
+            return set;
+        });
+        // Flushes the response headers, so the client sees the connection as open right away
+        subscriber.offer(new Message(null, "connected"));
+        return emitter;
+    }
+
+    private static String agendaTopic(Long doctorId) {
+        return "agenda:" + doctorId;
+    }
+
+    private static String slotTopic(Long doctorId) {
+        return "slots:" + doctorId;
+    }
+
+    private static String patientTopic(Long patientId) {
+        return "patient:" + patientId;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        dispatcher.shutdownNow();
+        topics.values().forEach(subscribers -> subscribers.forEach(Subscriber::close));
+    }
+
+    /**
+     * An event serialized once for all subscribers; events without a name are sent as comments.
+     */
+    private record Message(String name, String data) {
+        SseEmitter.SseEventBuilder toEvent() {
+            return name == null
+                    ? SseEmitter.event().comment(data)
+                    : SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON);
+        }
+    }
+
+    private final class Subscriber {
+        private final String topic;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Message> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean removed = new AtomicBoolean();
+
+        private Subscriber(String topic, SseEmitter emitter) {
+            this.topic = topic;
+            this.emitter = emitter;
+        }
+
+        private void offer(Message message) {
+            if (removed.get()) return;
+
+            if (!buffer.offer(message)) {
+                // Too slow to keep up: disconnect rather than buffer without bound
+                overflows.increment();
+                close();
+                return;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                try {
+                    dispatcher.execute(this::drain);
+                }
+                catch (RejectedExecutionException e) {
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        private void drain() {
+            try {
+                Message message;
+                while (!removed.get() && (message = buffer.poll()) != null) {
+                    emitter.send(message.toEvent());
+                }
+            }
+            catch (IOException | IllegalStateException e) {
+                close();
+            }
+            finally {
+                scheduled.set(false);
+                if (!removed.get() && !buffer.isEmpty()) schedule();
+            }
+        }
+
+        private void close() {
+            remove();
+            try {
+                emitter.complete();
+            }
+            catch (IllegalStateException ignored) {
+            }
+        }
+
+        private void remove() {
+            if (!removed.compareAndSet(false, true)) return;
+
+            subscriberCount.decrementAndGet();
+            buffer.clear();
+            topics.computeIfPresent(topic, (key, subscribers) -> {
+                subscribers.remove(this);
+                return subscribers.isEmpty() ? null : subscribers;
+            });
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.project.back_end.services;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by {@link AppointmentService} when an appointment is booked, moved or cancelled.
+ * Listeners receive it once the surrounding transaction has committed.
+ *
+ * @param type             what happened to the appointment
+ * @param appointmentId    the ID of the appointment
+ * @param doctorId         the ID of the doctor the appointment is (or was) booked with
+ * @param time             the start of the appointment; for a cancellation the start of the freed slot
+ * @param previousDoctorId the ID of the doctor before a move, otherwise null
+ * @param previousTime     the start of the appointment before a move, otherwise null
+ */
+public record AppointmentChangedEvent(Type type, Long appointmentId, Long doctorId, LocalDateTime time,
+                                      Long previousDoctorId, LocalDateTime previousTime) {
+
+    public enum Type {
+        BOOKED, MOVED, CANCELLED
+    }
+
+    public static AppointmentChangedEvent booked(Long appointmentId, Long doctorId, LocalDateTime time) {
+        return new AppointmentChangedEvent(Type.BOOKED, appointmentId, doctorId, time, null, null);
+    }
+
+    public static AppointmentChangedEvent moved(Long appointmentId, Long doctorId, LocalDateTime time, Long previousDoctorId, LocalDateTime previousTime) {
+        return new AppointmentChangedEvent(Type.MOVED, appointmentId, doctorId, time, previousDoctorId, previousTime);
+    }
+
+    public static AppointmentChangedEvent cancelled(Long appointmentId, Long doctorId, LocalDateTime time) {
+        return new AppointmentChangedEvent(Type.CANCELLED, appointmentId, doctorId, time, null, null);
+    }
+}
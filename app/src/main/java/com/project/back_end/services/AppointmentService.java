@@ -2,83 +2,133 @@ package com.project.back_end.services;
 
 import com.project.back_end.DTO.AppointmentDTO;
 import com.project.back_end.models.Appointment;
-import com.project.back_end.models.Doctor;
-import com.project.back_end.models.Patient;
 import com.project.back_end.repo.AppointmentRepository;
 import com.project.back_end.repo.DoctorRepository;
 import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.security.AuthPrincipal;
+import com.project.back_end.util.AppointmentCursor;
+import com.project.back_end.util.AppointmentWindow;
+import com.project.back_end.util.KeysetPage;
+import com.project.back_end.util.StripedLocks;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
 
 /**
  * Service class for managing appointments.
  * Provides methods to book, update, cancel, and retrieve appointments.
- * Uses repositories for data access and a token service for authentication.
+ * Uses repositories for data access; callers are identified by the principal resolved for the request.
+ * Every booking, move and cancellation is published as an {@link AppointmentChangedEvent}.
  */
 
 @Service
 @RequiredArgsConstructor
 public class AppointmentService {
     private static final Logger log = LoggerFactory.getLogger(AppointmentService.class);
+    private static final int LOCK_STRIPES = 1024;
+    private static final String RESERVATION_EXPIRED = "Reservation of the appointment time expired, please try again";
+    private static final String SLOT_HELD = "Appointment time is reserved by another patient, please choose another time";
 
     private final AppointmentRepository appointmentRepository;
     private final PatientRepository patientRepository;
     private final DoctorRepository doctorRepository;
-    private final TokenService tokenService;
     private final CentralService centralService;
+    private final OccupancyIndex occupancyIndex;
+    private final BookingLeaseService bookingLeaseService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final SlotHolds slotHolds;
+    private final Waitlist waitlist;
+
+    // Serializes requests for the same (doctor, time) slot within this instance, before its lease is claimed
+    private final StripedLocks slotLocks = new StripedLocks(LOCK_STRIPES);
 
     /**
-     * Book an appointment using the provided Appointment object.
-     * @param appointment The Appointment object to be booked.
-     * @return 1 if booking is successful, 0 otherwise.
+     * Book an appointment using the provided AppointmentDTO object.
+     * The slot is reserved first (see {@link #reserve}), so validation and insert cannot interleave with
+     * another booking of the same slot, on this instance or on another one.
+     * The appointment is always booked for the authenticated patient; a patient ID sent by the client is ignored.
+     * @param appointmentDTO The AppointmentDTO object containing appointment details.
+     * @param patient The authenticated patient.
+     * @return ResponseEntity with a message; 201 if booked, 400 if the doctor or slot is invalid, 409 if the slot is taken.
      */
-    @Transactional
-    public int bookAppointment(Appointment appointment) {
+    public ResponseEntity<Map<String, String>> bookAppointment(AppointmentDTO appointmentDTO, AuthPrincipal patient) {
+        appointmentDTO.setPatientId(patient.id());
         try {
-            appointmentRepository.save(appointment);
-            return 1;
+            return reserve(appointmentDTO.getDoctorId(), appointmentDTO.getAppointmentTime(), lease -> insertAppointment(appointmentDTO, lease));
         }
         catch (Exception e) {
-            return 0;
+            log.error("Appointment booking error: {}", e.getMessage());
+            Map<String, String> response = new HashMap<>();
+            response.put("message", "Internal Server Error");
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
         }
     }
 
     /**
-     * Book an appointment using the provided AppointmentDTO object.
+     * Validate and insert a new appointment while its slot is reserved.
      * @param appointmentDTO The AppointmentDTO object containing appointment details.
-     * @return 1 if booking is successful, 0 otherwise.
+     * @param lease The lease of the slot; its fence is stored with the appointment.
+     * @return ResponseEntity with a message; 201 if booked, 400 if the doctor or slot is invalid, 409 if the slot is taken.
      */
-    @Transactional
-    public int bookAppointment(AppointmentDTO appointmentDTO) {
+    private ResponseEntity<Map<String, String>> insertAppointment(AppointmentDTO appointmentDTO, BookingLeaseService.Lease lease) {
+        Map<String, String> response = new HashMap<>();
+        int valid = centralService.validateAppointment(appointmentDTO);
+
+        if (valid == -1) {
+            response.put("message", "Invalid doctor id");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+        else if (valid == -2) {
+            response.put("message", "Appointment already booked for given time");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        else if (valid == -3) {
+            response.put("message", SLOT_HELD);
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        else if (valid != 1) {
+            response.put("message", "Doctor not available at given time");
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
+        }
+
         Appointment appointment = new Appointment();
         appointment.setDoctor(doctorRepository.findById(appointmentDTO.getDoctorId()).orElse(null));
         appointment.setPatient(patientRepository.findById(appointmentDTO.getPatientId()).orElse(null));
         appointment.setAppointmentTime(appointmentDTO.getAppointmentTime());
         appointment.setStatus(0);
+        appointment.setLeaseFence(lease.fence());
 
-        try {
-            appointmentRepository.save(appointment);
-            return 1;
-        }
-        catch (Exception e) {
-            return 0;
+        if (!bookingLeaseService.runFenced(lease, () -> appointmentRepository.save(appointment))) {
+            response.put("message", RESERVATION_EXPIRED);
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
         }
+        occupancyIndex.markBooked(appointmentDTO.getDoctorId(), appointmentDTO.getAppointmentTime());
+        slotHolds.release(appointmentDTO.getDoctorId(), appointmentDTO.getAppointmentTime(), appointmentDTO.getPatientId());
+        eventPublisher.publishEvent(AppointmentChangedEvent.booked(appointment.getId(), appointmentDTO.getDoctorId(), appointmentDTO.getAppointmentTime()));
+
+        response.put("message", "Appointment Booked Successfully");
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
     /**
      * Update an existing appointment using the provided Appointment object.
+     * The new time is only validated if the appointment is moved, e.g. not for a status change;
+     * a move is validated and saved under the lock of the new slot.
      * @param appointment The Appointment object containing updated details.
      * @return ResponseEntity with a message indicating success or failure.
      */
-    @Transactional
     public ResponseEntity<Map<String, String>> updateAppointment(Appointment appointment) {
         Map<String, String> response = new HashMap<>();
 
@@ -95,23 +145,24 @@ public class AppointmentService {
             return ResponseEntity.status(403).body(response);
         }
 
-        if (centralService.validateAppointment(appointment) != 1) {
-            response.put("message", "Invalid appointment time or conflict");
-            return ResponseEntity.badRequest().body(response);
-        }
+        LocalDateTime previousTime = startOf(existingAppointment);
+        boolean moved = !previousTime.equals(startOf(appointment)) || !Objects.equals(existingAppointment.getDoctor().getId(), appointment.getDoctor().getId());
 
-        appointmentRepository.save(appointment);
+        if (!moved) {
+            appointmentRepository.save(appointment);
+            response.put("message", "Appointment updated successfully");
+            return ResponseEntity.ok(response);
+        }
 
-        response.put("message", "Appointment updated successfully");
-        return ResponseEntity.ok(response);
+        return moveAppointment(appointment, existingAppointment.getDoctor().getId(), previousTime);
     }
 
     /**
      * Update an existing appointment using the provided AppointmentDTO object.
+     * The new time is validated and saved under the lock of the new slot.
      * @param appointmentDTO The AppointmentDTO object containing updated details.
      * @return ResponseEntity with a message indicating success or failure.
      */
-    @Transactional
     public ResponseEntity<Map<String, String>> updateAppointment(AppointmentDTO appointmentDTO) {
         Map<String, String> response = new HashMap<>();
 
@@ -134,34 +185,182 @@ public class AppointmentService {
         }
 
         // Update appointment details
+        LocalDateTime previousTime = startOf(existingAppointment);
         existingAppointment.setAppointmentTime(appointmentDTO.getAppointmentTime());
 
-        if (centralService.validateAppointment(existingAppointment) != 1) {
-            response.put("message", "Invalid appointment time or conflict");
+        return moveAppointment(existingAppointment, existingAppointment.getDoctor().getId(), previousTime);
+    }
+
+    /**
+     * Validate and save an appointment moved to a new slot, holding the lock of the new slot.
+     * @param appointment The appointment with its new doctor and time.
+     * @param previousDoctorId The ID of the doctor the appointment was booked with.
+     * @param previousTime The previous start of the appointment.
+     * @return ResponseEntity with a message; 200 if moved, 400 if the slot is invalid, 409 if the slot is taken.
+     */
+    private ResponseEntity<Map<String, String>> moveAppointment(Appointment appointment, Long previousDoctorId, LocalDateTime previousTime) {
+        LocalDateTime start = startOf(appointment);
+
+        return reserve(appointment.getDoctor().getId(), start, lease -> {
+            Map<String, String> response = new HashMap<>();
+            int valid = centralService.validateAppointment(appointment, previousDoctorId.equals(appointment.getDoctor().getId()) ? previousTime : null);
+
+            if (valid == -2) {
+                response.put("message", "Appointment already booked for given time");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+            else if (valid == -3) {
+                response.put("message", SLOT_HELD);
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+            else if (valid != 1) {
+                response.put("message", "Invalid appointment time or conflict");
+                return ResponseEntity.badRequest().body(response);
+            }
+
+            appointment.setLeaseFence(lease.fence());
+            if (!bookingLeaseService.runFenced(lease, () -> appointmentRepository.save(appointment))) {
+                response.put("message", RESERVATION_EXPIRED);
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+            occupancyIndex.markFree(previousDoctorId, previousTime);
+            occupancyIndex.markBooked(appointment.getDoctor().getId(), start);
+            eventPublisher.publishEvent(AppointmentChangedEvent.moved(appointment.getId(), appointment.getDoctor().getId(), start, previousDoctorId, previousTime));
+
+            response.put("message", "Appointment updated successfully");
+            return ResponseEntity.ok(response);
+        });
+    }
+
+    /**
+     * Reserve a (doctor, time) slot while a booking or move is validated and written.
+     * Within this instance the slot's stripe lock serializes requests for the same slot; across instances
+     * the slot's booking lease does. A slot leased by another instance is rejected right away instead of waited for,
+     * and the unique (doctor, time) constraint remains the last line of defence.
+     * @param doctorId The ID of the doctor.
+     * @param start The start of the slot.
+     * @param work The validation and write to run while the slot is reserved.
+     * @return The response of the work, or 409 if the slot is being booked elsewhere or already booked.
+     */
+    private ResponseEntity<Map<String, String>> reserve(Long doctorId, LocalDateTime start,
+                                                        Function<BookingLeaseService.Lease, ResponseEntity<Map<String, String>>> work) {
+        Map<String, String> response = new HashMap<>();
+        Lock lock = slotLocks.get(new SlotKey(doctorId, start));
+        BookingLeaseService.Lease lease = null;
+
+        lock.lock();
+        try {
+            lease = bookingLeaseService.tryAcquire(doctorId, start);
+            if (lease == null) {
+                response.put("message", "Appointment time is being booked by someone else, please try again shortly");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+
+            return work.apply(lease);
+        }
+        catch (DataIntegrityViolationException e) {
+            response.put("message", "Appointment already booked for given time");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+        }
+        finally {
+            if (lease != null) bookingLeaseService.release(lease);
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Hold a slot for the authenticated patient while they complete the booking, so other patients can
+     * neither see nor book it until the hold is released or expires. Placed under the slot's stripe lock,
+     * so a hold and a booking of the same slot cannot both succeed.
+     * @param doctorId The ID of the doctor.
+     * @param time The start of the slot.
+     * @param patient The authenticated patient.
+     * @return ResponseEntity with a message and the hold lifetime; 201 if held, 400 if the slot is invalid, 409 if it is taken or held.
+     */
+    public ResponseEntity<Map<String, Object>> holdSlot(Long doctorId, LocalDateTime time, AuthPrincipal patient) {
+        Map<String, Object> response = new HashMap<>();
+        Lock lock = slotLocks.get(new SlotKey(doctorId, time));
+
+        lock.lock();
+        try {
+            int valid = centralService.validateSlot(doctorId, time, null, patient.id());
+
+            if (valid == -1 || valid == 0) {
+                response.put("message", "Doctor not available at given time");
+                return ResponseEntity.badRequest().body(response);
+            }
+            else if (valid == -2) {
+                response.put("message", "Appointment already booked for given time");
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+            else if (valid == -3 || slotHolds.hold(doctorId, time, patient.id()) != 1) {
+                response.put("message", SLOT_HELD);
+                return ResponseEntity.status(HttpStatus.CONFLICT).body(response);
+            }
+
+            response.put("message", "Appointment time reserved");
+            response.put("expiresInSeconds", slotHolds.getTtlSeconds());
+            return ResponseEntity.status(HttpStatus.CREATED).body(response);
+        }
+        finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Release a slot held by the authenticated patient, e.g. when the booking form is closed.
+     * @param doctorId The ID of the doctor.
+     * @param time The start of the slot.
+     * @param patient The authenticated patient.
+     */
+    public void releaseSlot(Long doctorId, LocalDateTime time, AuthPrincipal patient) {
+        slotHolds.release(doctorId, time, patient.id());
+    }
+
+    /**
+     * Add the authenticated patient to the waitlist of a doctor's day, to be offered the next slot that frees up.
+     * @param doctorId The ID of the doctor.
+     * @param date The day to wait for.
+     * @param patient The authenticated patient.
+     * @return ResponseEntity with a message and the patient's position; 201 if queued, 400 if the day has passed or the waitlist is full, 404 if the doctor is not found.
+     */
+    public ResponseEntity<Map<String, Object>> joinWaitlist(Long doctorId, LocalDate date, AuthPrincipal patient) {
+        Map<String, Object> response = new HashMap<>();
+        int position = waitlist.join(doctorId, date, patient.id());
+
+        if (position == -1) {
+            response.put("message", "Doctor not found");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(response);
+        }
+        else if (position == 0) {
+            response.put("message", "Waitlist is not available for this day");
             return ResponseEntity.badRequest().body(response);
         }
 
-        appointmentRepository.save(existingAppointment);
-        response.put("message", "Appointment updated successfully");
-        return ResponseEntity.ok(response);
+        response.put("message", "Added to the waitlist");
+        response.put("position", position);
+        return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
     /**
-     * Cancel an appointment by its ID and the patient's token.
+     * Remove the authenticated patient from the waitlist of a doctor's day.
+     * @param doctorId The ID of the doctor.
+     * @param date The day the patient was waiting for.
+     * @param patient The authenticated patient.
+     */
+    public void leaveWaitlist(Long doctorId, LocalDate date, AuthPrincipal patient) {
+        waitlist.leave(doctorId, date, patient.id());
+    }
+
+    /**
+     * Cancel an appointment by its ID on behalf of the authenticated patient.
      * @param id The ID of the appointment to be cancelled.
-     * @param token The token of the patient requesting the cancellation.
+     * @param patient The authenticated patient requesting the cancellation.
      * @return ResponseEntity with a message indicating success or failure.
      */
     @Transactional
-    public ResponseEntity<Map<String, String>> cancelAppointment(long id, String token) {
+    public ResponseEntity<Map<String, String>> cancelAppointment(long id, AuthPrincipal patient) {
         Map<String, String> response = new HashMap<>();
-        String email = tokenService.extractEmail(token);
-        Patient patient = patientRepository.findByEmail(email);
-
-        if (patient == null) {
-            response.put("message", "Patient not found");
-            return ResponseEntity.badRequest().body(response);
-        }
 
         Optional<Appointment> optional = appointmentRepository.findById(id);
         if (optional.isEmpty()) {
@@ -170,76 +369,57 @@ public class AppointmentService {
         }
 
         Appointment appointment = optional.get();
-        if (!Objects.equals(appointment.getPatient().getId(), patient.getId())) {
+        if (!Objects.equals(appointment.getPatient().getId(), patient.id())) {
             response.put("message", "Unauthorized cancellation");
             return ResponseEntity.status(403).body(response);
         }
 
         appointmentRepository.delete(appointment);
+        occupancyIndex.markFree(appointment.getDoctor().getId(), startOf(appointment));
+        eventPublisher.publishEvent(AppointmentChangedEvent.cancelled(appointment.getId(), appointment.getDoctor().getId(), startOf(appointment)));
         response.put("message", "Appointment cancelled successfully");
         return ResponseEntity.ok(response);
     }
 
     /**
-     * Retrieve appointments for a doctor based on patient name and/or a specific date.
+     * Retrieve one page of a doctor's appointments based on patient name and/or a specific date.
      * @param patientName The name of the patient to filter appointments.
      * @param date The date to filter appointments.
-     * @param token The token of the doctor requesting the appointments.
-     * @return List of appointments matching the criteria.
+     * @param doctor The authenticated doctor requesting the appointments.
+     * @param window The date window, cursor and page size.
+     * @return The page of appointments matching the criteria, in chronological order, and the cursor of the next page.
      */
     @Transactional
-    public List<Appointment> getAppointments(String patientName, LocalDate date, String token) {
-        String email = tokenService.extractEmail(token);
-        Doctor doctor = doctorRepository.findByEmail(email);
-
-        if (doctor == null) return new ArrayList<>();
-
-        List<Appointment> appointments;
-
-        if (patientName != null && !patientName.isEmpty() && !patientName.trim().equalsIgnoreCase("null") && date != null) {
-            // If both patientName and date are provided, filter by both
-            // Convert LocalDate to LocalDateTime for start and end of the day
-            // to ensure appointments are filtered correctly within the date range
-            LocalDateTime start = date.atStartOfDay();
-            LocalDateTime end = date.plusDays(1).atStartOfDay();
-
-            appointments = appointmentRepository.findByDoctorIdAndPatient_NameContainingIgnoreCaseAndAppointmentTimeBetweenOrderByAppointmentTime(doctor.getId(), patientName, start, end);
-        }
-        else if (patientName != null && !patientName.isEmpty() && !patientName.trim().equalsIgnoreCase("null")) {
-            // If only patientName is provided, filter by patient name
-            appointments = appointmentRepository.findByDoctorIdAndPatient_NameContainingIgnoreCaseOrderByAppointmentTime(doctor.getId(), patientName);
-        }
-        else if (date != null) {
-
-            // If only date is provided, filter by date
-            // Convert LocalDate to LocalDateTime for start and end of the day
-            // to ensure appointments are filtered correctly within the date range
-            LocalDateTime start = date.atStartOfDay();
-            LocalDateTime end = date.plusDays(1).atStartOfDay();
-
-            appointments = appointmentRepository.findByDoctorIdAndAppointmentTimeBetweenOrderByAppointmentTime(doctor.getId(), start, end);
-        }
-        else {
-            // If neither patientName nor date is provided, return all appointments for the doctor
-            appointments = appointmentRepository.findByDoctorIdOrderByAppointmentTime(doctor.getId());
+    public KeysetPage<AppointmentDTO> getAppointments(String patientName, LocalDate date, AuthPrincipal doctor, AppointmentWindow window) {
+        if (date != null) {
+            // Only the appointments of that day, within the requested window
+            window = window.onDay(date);
         }
 
-        return appointments;
+        String name = patientName != null && !patientName.isEmpty() && !patientName.trim().equalsIgnoreCase("null") ? patientName : null;
+        return window.page(appointmentRepository.findDoctorPage(doctor.id(), null, name, window.afterTime(), window.afterId(), window.to(), window.fetchLimit()),
+                AppointmentService::keyOf);
     }
 
     /**
-     * Retrieve appointments for a patient based on their token.
-     * @param token The token of the patient requesting the appointments.
-     * @return List of appointments for the patient.
+     * Retrieve one page of the authenticated patient's appointments.
+     * @param patient The authenticated patient requesting the appointments.
+     * @param window The date window, cursor and page size.
+     * @return The page of appointments, in chronological order, and the cursor of the next page.
      */
     @Transactional
-    public List<Appointment> getAppointmentsForPatient(String token) {
-        String email = tokenService.extractEmail(token);
-        Patient patient = patientRepository.findByEmail(email);
-
-        if (patient == null) return new ArrayList<>();
+    public KeysetPage<AppointmentDTO> getAppointmentsForPatient(AuthPrincipal patient, AppointmentWindow window) {
+        return window.page(appointmentRepository.findPatientPage(patient.id(), null, null, window.afterTime(), window.afterId(), window.to(), window.fetchLimit()),
+                AppointmentService::keyOf);
+    }
 
-        return appointmentRepository.findByPatientIdOrderByAppointmentTime(patient.getId());
+    /**
+     * Returns the pagination key of an appointment.
+     * @param appointment The appointment.
+     * @return Its (appointment time, id).
+     */
+    public static AppointmentCursor keyOf(AppointmentDTO appointment) {
+        return new AppointmentCursor(appointment.getAppointmentTime(), appointment.getId());
     }
 
     /**
@@ -252,4 +432,16 @@ public class AppointmentService {
     public void changeStatus(int status, long appointmentId) {
         appointmentRepository.updateStatus(status, appointmentId);
     }
+
+    /**
+     * Returns the start of an appointment as date and time.
+     * @param appointment The appointment.
+     * @return The start of the appointment.
+     */
+    private static LocalDateTime startOf(Appointment appointment) {
+        return appointment.getAppointmentDate().atTime(appointment.getAppointmentTime());
+    }
+
+    private record SlotKey(Long doctorId, LocalDateTime start) {
+    }
 }
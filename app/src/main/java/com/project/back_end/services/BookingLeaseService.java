@@ -0,0 +1,162 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.BookingLeaseRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.net.InetAddress;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leases on (doctor, slot) pairs stored in the database, so that only one instance of the application
+ * books a given slot at a time, also when several instances run behind a load balancer.
+ * A lease is claimed with a single conditional update or insert and never waits for another holder:
+ * if the slot is leased by someone else, the claim fails right away.
+ * Every claim increments the fence of the slot; writes are only applied while the lease still carries
+ * the fence it was claimed with, so a holder whose lease expired and was taken over cannot overwrite the new holder.
+ * Lease lifetimes are measured on the database's clock (see {@link BookingLeaseRepository}).
+ */
+@Service
+public class BookingLeaseService {
+    private static final Logger log = LoggerFactory.getLogger(BookingLeaseService.class);
+
+    private final BookingLeaseRepository bookingLeaseRepository;
+    private final TransactionTemplate claimTransaction;
+    private final TransactionTemplate fencedTransaction;
+    private final String holder;
+    private final long ttlNanos;
+
+    private final Counter acquired;
+    private final Counter contended;
+    private final Counter lost;
+
+    public BookingLeaseService(BookingLeaseRepository bookingLeaseRepository,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${booking.lease.holder:}") String holder,
+                               @Value("${booking.lease.ttl-ms:10000}") long ttlMillis,
+                               MeterRegistry meterRegistry) {
+        this.bookingLeaseRepository = bookingLeaseRepository;
+        this.claimTransaction = new TransactionTemplate(transactionManager);
+        this.claimTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.fencedTransaction = new TransactionTemplate(transactionManager);
+        this.holder = holder.isBlank() ? defaultHolder() : holder;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+
+        this.acquired = meterRegistry.counter("booking.lease.requests", "result", "acquired");
+        this.contended = meterRegistry.counter("booking.lease.requests", "result", "contended");
+        this.lost = meterRegistry.counter("booking.lease.requests", "result", "lost");
+    }
+
+    /**
+     * Claims the lease of a slot for this instance.
+     * An expired lease is taken over with a new fence; a slot without a lease gets one with fence 1.
+     *
+     * @param doctorId the ID of the doctor
+     * @param slot     the start of the slot
+     * @return the claimed lease, or null if the slot is currently leased by another holder
+     */
+    public Lease tryAcquire(Long doctorId, LocalDateTime slot) {
+        try {
+            Long fence = claimTransaction.execute(status ->
+                    bookingLeaseRepository.claimExpired(doctorId, slot, holder, ttlNanos) == 1
+                            ? bookingLeaseRepository.findFence(doctorId, slot, holder)
+                            : null);
+
+            if (fence == null) {
+                // No expired lease to take over: either the slot was never leased or it is held right now
+                claimTransaction.executeWithoutResult(status -> bookingLeaseRepository.claimNew(doctorId, slot, holder, ttlNanos));
+                fence = 1L;
+            }
+
+            acquired.increment();
+            return new Lease(doctorId, slot, holder, fence);
+        }
+        catch (DataIntegrityViolationException e) {
+            contended.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Runs a write in a transaction, but only if the lease is still held with its fence.
+     * The lease row stays locked until the transaction commits, so it cannot be taken over halfway through.
+     *
+     * @param lease the lease claimed for the slot
+     * @param write the write to apply, e.g. saving the appointment
+     * @return true if the write was committed, false if the lease had expired or was taken over
+     */
+    public boolean runFenced(Lease lease, Runnable write) {
+        Boolean applied = fencedTransaction.execute(status -> {
+            if (bookingLeaseRepository.confirm(lease.doctorId(), lease.slot(), lease.holder(), lease.fence(), ttlNanos) != 1) {
+                return false;
+            }
+            write.run();
+            return true;
+        });
+
+        if (!Boolean.TRUE.equals(applied)) lost.increment();
+        return Boolean.TRUE.equals(applied);
+    }
+
+    /**
+     * Releases a lease so the slot can be claimed again right away.
+     * Does nothing if the lease was already taken over.
+     *
+     * @param lease the lease to release
+     */
+    public void release(Lease lease) {
+        try {
+            bookingLeaseRepository.release(lease.doctorId(), lease.slot(), lease.holder(), lease.fence());
+        }
+        catch (Exception e) {
+            // The lease expires on its own
+            log.warn("Failed to release booking lease: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Removes the leases of slots that have already started.
+     */
+    @Scheduled(fixedDelayString = "${booking.lease.purge-ms:3600000}", initialDelayString = "${booking.lease.purge-ms:3600000}")
+    public void purge() {
+        try {
+            bookingLeaseRepository.deleteBySlotBefore(LocalDateTime.now());
+        }
+        catch (Exception e) {
+            log.warn("Failed to purge booking leases: {}", e.getMessage());
+        }
+    }
+
+    private static String defaultHolder() {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        }
+        catch (Exception e) {
+            host = "unknown";
+        }
+        return host + "-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    /**
+     * A claimed lease.
+     *
+     * @param doctorId the ID of the doctor
+     * @param slot     the start of the slot
+     * @param holder   the instance holding the lease
+     * @param fence    the fence the lease was claimed with; stored with the appointment
+     */
+    public record Lease(Long doctorId, LocalDateTime slot, String holder, long fence) {
+    }
+}
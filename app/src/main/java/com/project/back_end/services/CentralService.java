@@ -4,6 +4,14 @@ import com.project.back_end.DTO.AppointmentDTO;
 import com.project.back_end.DTO.Login;
 import com.project.back_end.models.*;
 import com.project.back_end.repo.*;
+import com.project.back_end.security.AuthPrincipal;
+import com.project.back_end.security.LoginExecutor;
+import com.project.back_end.security.LoginRejectedException;
+import com.project.back_end.security.PasswordHasher;
+import com.project.back_end.util.AppointmentWindow;
+import com.project.back_end.util.KeysetCursor;
+import com.project.back_end.util.KeysetPage;
+import com.project.back_end.util.SlotSet;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -12,7 +20,7 @@ import org.slf4j.LoggerFactory;
 
 import org.springframework.stereotype.Service;
 
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDateTime;
 import java.util.*;
 
 import org.springframework.http.HttpStatus;
@@ -20,7 +28,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 
 /**
- * CentralService provides various functionalities related to token validation,
+ * CentralService provides various functionalities related to token issuing,
  * admin and patient validation, doctor filtering, appointment validation,
  * and patient appointment filtering.
  */
@@ -36,36 +44,14 @@ public class CentralService {
     private final AppointmentRepository appointmentRepository;
     private final DoctorService doctorService;
     private final PatientService patientService;
-
-    /**
-     * Validates the provided token for the specified user.
-     *
-     * @param token the token to validate
-     * @param user  the user associated with the token
-     * @return a ResponseEntity containing validation result
-     */
-    public ResponseEntity<Map<String, String>> validateToken(String token, String user) {
-        Map<String, String> response = new HashMap<>();
-        try {
-            boolean isValid = tokenService.validateToken(token, user);
-
-            if (!isValid) {
-                response.put("message", "Invalid or expired token.");
-                return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
-            }
-
-            response.put("message", "Token is valid.");
-            return new ResponseEntity<>(response, HttpStatus.OK);
-        }
-        catch (Exception e) {
-            logger.error("Token validation error: {}", e.getMessage());
-            response.put("message", "Token validation failed.");
-            return new ResponseEntity<>(response, HttpStatus.INTERNAL_SERVER_ERROR);
-        }
-    }
+    private final PasswordHasher passwordHasher;
+    private final LoginExecutor loginExecutor;
+    private final ScheduleService scheduleService;
+    private final SlotHolds slotHolds;
 
     /**
      * Validates the provided admin credentials.
+     * The password is verified on the login pool and transparently re-hashed if its cost factor is outdated.
      *
      * @param receivedAdmin the admin credentials to validate
      * @return a ResponseEntity containing the validation result
@@ -76,8 +62,15 @@ public class CentralService {
             Admin admin = adminRepository.findByUsername(receivedAdmin.getUsername());
 
             if (admin != null) {
-                if (admin.getPassword().equals(receivedAdmin.getPassword())) {
-                    String token = tokenService.generateToken(admin.getUsername());
+                PasswordHasher.Verification verification = loginExecutor.execute(() -> passwordHasher.verify(receivedAdmin.getPassword(), admin.getPassword()));
+
+                if (verification.matches()) {
+                    if (verification.upgradedHash() != null) {
+                        admin.setPassword(verification.upgradedHash());
+                        adminRepository.save(admin);
+                    }
+
+                    String token = tokenService.generateToken(admin.getUsername(), "admin", admin.getId());
                     response.put("token", token);
                     return new ResponseEntity<>(response, HttpStatus.OK);
                 }
@@ -91,6 +84,10 @@ public class CentralService {
                 return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
             }
         }
+        catch (LoginRejectedException e) {
+            response.put("message", e.getMessage());
+            return new ResponseEntity<>(response, HttpStatus.SERVICE_UNAVAILABLE);
+        }
         catch (Exception e) {
             logger.error("Admin validation error: {}", e.getMessage());
             response.put("message", "Admin validation failed.");
@@ -104,96 +101,92 @@ public class CentralService {
      * @param name       the name of the doctor
      * @param time       the available time slot
      * @param specialty  the specialty of the doctor
-     * @return a list of filtered doctors
+     * @param cursor     the cursor of the previous page, or null for the first page
+     * @param limit      the maximum number of doctors to return
+     * @return one page of filtered doctors and the cursor of the next page
      */
-    public List<Doctor> filterDoctor(String name, String time, String specialty) {
-        Map <String, Object> doctors;
-        List<Doctor> doctorList = new ArrayList<>();
-
+    public KeysetPage<Doctor> filterDoctor(String name, String time, String specialty, KeysetCursor cursor, int limit) {
         try {
-
-            if (isNotNullOrEmpty(name) && isNotNullOrEmpty(time) && isNotNullOrEmpty(specialty)) {
-                doctors = doctorService.filterDoctorsByNameSpecialtyAndTime(name, specialty, time);
-            }
-            else if (isNotNullOrEmpty(name) && isNotNullOrEmpty(specialty)) {
-                doctors = doctorService.filterDoctorByNameAndSpecialty(name, specialty);
-            }
-            else if (isNotNullOrEmpty(name) && isNotNullOrEmpty(time)) {
-                doctors = doctorService.filterDoctorByNameAndTime(name, time);
-            }
-            else if (isNotNullOrEmpty(specialty) && isNotNullOrEmpty(time)) {
-                doctors = doctorService.filterDoctorByTimeAndSpecialty(specialty, time);
-            }
-            else if (isNotNullOrEmpty(name)) {
-                doctors = doctorService.findDoctorByName(name);
-            }
-            else if (isNotNullOrEmpty(specialty)) {
-                doctors = doctorService.filterDoctorBySpecialty(specialty);
-            }
-            else if (isNotNullOrEmpty(time)) {
-                doctors = doctorService.filterDoctorsByTime(time);
-            }
-            else {
-                doctors = new HashMap<>();
-                doctors.put("doctors", doctorService.getDoctors());
-            }
-
-            doctorList = (List<Doctor>) doctors.getOrDefault("doctors", new ArrayList<>());
+            return doctorService.filterDoctors(
+                    isNotNullOrEmpty(name) ? name : null,
+                    isNotNullOrEmpty(specialty) ? specialty : null,
+                    isNotNullOrEmpty(time) ? time : null,
+                    cursor, limit);
         }
         catch (Exception e) {
             logger.error("Error filtering doctors: {}", e.getMessage());
+            return new KeysetPage<>(new ArrayList<>(), null);
         }
-
-        return doctorList;
     }
 
     /**
      * Validates the provided appointment details.
+     * The appointment must start at one of the free slots of the doctor's schedule for that date.
      *
      * @param appointment the appointment to validate
-     * @return 1 if valid, 0 if invalid, -1 if doctor not found
+     * @return 1 if valid, 0 if the doctor does not offer that slot, -1 if doctor not found, -2 if the slot is already booked,
+     *         -3 if the slot is held by another patient
      */
-    @Transactional
     public int validateAppointment(Appointment appointment) {
-        try {
-            Optional<Doctor> doctorOpt = doctorRepository.findById(appointment.getDoctor().getId());
-            if (doctorOpt.isEmpty()) {
-                return -1;
-            }
-
-            Doctor doctor = doctorOpt.get();
-            List<String> availableSlots = doctorService.getDoctorAvailability(doctor.getId(), appointment.getAppointmentDate());
-
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
+        return validateAppointment(appointment, null);
+    }
 
-            return availableSlots.contains(appointment.getAppointmentTime().format(formatter) + "-" + appointment.getEndTime().format(formatter)) ? 1 : 0;
-        }
-        catch (Exception e) {
-            logger.error("Appointment validation error: {}", e.getMessage());
-            return 0;
-        }
+    /**
+     * Validates a rescheduled appointment.
+     * The appointment must start at one of the free slots of the doctor's schedule for that date;
+     * the slot it is moved away from counts as free.
+     *
+     * @param appointment  the appointment to validate
+     * @param replacedTime the previous start of the appointment (optional)
+     * @return 1 if valid, 0 if the doctor does not offer that slot, -1 if doctor not found, -2 if the slot is already booked,
+     *         -3 if the slot is held by another patient
+     */
+    public int validateAppointment(Appointment appointment, LocalDateTime replacedTime) {
+        Long patientId = appointment.getPatient() != null ? appointment.getPatient().getId() : null;
+        return validateSlot(appointment.getDoctor().getId(), appointment.getAppointmentDate().atTime(appointment.getAppointmentTime()), replacedTime, patientId);
     }
 
     /**
      * Validates the provided appointment details.
+     * The appointment must start at one of the free slots of the doctor's schedule for that date.
      *
      * @param appointmentDTO the appointment DTO to validate
-     * @return 1 if valid, 0 if invalid, -1 if doctor not found
+     * @return 1 if valid, 0 if the doctor does not offer that slot, -1 if doctor not found, -2 if the slot is already booked,
+     *         -3 if the slot is held by another patient
      */
-    @Transactional
     public int validateAppointment(AppointmentDTO appointmentDTO) {
+        return validateSlot(appointmentDTO.getDoctorId(), appointmentDTO.getAppointmentTime(), null, appointmentDTO.getPatientId());
+    }
+
+    /**
+     * Checks a slot against the doctor's schedule, booked appointments and holds.
+     * Booked appointments are read from the database rather than from the {@link OccupancyIndex}, whose days may be
+     * up to a TTL behind bookings, moves and cancellations made by other instances; the cached index only serves listings.
+     *
+     * @param doctorId     the ID of the doctor
+     * @param start        the requested start of the appointment
+     * @param replacedTime the previous start of a rescheduled appointment, treated as free (optional)
+     * @param patientId    the ID of the patient booking; their own hold does not block the slot (optional)
+     * @return 1 if valid, 0 if the doctor does not offer that slot, -1 if doctor not found, -2 if the slot is already booked,
+     *         -3 if the slot is held by another patient
+     */
+    public int validateSlot(Long doctorId, LocalDateTime start, LocalDateTime replacedTime, Long patientId) {
         try {
-            Optional<Doctor> doctorOpt = doctorRepository.findById(appointmentDTO.getDoctorId());
-            if (doctorOpt.isEmpty()) {
-                return -1;
+            // Checked first: answers retries against a held slot from memory, without touching the database
+            if (slotHolds.isHeldByOther(doctorId, start, patientId)) {
+                return -3;
             }
 
-            Doctor doctor = doctorOpt.get();
-            List<String> availableSlots = doctorService.getDoctorAvailability(doctor.getId(), appointmentDTO.getAppointmentDate());
+            if (!doctorRepository.existsById(doctorId)) {
+                return -1;
+            }
 
-            DateTimeFormatter formatter = DateTimeFormatter.ofPattern("HH:mm");
+            int minute = SlotSet.minuteOf(start.toLocalTime());
+            if (start.getSecond() != 0 || start.getNano() != 0 || !scheduleService.getSlots(doctorId, start.toLocalDate()).contains(minute)) {
+                return 0;
+            }
 
-            return availableSlots.contains(appointmentDTO.getAppointmentTime().format(formatter) + "-" + appointmentDTO.getEndTime().format(formatter)) ? 1 : 0;
+            return isBooked(doctorId, start, replacedTime) ? -2 : 1;
         }
         catch (Exception e) {
             logger.error("Appointment validation error: {}", e.getMessage());
@@ -201,6 +194,20 @@ public class CentralService {
         }
     }
 
+    /**
+     * Checks whether an appointment of a doctor overlaps a slot, with one range read on the (doctor, time) unique key.
+     *
+     * @param doctorId     the ID of the doctor
+     * @param start        the start of the slot
+     * @param replacedTime the start of an appointment to ignore, e.g. the one being rescheduled (optional)
+     * @return true if another appointment overlaps the slot
+     */
+    private boolean isBooked(Long doctorId, LocalDateTime start, LocalDateTime replacedTime) {
+        List<Object[]> overlapping = appointmentRepository.findStartsByDoctorIdIn(List.of(doctorId),
+                start.minusMinutes(SlotSet.SLOT_MINUTES - 1), start.plusMinutes(SlotSet.SLOT_MINUTES));
+        return overlapping.stream().anyMatch(row -> !row[1].equals(replacedTime));
+    }
+
     /**
      * Validates the provided patient details.
      *
@@ -221,6 +228,7 @@ public class CentralService {
 
     /**
      * Validates the provided patient login credentials.
+     * The password is verified on the login pool and transparently re-hashed if its cost factor is outdated.
      *
      * @param login the login credentials to validate
      * @return a ResponseEntity containing the validation result
@@ -231,8 +239,15 @@ public class CentralService {
             Patient patient = patientRepository.findByEmail(login.getEmail());
 
             if (patient != null) {
-                if (patient.getPassword().equals(login.getPassword())) {
-                    String token = tokenService.generateToken(patient.getEmail());
+                PasswordHasher.Verification verification = loginExecutor.execute(() -> passwordHasher.verify(login.getPassword(), patient.getPassword()));
+
+                if (verification.matches()) {
+                    if (verification.upgradedHash() != null) {
+                        patient.setPassword(verification.upgradedHash());
+                        patientRepository.save(patient);
+                    }
+
+                    String token = tokenService.generateToken(patient.getEmail(), "patient", patient.getId());
                     response.put("token", token);
                     return new ResponseEntity<>(response, HttpStatus.OK);
                 }
@@ -246,6 +261,10 @@ public class CentralService {
                 return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
             }
         }
+        catch (LoginRejectedException e) {
+            response.put("message", e.getMessage());
+            return new ResponseEntity<>(response, HttpStatus.SERVICE_UNAVAILABLE);
+        }
         catch (Exception e) {
             logger.error("Patient login validation error: {}", e.getMessage());
             response.put("message", "Login failed.");
@@ -258,38 +277,32 @@ public class CentralService {
      *
      * @param name     the name of the doctor
      * @param condition the medical condition
-     * @param token    the authentication token
-     * @return a ResponseEntity containing the filtered appointments
+     * @param patient  the authenticated patient
+     * @param window   the date window, cursor and page size
+     * @return a ResponseEntity containing one page of the filtered appointments and the next cursor
      */
-    public ResponseEntity<Map<String, Object>> filterPatient(String name, String condition, String token) {
+    public ResponseEntity<Map<String, Object>> filterPatient(String name, String condition, AuthPrincipal patient, AppointmentWindow window) {
         Map<String, Object> response = new HashMap<>();
         try {
-            String email = tokenService.extractEmail(token);
             // List<Appointment> appointments;
 
             ResponseEntity<Map<String, Object>> appointmentsResponse;
 
-            Patient patient = patientRepository.findByEmail(email);
-            if (patient == null) {
-                response.put("message", "Patient not found.");
-                return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
-            }
-
             if (isNotNullOrEmpty(name) && isNotNullOrEmpty(condition)) {
                 System.out.println("flag 1");
-                appointmentsResponse = patientService.filterByDoctorNameAndCondition(name, condition, patient.getId());
+                appointmentsResponse = patientService.filterByDoctorNameAndCondition(name, condition, patient.id(), window);
             }
             else if (isNotNullOrEmpty(name)) {
                 System.out.println("flag 2");
-                appointmentsResponse = patientService.filterByDoctor(name, patient.getId());
+                appointmentsResponse = patientService.filterByDoctor(name, patient.id(), window);
             }
             else if (isNotNullOrEmpty(condition)) {
                 System.out.println("flag 3");
-                appointmentsResponse = patientService.filterByCondition(condition, patient.getId());
+                appointmentsResponse = patientService.filterByCondition(condition, patient.id(), window);
             }
             else {
                 System.out.println("flag 4");
-                appointmentsResponse = patientService.filterByPatientId(patient.getId());
+                appointmentsResponse = patientService.filterByPatientId(patient.id(), window);
             }
 
             // response.put("appointments", appointments);
@@ -309,25 +322,23 @@ public class CentralService {
      *
      * @param patientId the ID of the patient
      * @param doctorId  the ID of the doctor
-     * @param token     the authentication token
-     * @return a ResponseEntity containing the filtered appointments
+     * @param doctor    the authenticated doctor
+     * @param window    the date window, cursor and page size
+     * @return a ResponseEntity containing one page of the filtered appointments and the next cursor
      */
-    public ResponseEntity<Map<String, Object>> filterPatient(Long patientId, @PathVariable Long doctorId, String token) {
+    public ResponseEntity<Map<String, Object>> filterPatient(Long patientId, @PathVariable Long doctorId, AuthPrincipal doctor, AppointmentWindow window) {
         Map<String, Object> response = new HashMap<>();
         try {
-            String email = tokenService.extractEmail(token);
-
-            if (doctorRepository.findByEmail(email) == null) {
-                response.put("message", "Doctor not found.");
-                return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
-            }
-
             if (patientRepository.findById(patientId).isEmpty()) {
                 response.put("message", "Patient not found.");
                 return new ResponseEntity<>(response, HttpStatus.NOT_FOUND);
             }
 
-            response.put("appointments", appointmentRepository.findByDoctorIdAndPatientIdOrderByAppointmentTime(doctorId, patientId));
+            KeysetPage<AppointmentDTO> page = window.page(appointmentRepository.findDoctorPage(doctorId, patientId, null,
+                    window.afterTime(), window.afterId(), window.to(), window.fetchLimit()), AppointmentService::keyOf);
+
+            response.put("appointments", page.items());
+            response.put("nextCursor", page.nextCursor());
             return new ResponseEntity<>(response, HttpStatus.OK);
         }
         catch (Exception e) {
@@ -0,0 +1,217 @@
+package com.project.back_end.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.project.back_end.DTO.DoctorDTO;
+import com.project.back_end.models.Doctor;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.util.KeysetCursor;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Immutable, versioned snapshot of the doctor directory, used to serve {@code GET /doctors} and
+ * {@code GET /doctors/{id}} without SQL. Every doctor is serialized to JSON once, when the snapshot is built,
+ * so serving a page only concatenates the prepared fragments.
+ * ETags are derived from the content: each fragment is hashed when it is serialized and a page's ETag hashes the
+ * fragments it contains, so the same content has the same ETag on every instance and across rebuilds.
+ * A rebuild that finds the same content keeps the current snapshot and its version.
+ * The snapshot is replaced as a whole (copy-on-write) by a background rebuild requested after every write;
+ * writes arriving while a rebuild is pending are coalesced into it. As a {@link DoctorProjection} it is also built
+ * at startup and refreshed periodically, which picks up writes made by other instances.
+ * Until the first snapshot exists, the lookup methods return null and callers query the database.
+ */
+@Component
+public class DoctorCatalog implements DoctorProjection {
+    private static final Logger logger = LoggerFactory.getLogger(DoctorCatalog.class);
+
+    private final DoctorRepository doctorRepository;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicLong versions = new AtomicLong();
+    private final AtomicBoolean rebuildPending = new AtomicBoolean();
+    private final ExecutorService rebuilder = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "doctor-catalog");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private volatile Snapshot snapshot;
+
+    public DoctorCatalog(DoctorRepository doctorRepository, ObjectMapper objectMapper) {
+        this.doctorRepository = doctorRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Schedules a rebuild of the snapshot in the background, e.g. after a doctor was saved, updated or deleted.
+     * Requests made while a rebuild is still pending are merged into it.
+     */
+    public void requestRebuild() {
+        if (rebuildPending.compareAndSet(false, true)) {
+            rebuilder.execute(() -> {
+                rebuildPending.set(false);
+                refresh();
+            });
+        }
+    }
+
+    /**
+     * Loads all doctors, serializes them and publishes the result as the new snapshot.
+     * Writes made during a rebuild have requested another one, which runs after it.
+     */
+    @Override
+    public synchronized void refresh() {
+        try {
+            List<Doctor> doctors = doctorRepository.findAllByOrderByNameAscIdAsc();
+
+            List<Entry> entries = new ArrayList<>(doctors.size());
+            Map<Long, Integer> positions = new HashMap<>();
+
+            for (Doctor doctor : doctors) {
+                DoctorDTO doctorDTO = new DoctorDTO();
+                doctorDTO.copy(doctor);
+
+                String json = objectMapper.writeValueAsString(doctorDTO);
+                positions.put(doctor.getId(), entries.size());
+                entries.add(new Entry(doctor.getId(), doctor.getName(), json, digest(json.getBytes(StandardCharsets.UTF_8))));
+            }
+
+            Snapshot current = snapshot;
+            if (current != null && current.doctors().equals(entries)) return;
+
+            snapshot = new Snapshot(versions.incrementAndGet(), Collections.unmodifiableList(entries), Collections.unmodifiableMap(positions));
+        }
+        catch (JsonProcessingException | RuntimeException e) {
+            logger.error("Doctor catalog rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Returns one page of the directory, sorted by name, as a JSON array.
+     *
+     * @param cursor the cursor of the previous page, or null for the first page
+     * @param limit  the maximum number of doctors to return
+     * @return the page, or null if no snapshot has been built yet
+     */
+    public Page page(KeysetCursor cursor, int limit) {
+        Snapshot current = snapshot;
+        if (current == null) return null;
+
+        int from = current.startAfter(cursor);
+        int to = Math.min(from + limit, current.doctors().size());
+
+        StringBuilder json = new StringBuilder("[");
+        ByteBuffer digests = ByteBuffer.allocate((to - from + 1) * Long.BYTES);
+        for (int i = from; i < to; i++) {
+            if (i > from) json.append(',');
+            json.append(current.doctors().get(i).json());
+            digests.putLong(current.doctors().get(i).digest());
+        }
+        json.append(']');
+
+        String nextCursor = null;
+        if (to < current.doctors().size()) {
+            Entry last = current.doctors().get(to - 1);
+            nextCursor = new KeysetCursor(last.name(), last.id()).encode();
+            // The next cursor is sent as a header, so it is part of what the ETag identifies
+            digests.putLong(digest(nextCursor.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        return new Page(json.toString(), nextCursor, etagOf(digest(Arrays.copyOf(digests.array(), digests.position()))));
+    }
+
+    /**
+     * Returns a single doctor as a JSON object.
+     *
+     * @param id the ID of the doctor
+     * @return the doctor, or null if there is no snapshot yet or the doctor is not part of it
+     */
+    public Page doctor(Long id) {
+        Snapshot current = snapshot;
+        if (current == null) return null;
+
+        Integer position = current.positions().get(id);
+        if (position == null) return null;
+
+        Entry entry = current.doctors().get(position);
+        return new Page(entry.json(), null, etagOf(entry.digest()));
+    }
+
+    private static String etagOf(long digest) {
+        return "\"" + String.format("%016x", digest) + "\"";
+    }
+
+    /**
+     * Returns the first 64 bits of the SHA-256 digest of some content.
+     */
+    private static long digest(byte[] content) {
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(content)).getLong();
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuilder.shutdownNow();
+    }
+
+    /**
+     * JSON served from the catalog, with the strong ETag identifying its content.
+     *
+     * @param json       the pre-serialized JSON
+     * @param nextCursor the cursor of the next page, or null if there is none
+     * @param etag       the quoted ETag of the response
+     */
+    public record Page(String json, String nextCursor, String etag) {
+    }
+
+    private record Entry(Long id, String name, String json, long digest) {
+    }
+
+    private record Snapshot(long version, List<Entry> doctors, Map<Long, Integer> positions) {
+        /**
+         * Finds the index of the first doctor after the cursor. The doctor of the cursor is looked up by id,
+         * so the order always matches the one produced by the database; if it no longer exists,
+         * the position is found by comparing names.
+         */
+        int startAfter(KeysetCursor cursor) {
+            if (cursor == null) return 0;
+
+            Integer position = positions.get(cursor.id());
+            if (position != null) return position + 1;
+
+            int low = 0;
+            int high = doctors.size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                Entry entry = doctors.get(middle);
+                int comparison = entry.name().compareTo(cursor.name());
+
+                if (comparison < 0 || (comparison == 0 && entry.id() < cursor.id())) low = middle + 1;
+                else high = middle;
+            }
+            return low;
+        }
+    }
+}
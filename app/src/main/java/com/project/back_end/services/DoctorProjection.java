@@ -0,0 +1,14 @@
+package com.project.back_end.services;
+
+/**
+ * An in-memory view of the doctor table, kept current by DoctorService on every local doctor write and
+ * refreshed from the database by {@link DoctorProjectionRefresher} so writes made by other instances are picked up.
+ */
+public interface DoctorProjection {
+
+    /**
+     * Reloads the view from the database; writes recorded while it reloads must not be lost.
+     * Failures are logged by the implementation, which keeps serving its previous content.
+     */
+    void refresh();
+}
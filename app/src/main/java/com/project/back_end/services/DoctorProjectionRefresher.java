@@ -0,0 +1,37 @@
+package com.project.back_end.services;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Loads every {@link DoctorProjection} while the application starts, before it accepts traffic,
+ * and refreshes them all from the database on one schedule.
+ */
+@Component
+@RequiredArgsConstructor
+public class DoctorProjectionRefresher implements ApplicationRunner {
+    private final List<DoctorProjection> projections;
+
+    /**
+     * Builds the projections before the application reports itself ready.
+     *
+     * @param args the application arguments
+     */
+    @Override
+    public void run(ApplicationArguments args) {
+        refresh();
+    }
+
+    /**
+     * Refreshes every projection in turn.
+     */
+    @Scheduled(initialDelayString = "${doctor.projections.refresh-ms:300000}", fixedDelayString = "${doctor.projections.refresh-ms:300000}")
+    public void refresh() {
+        projections.forEach(DoctorProjection::refresh);
+    }
+}
@@ -0,0 +1,82 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.util.TrigramIndex;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Trigram index over doctor names, used for substring search instead of {@code LIKE '%name%'} scans.
+ * Kept current by DoctorService on save, update and delete, and rebuilt as a {@link DoctorProjection}.
+ * Until the first build completes, {@link #search(String)} returns null and callers query the database;
+ * so it does for names shorter than three characters, and for names matching more doctors than an
+ * {@code id IN (...)} list should hold.
+ */
+@Component
+@RequiredArgsConstructor
+public class DoctorSearchIndex implements DoctorProjection {
+    private static final Logger logger = LoggerFactory.getLogger(DoctorSearchIndex.class);
+
+    private final DoctorRepository doctorRepository;
+    private final TrigramIndex index = new TrigramIndex();
+    private volatile boolean ready;
+
+    @Value("${doctor.search-index.max-candidates:500}")
+    private int maxCandidates;
+
+    /**
+     * Loads the ids and names of all doctors into the index.
+     */
+    @Override
+    public void refresh() {
+        try {
+            index.rebuild(() -> {
+                Map<Long, String> names = new HashMap<>();
+                for (Object[] row : doctorRepository.findAllIdsAndNames()) {
+                    names.put((Long) row[0], (String) row[1]);
+                }
+                return names;
+            });
+            ready = true;
+        }
+        catch (Exception e) {
+            logger.error("Doctor search index rebuild failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Finds the ids of all doctors whose name contains the given text, ignoring case.
+     *
+     * @param name the text to look for
+     * @return the matching ids, or null if the database has to be searched instead
+     */
+    public Set<Long> search(String name) {
+        return ready ? index.search(name, maxCandidates) : null;
+    }
+
+    /**
+     * Indexes a saved or updated doctor.
+     *
+     * @param id   the id of the doctor
+     * @param name the name of the doctor
+     */
+    public void put(Long id, String name) {
+        if (id != null) index.put(id, name);
+    }
+
+    /**
+     * Removes a deleted doctor from the index.
+     *
+     * @param id the id of the doctor
+     */
+    public void remove(Long id) {
+        if (id != null) index.remove(id);
+    }
+}
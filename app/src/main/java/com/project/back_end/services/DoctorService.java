@@ -4,15 +4,29 @@ import com.project.back_end.models.Doctor;
 import com.project.back_end.DTO.Login;
 import com.project.back_end.repo.DoctorRepository;
 import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.repo.DoctorSpecifications;
+import com.project.back_end.security.LoginExecutor;
+import com.project.back_end.security.LoginRejectedException;
+import com.project.back_end.security.PasswordHasher;
+import com.project.back_end.security.PrincipalRegistry;
+import com.project.back_end.security.RevocationList;
 import com.project.back_end.util.HelperUtil;
+import com.project.back_end.util.KeysetCursor;
+import com.project.back_end.util.KeysetPage;
+import com.project.back_end.util.SlotSet;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 // import java.time.format.DateTimeFormatter;
 import java.util.*;
 
@@ -24,30 +38,147 @@ import java.util.*;
 @Service
 @RequiredArgsConstructor
 public class DoctorService {
+    public static final int NEXT_AVAILABLE_DEFAULT_DAYS = 14;
+    public static final int NEXT_AVAILABLE_MAX_DAYS = 60;
+    public static final int NEXT_AVAILABLE_DEFAULT_LIMIT = 10;
+    public static final int NEXT_AVAILABLE_MAX_LIMIT = 50;
+    public static final int MATRIX_DEFAULT_DAYS = 7;
+    public static final int MATRIX_MAX_DAYS = 31;
+    public static final int MATRIX_MAX_DOCTORS = KeysetCursor.MAX_LIMIT;
+
     private final DoctorRepository doctorRepository;
     private final AppointmentRepository appointmentRepository;
     private final TokenService tokenService;
+    private final PrincipalRegistry principalRegistry;
+    private final RevocationList revocationList;
+    private final PasswordHasher passwordHasher;
+    private final LoginExecutor loginExecutor;
+    private final DoctorSearchIndex doctorSearchIndex;
+    private final DoctorCatalog doctorCatalog;
+    private final SpecialtyFacets specialtyFacets;
+    private final ScheduleService scheduleService;
+    private final OccupancyIndex occupancyIndex;
+    private final SlotHolds slotHolds;
 
     /**
      * Retrieves the availability of a doctor for a specific date.
-     * Returns a list of available time slots after filtering out booked slots.
+     * Returns the free time slots of the doctor's schedule for that date, after removing booked slots and slots currently held by a patient.
      *
      * @param doctorId the ID of the doctor
      * @param date     the date for which availability is checked
      * @return a list of available time slots or an empty list if the doctor is not found
      */
-    @Transactional
     public List<String> getDoctorAvailability(Long doctorId, LocalDate date) {
-        Optional<Doctor> doctorOpt = doctorRepository.findById(doctorId);
+        return getOpenSlots(doctorId, date).toLabels();
+    }
+
+    /**
+     * Computes the slots of a doctor on a date that can be offered to patients: the free slots minus the slots
+     * currently held by a patient who is completing a booking.
+     *
+     * @param doctorId the ID of the doctor
+     * @param date     the date
+     * @return the open slots
+     */
+    public SlotSet getOpenSlots(Long doctorId, LocalDate date) {
+        SlotSet open = getFreeSlots(doctorId, date);
+        slotHolds.removeHeld(doctorId, date, open);
+        return open;
+    }
+
+    /**
+     * Computes the free slots of a doctor on a date for listings: the slots of the schedule minus the booked appointments
+     * of the {@link OccupancyIndex}. Bookings are validated against the database instead (see {@link CentralService#validateSlot}).
+     *
+     * @param doctorId the ID of the doctor
+     * @param date     the date
+     * @return the free slots
+     */
+    public SlotSet getFreeSlots(Long doctorId, LocalDate date) {
+        SlotSet free = scheduleService.getSlots(doctorId, date).copy();
+        free.removeOverlapping(occupancyIndex.getBooked(doctorId, date));
+        return free;
+    }
+
+    /**
+     * Computes the free slots of several doctors over a range of dates, e.g. for a page of doctor cards.
+     * Schedules and booked slots of all doctors are loaded in bulk first, so the whole matrix costs a handful
+     * of queries instead of a few per doctor and day.
+     *
+     * @param doctorIds the IDs of the doctors (at most {@value #MATRIX_MAX_DOCTORS})
+     * @param from      the first date
+     * @param days      the number of days (at most {@value #MATRIX_MAX_DAYS})
+     * @return per doctor ID, the free slots of every day; unknown doctors have no free slots
+     */
+    public Map<Long, AvailabilityRow> getAvailabilityMatrix(List<Long> doctorIds, LocalDate from, int days) {
+        int count = Math.max(1, Math.min(days, MATRIX_MAX_DAYS));
+        LocalDate last = from.plusDays(count - 1);
+        Set<Long> ids = new LinkedHashSet<>(doctorIds);
+
+        scheduleService.preload(ids, from, last);
+        occupancyIndex.preload(ids, from, last);
+
+        Map<Long, AvailabilityRow> matrix = new LinkedHashMap<>();
+        for (Long doctorId : ids) {
+            int[] hours = new int[count];
+            int[] first = new int[count];
+            for (int day = 0; day < count; day++) {
+                SlotSet open = getOpenSlots(doctorId, from.plusDays(day));
+                hours[day] = open.hourMask();
+                first[day] = open.first();
+            }
+            matrix.put(doctorId, new AvailabilityRow(hours, first));
+        }
+        return matrix;
+    }
 
-        if (doctorOpt.isEmpty()) return Collections.emptyList();
+    /**
+     * Finds the earliest free slots of any doctor of a specialty.
+     * The schedules and booked slots of all doctors of the specialty are loaded in bulk for the whole horizon;
+     * the per-doctor streams of free slots are then merged in time order with a priority queue, which stops
+     * as soon as enough slots are found. Slots that already started are skipped.
+     *
+     * @param specialty the specialty
+     * @param from      the first date to search (optional, today if absent or in the past)
+     * @param days      the number of days to search (at most {@value #NEXT_AVAILABLE_MAX_DAYS})
+     * @param limit     the maximum number of slots to return (at most {@value #NEXT_AVAILABLE_MAX_LIMIT})
+     * @return the free slots in time order, ties ordered by doctor ID
+     */
+    public List<AvailableSlot> findNextAvailable(String specialty, LocalDate from, int days, int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate first = from == null || from.isBefore(now.toLocalDate()) ? now.toLocalDate() : from;
+        LocalDate last = first.plusDays(Math.max(1, Math.min(days, NEXT_AVAILABLE_MAX_DAYS)) - 1);
+        int max = Math.max(1, Math.min(limit, NEXT_AVAILABLE_MAX_LIMIT));
+
+        Map<Long, String> doctors = new HashMap<>();
+        for (Object[] row : doctorRepository.findIdsAndNamesBySpecialty(HelperUtil.titleCase(specialty.trim()))) {
+            doctors.put((Long) row[0], (String) row[1]);
+        }
+        if (doctors.isEmpty()) return List.of();
+
+        scheduleService.preload(doctors.keySet(), first, last);
+        occupancyIndex.preload(doctors.keySet(), first, last);
 
-        return doctorOpt.get().getAvailableTimes();
+        PriorityQueue<SlotStream> queue = new PriorityQueue<>(
+                Comparator.comparing((SlotStream stream) -> stream.current).thenComparing(stream -> stream.doctorId));
+        for (Long doctorId : doctors.keySet()) {
+            SlotStream stream = new SlotStream(doctorId, first, last, now);
+            if (stream.advance()) queue.add(stream);
+        }
+
+        List<AvailableSlot> slots = new ArrayList<>(max);
+        while (!queue.isEmpty() && slots.size() < max) {
+            SlotStream stream = queue.poll();
+            slots.add(new AvailableSlot(stream.doctorId, doctors.get(stream.doctorId), stream.current.toLocalDate(),
+                    SlotSet.labelOf(SlotSet.minuteOf(stream.current.toLocalTime()))));
+            if (stream.advance()) queue.add(stream);
+        }
+        return slots;
     }
 
     /**
      * Saves a new doctor to the repository.
-     * Validates the doctor's email and formats the name and specialty.
+     * Validates the doctor's email, formats the name and specialty, and hashes the password.
      *
      * @param doctor the doctor to be saved
      * @return 1 if saved successfully, -1 if email already exists, 0 if an error occurs
@@ -57,12 +188,26 @@ public class DoctorService {
             doctor.setName(HelperUtil.titleCase(doctor.getName()));
             doctor.setSpecialty(HelperUtil.titleCase(doctor.getSpecialty()));
             doctor.setEmail(doctor.getEmail().toLowerCase());
+            // A new doctor has no weekly schedule yet
+            doctor.applyAvailabilityMask(HelperUtil.hourMask(doctor.getAvailableTimes()));
 
             if (doctorRepository.findByEmail(doctor.getEmail()) != null) return -1;
 
+            // Hashed only once the email is known to be free, so duplicate sign-ups do not cost a key derivation
+            String rawPassword = doctor.getPassword();
+            doctor.setPassword(loginExecutor.execute(() -> passwordHasher.hash(rawPassword)));
+
             doctorRepository.save(doctor);
+            principalRegistry.invalidate("doctor", doctor.getEmail());
+            doctorSearchIndex.put(doctor.getId(), doctor.getName());
+            specialtyFacets.put(doctor.getId(), doctor.getSpecialty(), doctor.getAvailabilityMask());
+            doctorCatalog.requestRebuild();
             return 1;
         }
+        catch (LoginRejectedException e) {
+            // Answered with 503 by AuthenticationFailed, as for a saturated login
+            throw e;
+        }
         catch (Exception e) {
             return 0;
         }
@@ -70,15 +215,33 @@ public class DoctorService {
 
     /**
      * Updates an existing doctor's information.
-     * Validates the doctor's existence before updating.
+     * Validates the doctor's existence before updating, formats the name and specialty as {@link #saveDoctor} does,
+     * and hashes the given password.
      *
      * @param doctor the doctor with updated information
      * @return 1 if updated successfully, -1 if doctor does not exist, 0 if an error occurs
      */
     public int updateDoctor(Doctor doctor) {
-        if (!doctorRepository.existsById(doctor.getId())) return -1;
+        Optional<Doctor> existing = doctorRepository.findById(doctor.getId());
+        if (existing.isEmpty()) return -1;
+
+        // Always hashed: a value that looks like a stored hash still comes from the client and is its password
+        String rawPassword = doctor.getPassword();
+        doctor.setPassword(loginExecutor.execute(() -> passwordHasher.hash(rawPassword)));
+
+        String previousEmail = existing.get().getEmail();
         try {
+            doctor.setName(HelperUtil.titleCase(doctor.getName()));
+            doctor.setSpecialty(HelperUtil.titleCase(doctor.getSpecialty()));
+            doctor.setEmail(doctor.getEmail().toLowerCase());
+            doctor.applyAvailabilityMask(scheduleService.availabilityMask(doctor.getId(), doctor.getAvailableTimes()));
             doctorRepository.save(doctor);
+            scheduleService.invalidate(doctor.getId());
+            principalRegistry.invalidate("doctor", previousEmail);
+            principalRegistry.invalidate("doctor", doctor.getEmail());
+            doctorSearchIndex.put(doctor.getId(), doctor.getName());
+            specialtyFacets.put(doctor.getId(), doctor.getSpecialty(), doctor.getAvailabilityMask());
+            doctorCatalog.requestRebuild();
             return 1;
         } catch (Exception e) {
             return 0;
@@ -86,28 +249,37 @@ public class DoctorService {
     }
 
     /**
-     * Retrieves all doctors from the repository, sorted by name.
+     * Retrieves one page of doctors, sorted by name.
      *
-     * @return a list of all doctors
+     * @param cursor the cursor of the previous page, or null for the first page
+     * @param limit  the maximum number of doctors to return
+     * @return the page of doctors and the cursor of the next page
      */
     @Transactional
-    public List<Doctor> getDoctors() {
-        // return doctorRepository.findAll();
-        return doctorRepository.findAll(Sort.by("name").ascending());
+    public KeysetPage<Doctor> getDoctors(KeysetCursor cursor, int limit) {
+        return findPage(Specification.where(null), cursor, limit);
     }
 
     /**
      * Deletes a doctor by ID.
-     * Also deletes all appointments associated with the doctor.
+     * Also deletes all appointments associated with the doctor and revokes the doctor's tokens.
      *
      * @param id the ID of the doctor to be deleted
      * @return 1 if deleted successfully, -1 if doctor does not exist, 0 if an error occurs
      */
     public int deleteDoctor(long id) {
-        if (!doctorRepository.existsById(id)) return -1;
+        Optional<Doctor> existing = doctorRepository.findById(id);
+        if (existing.isEmpty()) return -1;
         try {
             appointmentRepository.deleteAllByDoctorId(id);
+            occupancyIndex.invalidate(id);
+            scheduleService.deleteSchedule(id);
             doctorRepository.deleteById(id);
+            revocationList.revoke("doctor", id);
+            principalRegistry.invalidate("doctor", existing.get().getEmail());
+            doctorSearchIndex.remove(id);
+            specialtyFacets.remove(id);
+            doctorCatalog.requestRebuild();
             return 1;
         } catch (Exception e) {
             return 0;
@@ -116,7 +288,8 @@ public class DoctorService {
 
     /**
      * Validates a doctor's login credentials.
-     * Checks if the email exists and if the password matches.
+     * Checks if the email exists and if the password matches, verifying it on the login pool.
+     * Outdated password hashes are transparently re-hashed.
      * Generates a token if validation is successful.
      *
      * @param login the login credentials
@@ -126,150 +299,165 @@ public class DoctorService {
         Map<String, String> response = new HashMap<>();
         Doctor doctor = doctorRepository.findByEmail(login.getEmail());
 
-        if (doctor == null || !doctor.getPassword().equals(login.getPassword())) {
+        if (doctor == null) {
             response.put("error", "Invalid email or password");
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
         }
 
-        String token = tokenService.generateToken(doctor.getEmail());
+        PasswordHasher.Verification verification;
+        try {
+            verification = loginExecutor.execute(() -> passwordHasher.verify(login.getPassword(), doctor.getPassword()));
+        }
+        catch (LoginRejectedException e) {
+            response.put("error", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(response);
+        }
+
+        if (!verification.matches()) {
+            response.put("error", "Invalid email or password");
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(response);
+        }
+
+        if (verification.upgradedHash() != null) {
+            doctor.setPassword(verification.upgradedHash());
+            doctorRepository.save(doctor);
+        }
+
+        String token = tokenService.generateToken(doctor.getEmail(), "doctor", doctor.getId());
         response.put("token", token);
         return ResponseEntity.ok(response);
     }
 
     /**
-     * Finds a doctor by name using a case-insensitive search.
-     * Returns a map containing the list of doctors matching the name.
-     *
-     * @param name the name of the doctor to search for
-     * @return a map containing the list of doctors
-     */
-    @Transactional
-    public Map<String, Object> findDoctorByName(String name) {
-        Map<String, Object> res = new HashMap<>();
-        res.put("doctors", doctorRepository.findByNameLikeOrderByName(name));
-        return res;
-    }
-
-    /**
-     * Filters doctors by name, specialty, and available time (AM/PM).
-     * Returns a map containing the filtered list of doctors.
+     * Filters doctors by name, specialty, and available time (AM/PM) in a single query.
+     * Names are resolved to candidate ids through the trigram index when it can answer them, and otherwise
+     * matched with {@code LIKE}; AM/PM is checked against the precomputed AM/PM flags.
+     * Criteria that are null are ignored.
      *
-     * @param name      the name of the doctor
+     * @param name      the text the doctor's name must contain
      * @param specialty the specialty of the doctor
      * @param amOrPm    the time period (AM/PM)
-     * @return a map containing the filtered list of doctors
+     * @param cursor    the cursor of the previous page, or null for the first page
+     * @param limit     the maximum number of doctors to return
+     * @return the page of doctors matching the criteria, sorted by name, and the cursor of the next page
      */
     @Transactional
-    public Map<String, Object> filterDoctorsByNameSpecialtyAndTime(String name, String specialty, String amOrPm) {
-        List<Doctor> doctors = doctorRepository.findByNameContainingIgnoreCaseAndSpecialtyIgnoreCaseOrderByName(name, specialty);
-        Map<String, Object> map = new HashMap<>();
-        map.put("doctors", filterDoctorByTime(doctors, amOrPm));
-        return map;
+    public KeysetPage<Doctor> filterDoctors(String name, String specialty, String amOrPm, KeysetCursor cursor, int limit) {
+        Set<Long> ids = name != null ? doctorSearchIndex.search(name) : null;
+        if (ids != null && ids.isEmpty()) return new KeysetPage<>(List.of(), null);
+
+        String normalizedSpecialty = specialty != null ? HelperUtil.titleCase(specialty.trim()) : null;
+
+        return findPage(DoctorSpecifications.filter(ids, name, normalizedSpecialty, amOrPm), cursor, limit);
     }
 
     /**
-     * Filters doctors by name and available time (AM/PM).
-     * Returns a map containing the filtered list of doctors.
+     * Runs a (name, id) keyset query, fetching one extra row to know whether another page follows.
+     * The available times of the page are loaded in one batched query while the transaction is open,
+     * as a fetch join would make the database return the collection rows and defeat the row limit.
      *
-     * @param name   the name of the doctor
-     * @param amOrPm the time period (AM/PM)
-     * @return a map containing the filtered list of doctors
+     * @param specification the filter of the query
+     * @param cursor        the cursor of the previous page, or null for the first page
+     * @param limit         the maximum number of doctors to return
+     * @return the page of doctors and the cursor of the next page
      */
-    @Transactional
-    public Map<String, Object> filterDoctorByNameAndTime(String name, String amOrPm) {
-        List<Doctor> doctors = doctorRepository.findByNameLikeOrderByName(name);
+    private KeysetPage<Doctor> findPage(Specification<Doctor> specification, KeysetCursor cursor, int limit) {
+        List<Doctor> doctors = doctorRepository.findBy(specification.and(DoctorSpecifications.after(cursor)),
+                query -> query.sortBy(Sort.by("name", "id").ascending()).limit(limit + 1).all());
+
+        List<Doctor> page = doctors.size() <= limit ? doctors : doctors.subList(0, limit);
+        // Initializing one collection loads those of the other doctors too, up to hibernate.default_batch_fetch_size at a time
+        page.forEach(doctor -> Hibernate.initialize(doctor.getAvailableTimes()));
+        if (doctors.size() <= limit) return new KeysetPage<>(doctors, null);
 
-        Map<String, Object> map = new HashMap<>();
-        map.put("doctors", filterDoctorByTime(doctors, amOrPm));
-        return map;
+        Doctor last = page.get(limit - 1);
+        return new KeysetPage<>(page, new KeysetCursor(last.getName(), last.getId()).encode());
     }
 
     /**
-     * Filters doctors by name and specialty.
-     * Returns a map containing the filtered list of doctors.
-     *
-     * @param name      the name of the doctor
-     * @param specialty the specialty of the doctor
-     * @return a map containing the filtered list of doctors
+     * Computes the availability bitmask of doctors stored before the column existed.
      */
+    @EventListener(ApplicationReadyEvent.class)
     @Transactional
-    public Map<String, Object> filterDoctorByNameAndSpecialty(String name, String specialty) {
-        Map<String, Object> map = new HashMap<>();
-        map.put("doctors", doctorRepository.findByNameContainingIgnoreCaseAndSpecialtyIgnoreCaseOrderByName(name, specialty));
-        return map;
-    }
+    public void backfillAvailabilityMasks() {
+        List<Doctor> doctors = doctorRepository.findByAvailabilityMaskIsNull();
 
-/**
-     * Filters doctors by specialty and available time (AM/PM).
-     * Returns a map containing the filtered list of doctors.
-     *
-     * @param specialty the specialty of the doctor
-     * @param amOrPm    the time period (AM/PM)
-     * @return a map containing the filtered list of doctors
-     */
-    @Transactional
-    public Map<String, Object> filterDoctorByTimeAndSpecialty(String specialty, String amOrPm) {
-        List<Doctor> doctors = doctorRepository.findBySpecialtyIgnoreCaseOrderByName(specialty);
-        Map<String, Object> map = new HashMap<>();
-        map.put("doctors", filterDoctorByTime(doctors, amOrPm));
-        return map;
+        for (Doctor doctor : doctors) {
+            doctor.applyAvailabilityMask(scheduleService.availabilityMask(doctor.getId(), doctor.getAvailableTimes()));
+        }
+        doctorRepository.saveAll(doctors);
     }
 
     /**
-     * Filters doctors by specialty.
-     * Returns a map containing the list of doctors matching the specialty.
+     * Finds a doctor by ID.
+     * Throws an exception if the doctor is not found.
      *
-     * @param specialty the specialty of the doctor
-     * @return a map containing the list of doctors
+     * @param id the ID of the doctor
+     * @return the doctor with the specified ID
      */
-    @Transactional
-    public Map<String, Object> filterDoctorBySpecialty(String specialty) {
-        Map<String, Object> map = new HashMap<>();
-        map.put("doctors", doctorRepository.findBySpecialtyIgnoreCaseOrderByName(specialty));
-        return map;
+    public Doctor findDoctorById(Long id) {
+        return doctorRepository.findWithAvailableTimesById(id).orElseThrow(() -> new RuntimeException("Doctor not found"));
     }
 
     /**
-     * Filters doctors by available time (AM/PM).
-     * Returns a map containing the list of doctors available during the specified time period.
+     * A free slot found by {@link #findNextAvailable}.
      *
-     * @param amOrPm the time period (AM/PM)
-     * @return a map containing the list of doctors
+     * @param doctorId   the ID of the doctor
+     * @param doctorName the name of the doctor
+     * @param date       the date of the slot
+     * @param time       the slot label, e.g. "09:00-10:00"
      */
-    @Transactional
-    public Map<String, Object> filterDoctorsByTime(String amOrPm) {
-        List<Doctor> doctors = doctorRepository.findAll();
-        Map<String, Object> map = new HashMap<>();
-        map.put("doctors", filterDoctorByTime(doctors, amOrPm));
-        return map;
+    public record AvailableSlot(Long doctorId, String doctorName, LocalDate date, String time) {
     }
 
     /**
-     * Filters doctors by name, specialty, and available time (AM/PM).
-     * Returns a list of doctors matching the criteria.
+     * The free slots of one doctor over the days of {@link #getAvailabilityMatrix}, one entry per day.
      *
-     * @param name      the name of the doctor
-     * @param specialty the specialty of the doctor
-     * @param amOrPm    the time period (AM/PM)
-     * @return a list of doctors matching the criteria
+     * @param hours the hour bitmask of the free slots (see {@link SlotSet#hourMask()})
+     * @param first the start of the earliest free slot in minutes since midnight, or -1 if there is none
      */
-    private List<Doctor> filterDoctorByTime(List<Doctor> doctors, String amOrPm) {
-        return doctors.stream().filter(doctor ->
-                doctor.getAvailableTimes().stream().anyMatch(time ->
-                        (amOrPm.equalsIgnoreCase("AM") && time.compareTo("12:00") < 0) ||
-                                (amOrPm.equalsIgnoreCase("PM") && time.compareTo("12:00") >= 0)
-                )
-        ).toList();
+    public record AvailabilityRow(int[] hours, int[] first) {
     }
 
     /**
-     * Finds a doctor by ID.
-     * Throws an exception if the doctor is not found.
-     *
-     * @param id the ID of the doctor
-     * @return the doctor with the specified ID
+     * The free slots of one doctor in time order, computed one day at a time as the merge reaches it.
      */
-    public Doctor findDoctorById(Long id) {
-        return doctorRepository.findById(id).orElseThrow(() -> new RuntimeException("Doctor not found"));
+    private final class SlotStream {
+        private final Long doctorId;
+        private final LocalDate last;
+        private final LocalDateTime notBefore;
+        private LocalDate date;
+        private int[] starts = new int[0];
+        private int position;
+        private LocalDateTime current;
+
+        private SlotStream(Long doctorId, LocalDate first, LocalDate last, LocalDateTime notBefore) {
+            this.doctorId = doctorId;
+            this.last = last;
+            this.notBefore = notBefore;
+            this.date = first.minusDays(1);
+        }
+
+        /**
+         * Moves to the next free slot.
+         *
+         * @return false if there are no more free slots within the horizon
+         */
+        private boolean advance() {
+            while (true) {
+                while (position < starts.length) {
+                    LocalDateTime start = date.atStartOfDay().plusMinutes(starts[position++]);
+                    if (start.isAfter(notBefore)) {
+                        current = start;
+                        return true;
+                    }
+                }
+                if (!date.isBefore(last)) return false;
+
+                date = date.plusDays(1);
+                starts = getOpenSlots(doctorId, date).starts();
+                position = 0;
+            }
+        }
     }
 }
@@ -0,0 +1,219 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Appointment;
+import com.project.back_end.repo.AppointmentRepository;
+import com.project.back_end.util.SlotSet;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of the booked appointment start times per (doctor, date), used to compute free slots
+ * without querying appointments on every availability request.
+ * A day is loaded lazily from the database the first time it is needed and then kept current by the
+ * booking, update and cancellation paths. Changes are applied once the surrounding transaction commits;
+ * changes that arrive while a day is being loaded are replayed on top of the loaded state.
+ * Days expire after a TTL, so bookings made by other instances are picked up as well; until then a day may be stale,
+ * which is why the index only serves availability listings and never decides whether a booking is accepted.
+ */
+@Component
+public class OccupancyIndex {
+    private final AppointmentRepository appointmentRepository;
+    private final Map<DayKey, Day> days = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMillis;
+
+    public OccupancyIndex(AppointmentRepository appointmentRepository,
+                          @Value("${occupancy.cache.max-size:10000}") int maxSize,
+                          @Value("${occupancy.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.appointmentRepository = appointmentRepository;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000L;
+    }
+
+    /**
+     * Returns the start minutes of the appointments booked with a doctor on a date.
+     *
+     * @param doctorId the ID of the doctor
+     * @param date     the date
+     * @return a copy of the booked start minutes
+     */
+    public SlotSet getBooked(Long doctorId, LocalDate date) {
+        DayKey key = new DayKey(doctorId, date);
+        long now = System.currentTimeMillis();
+
+        if (!days.containsKey(key) && days.size() >= maxSize) evict(now);
+        Day day = days.computeIfAbsent(key, k -> new Day());
+
+        synchronized (day) {
+            if (day.loaded && day.expiresAt > now) return day.booked.copy();
+            if (day.loaded) {
+                // Expired: reload, recording the changes made meanwhile
+                day.loaded = false;
+                day.pending.clear();
+            }
+        }
+
+        SlotSet booked = new SlotSet();
+        for (Appointment appointment : appointmentRepository.findByDoctorIdAndAppointmentTimeBetweenOrderByAppointmentTime(doctorId, date.atStartOfDay(), date.plusDays(1).atStartOfDay())) {
+            booked.add(SlotSet.minuteOf(appointment.getAppointmentTime()));
+        }
+
+        synchronized (day) {
+            if (!day.loaded) {
+                for (Change change : day.pending) change.applyTo(booked);
+                day.booked = booked;
+                day.pending.clear();
+                day.loaded = true;
+                day.expiresAt = now + ttlMillis;
+            }
+            return day.booked.copy();
+        }
+    }
+
+    /**
+     * Loads the booked slots of several doctors over a range of dates with a single query,
+     * instead of one query per (doctor, date). Days that are loaded and not expired are kept.
+     *
+     * @param doctorIds the IDs of the doctors
+     * @param from      the first date
+     * @param to        the last date, inclusive
+     */
+    public void preload(Collection<Long> doctorIds, LocalDate from, LocalDate to) {
+        long now = System.currentTimeMillis();
+        Map<DayKey, Day> loading = new HashMap<>();
+
+        for (Long doctorId : doctorIds) {
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                DayKey key = new DayKey(doctorId, date);
+                if (!days.containsKey(key) && days.size() >= maxSize) evict(now);
+                Day day = days.computeIfAbsent(key, k -> new Day());
+
+                synchronized (day) {
+                    if (day.loaded && day.expiresAt > now) continue;
+                    if (day.loaded) {
+                        day.loaded = false;
+                        day.pending.clear();
+                    }
+                }
+                loading.put(key, day);
+            }
+        }
+        if (loading.isEmpty()) return;
+
+        Map<DayKey, SlotSet> booked = new HashMap<>();
+        for (Object[] row : appointmentRepository.findStartsByDoctorIdIn(doctorIds, from.atStartOfDay(), to.plusDays(1).atStartOfDay())) {
+            LocalDateTime time = (LocalDateTime) row[1];
+            booked.computeIfAbsent(new DayKey((Long) row[0], time.toLocalDate()), key -> new SlotSet())
+                    .add(SlotSet.minuteOf(time.toLocalTime()));
+        }
+
+        loading.forEach((key, day) -> {
+            SlotSet slots = booked.getOrDefault(key, new SlotSet());
+            synchronized (day) {
+                if (!day.loaded) {
+                    for (Change change : day.pending) change.applyTo(slots);
+                    day.booked = slots;
+                    day.pending.clear();
+                    day.loaded = true;
+                    day.expiresAt = now + ttlMillis;
+                }
+            }
+        });
+    }
+
+    /**
+     * Records a booked appointment once the current transaction commits.
+     *
+     * @param doctorId the ID of the doctor
+     * @param time     the start of the appointment
+     */
+    public void markBooked(Long doctorId, LocalDateTime time) {
+        afterCommit(() -> apply(doctorId, time, true));
+    }
+
+    /**
+     * Records a freed appointment slot once the current transaction commits.
+     *
+     * @param doctorId the ID of the doctor
+     * @param time     the start of the freed appointment
+     */
+    public void markFree(Long doctorId, LocalDateTime time) {
+        afterCommit(() -> apply(doctorId, time, false));
+    }
+
+    /**
+     * Drops every day of a doctor, e.g. after all of the doctor's appointments were deleted.
+     *
+     * @param doctorId the ID of the doctor
+     */
+    public void invalidate(Long doctorId) {
+        days.keySet().removeIf(key -> key.doctorId().equals(doctorId));
+    }
+
+    private void apply(Long doctorId, LocalDateTime time, boolean booked) {
+        Day day = days.get(new DayKey(doctorId, time.toLocalDate()));
+        if (day == null) return;
+
+        Change change = new Change(SlotSet.minuteOf(time.toLocalTime()), booked);
+        synchronized (day) {
+            if (day.loaded) change.applyTo(day.booked);
+            else day.pending.add(change);
+        }
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Makes room in the index: expired days are dropped first, then arbitrary days
+     * until the index is back under 90% of its capacity.
+     */
+    private void evict(long now) {
+        days.values().removeIf(day -> {
+            synchronized (day) {
+                return day.loaded && day.expiresAt <= now;
+            }
+        });
+
+        Iterator<DayKey> iterator = days.keySet().iterator();
+        while (days.size() >= maxSize * 9 / 10 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private record DayKey(Long doctorId, LocalDate date) {
+    }
+
+    private record Change(int start, boolean booked) {
+        void applyTo(SlotSet slots) {
+            if (booked) slots.add(start);
+            else slots.remove(start);
+        }
+    }
+
+    private static class Day {
+        private SlotSet booked = new SlotSet();
+        private boolean loaded;
+        private long expiresAt;
+        private final List<Change> pending = new ArrayList<>();
+    }
+}
@@ -1,10 +1,15 @@
 package com.project.back_end.services;
 
 import com.project.back_end.DTO.AppointmentDTO;
-import com.project.back_end.models.Appointment;
 import com.project.back_end.models.Patient;
 import com.project.back_end.repo.AppointmentRepository;
 import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.security.AuthPrincipal;
+import com.project.back_end.security.LoginExecutor;
+import com.project.back_end.security.PasswordHasher;
+import com.project.back_end.security.PrincipalRegistry;
+import com.project.back_end.util.AppointmentWindow;
+import com.project.back_end.util.KeysetPage;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
@@ -16,7 +21,6 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Service class for managing patient-related operations.
@@ -29,17 +33,24 @@ public class PatientService {
 
     private final PatientRepository patientRepository;
     private final AppointmentRepository appointmentRepository;
-    private final TokenService tokenService;
+    private final PrincipalRegistry principalRegistry;
+    private final PasswordHasher passwordHasher;
+    private final LoginExecutor loginExecutor;
 
     /**
      * Creates a new patient in the system.
+     * The password is hashed on the login pool before the patient is stored.
      *
      * @param patient The patient object to be created.
      * @return 1 if the patient was created successfully, 0 otherwise.
      */
     public int createPatient(Patient patient) {
+        String rawPassword = patient.getPassword();
+        patient.setPassword(loginExecutor.execute(() -> passwordHasher.hash(rawPassword)));
+
         try {
             patientRepository.save(patient);
+            principalRegistry.invalidate("patient", patient.getEmail());
             return 1;
         }
         catch (Exception e) {
@@ -51,29 +62,24 @@ public class PatientService {
     /**
      * Retrieves all appointments for a specific patient.
      *
-     * @param id    The ID of the patient.
-     * @param token The authentication token of the patient.
-     * @return A ResponseEntity containing a map with appointment details or an error message.
+     * @param id      The ID of the patient.
+     * @param patient The authenticated patient making the request.
+     * @param window  The date window, cursor and page size.
+     * @return A ResponseEntity containing a map with one page of appointment details and the next cursor, or an error message.
      */
     @Transactional
-    public ResponseEntity<Map<String, Object>> getPatientAppointment(Long id, String token) {
+    public ResponseEntity<Map<String, Object>> getPatientAppointment(Long id, AuthPrincipal patient, AppointmentWindow window) {
         Map<String, Object> response = new HashMap<>();
         try {
-            String email = tokenService.extractEmail(token);
-            Patient patient = patientRepository.findByEmail(email);
-
-            if (patient == null || !Objects.equals(patient.getId(), id)) {
+            if (!Objects.equals(patient.id(), id)) {
                 response.put("error", "Unauthorized access");
                 return new ResponseEntity<>(response, HttpStatus.UNAUTHORIZED);
             }
 
-            List<AppointmentDTO> appointments = appointmentRepository
-                    .findByPatientIdOrderByAppointmentTime(id)
-                    .stream()
-                    .map(this::convertAppointmentToDTO)
-                    .collect(Collectors.toList());
+            KeysetPage<AppointmentDTO> page = findPage(id, null, null, window);
 
-            response.put("appointments", appointments);
+            response.put("appointments", page.items());
+            response.put("nextCursor", page.nextCursor());
             return ResponseEntity.ok(response);
         }
         catch (Exception e) {
@@ -85,12 +91,14 @@ public class PatientService {
 
     /**
      * Filters appointments by a specific condition (future or past) for a given patient ID.
+     * Appointments are marked past by the {@link StatusSweeper} once their time has gone by.
      *
      * @param condition The condition to filter by ("future" or "past").
      * @param id        The ID of the patient.
-     * @return A ResponseEntity containing a map with filtered appointments or an error message.
+     * @param window    The date window, cursor and page size.
+     * @return A ResponseEntity containing a map with one page of filtered appointments and the next cursor, or an error message.
      */
-    public ResponseEntity<Map<String, Object>> filterByCondition(String condition, Long id) {
+    public ResponseEntity<Map<String, Object>> filterByCondition(String condition, Long id, AppointmentWindow window) {
         Map<String, Object> response = new HashMap<>();
         try {
             int status = switch (condition.toLowerCase()) {
@@ -104,13 +112,10 @@ public class PatientService {
                 return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
             }
 
-            List<AppointmentDTO> appointments = appointmentRepository
-                    .findByPatient_IdAndStatusOrderByAppointmentTimeAsc(id, status)
-                    .stream()
-                    .map(this::convertAppointmentToDTO)
-                    .collect(Collectors.toList());
+            KeysetPage<AppointmentDTO> page = findPage(id, null, status, window);
 
-            response.put("appointments", appointments);
+            response.put("appointments", page.items());
+            response.put("nextCursor", page.nextCursor());
             return ResponseEntity.ok(response);
         }
         catch (Exception e) {
@@ -125,18 +130,16 @@ public class PatientService {
      *
      * @param name       The name of the doctor to filter by.
      * @param patientId  The ID of the patient.
-     * @return A ResponseEntity containing a map with filtered appointments or an error message.
+     * @param window     The date window, cursor and page size.
+     * @return A ResponseEntity containing a map with one page of filtered appointments and the next cursor, or an error message.
      */
-    public ResponseEntity<Map<String, Object>> filterByDoctor(String name, Long patientId) {
+    public ResponseEntity<Map<String, Object>> filterByDoctor(String name, Long patientId, AppointmentWindow window) {
         Map<String, Object> response = new HashMap<>();
         try {
-            List<AppointmentDTO> appointments = appointmentRepository
-                    .filterByDoctorNameContainingIgnoreCaseAndPatientIdOrderByAppointmentTime(name, patientId)
-                    .stream()
-                    .map(this::convertAppointmentToDTO)
-                    .collect(Collectors.toList());
+            KeysetPage<AppointmentDTO> page = findPage(patientId, name, null, window);
 
-            response.put("appointments", appointments);
+            response.put("appointments", page.items());
+            response.put("nextCursor", page.nextCursor());
             return ResponseEntity.ok(response);
         }
         catch (Exception e) {
@@ -152,9 +155,10 @@ public class PatientService {
      * @param condition  The condition to filter by ("future" or "past").
      * @param name       The name of the doctor to filter by.
      * @param patientId  The ID of the patient.
-     * @return A ResponseEntity containing a map with filtered appointments or an error message.
+     * @param window     The date window, cursor and page size.
+     * @return A ResponseEntity containing a map with one page of filtered appointments and the next cursor, or an error message.
      */
-    public ResponseEntity<Map<String, Object>> filterByDoctorAndCondition(String condition, String name, long patientId) {
+    public ResponseEntity<Map<String, Object>> filterByDoctorAndCondition(String condition, String name, long patientId, AppointmentWindow window) {
         Map<String, Object> response = new HashMap<>();
         try {
             int status = switch (condition.toLowerCase()) {
@@ -168,13 +172,10 @@ public class PatientService {
                 return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
             }
 
-            List<AppointmentDTO> appointments = appointmentRepository
-                    .filterByDoctorNameContainingIgnoreCaseAndPatientIdAndStatusOrderByAppointmentTime(name, patientId, status)
-                    .stream()
-                    .map(this::convertAppointmentToDTO)
-                    .collect(Collectors.toList());
+            KeysetPage<AppointmentDTO> page = findPage(patientId, name, status, window);
 
-            response.put("appointments", appointments);
+            response.put("appointments", page.items());
+            response.put("nextCursor", page.nextCursor());
             return ResponseEntity.ok(response);
         }
         catch (Exception e) {
@@ -190,9 +191,10 @@ public class PatientService {
      * @param condition  The condition to filter by ("future" or "past").
      * @param name       The name of the doctor to filter by.
      * @param patientId  The ID of the patient.
-     * @return A ResponseEntity containing a map with filtered appointments or an error message.
+     * @param window     The date window, cursor and page size.
+     * @return A ResponseEntity containing a map with one page of filtered appointments and the next cursor, or an error message.
      */
-    public ResponseEntity<Map<String, Object>> filterByDoctorNameAndCondition(String name, String condition, long patientId) {
+    public ResponseEntity<Map<String, Object>> filterByDoctorNameAndCondition(String name, String condition, long patientId, AppointmentWindow window) {
         Map<String, Object> response = new HashMap<>();
         try {
             int status = switch (condition.toLowerCase()) {
@@ -206,13 +208,10 @@ public class PatientService {
             //     return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
             // }
 
-            List<AppointmentDTO> appointments = appointmentRepository
-                    .filterByDoctorNameContainingIgnoreCaseAndPatientIdAndStatusOrderByAppointmentTime(name, patientId, status)
-                    .stream()
-                    .map(this::convertAppointmentToDTO)
-                    .collect(Collectors.toList());
+            KeysetPage<AppointmentDTO> page = findPage(patientId, name, status, window);
 
-            response.put("appointments", appointments);
+            response.put("appointments", page.items());
+            response.put("nextCursor", page.nextCursor());
             return ResponseEntity.ok(response);
         }
         catch (Exception e) {
@@ -223,16 +222,15 @@ public class PatientService {
     }
 
     /**
-     * Retrieves patient details based on the provided token.
+     * Retrieves the details of the authenticated patient.
      *
-     * @param token The authentication token of the patient.
+     * @param principal The authenticated patient making the request.
      * @return A ResponseEntity containing a map with patient details or an error message.
      */
-    public ResponseEntity<Map<String, Object>> getPatientDetails(String token) {
+    public ResponseEntity<Map<String, Object>> getPatientDetails(AuthPrincipal principal) {
         Map<String, Object> response = new HashMap<>();
         try {
-            String email = tokenService.extractEmail(token);
-            Patient patient = patientRepository.findByEmail(email);
+            Patient patient = patientRepository.findById(principal.id()).orElse(null);
 
             if (patient == null) {
                 response.put("error", "Patient not found");
@@ -253,20 +251,16 @@ public class PatientService {
      * Filters appointments by patient ID and retrieves them in chronological order.
      *
      * @param patientId The ID of the patient whose appointments are to be retrieved.
-     * @return A ResponseEntity containing a map with appointments or an error message.
+     * @param window    The date window, cursor and page size.
+     * @return A ResponseEntity containing a map with one page of appointments and the next cursor, or an error message.
      */
-    public ResponseEntity<Map<String, Object>> filterByPatientId(Long patientId) {
+    public ResponseEntity<Map<String, Object>> filterByPatientId(Long patientId, AppointmentWindow window) {
         Map<String, Object> response = new HashMap<>();
         try {
-            //List<Appointment> appointments = appointmentRepository.findByPatientIdOrderByAppointmentTime(patientId);
-
-            List<AppointmentDTO> appointments = appointmentRepository
-                    .findByPatientIdOrderByAppointmentTime(patientId)
-                    .stream()
-                    .map(this::convertAppointmentToDTO)
-                    .collect(Collectors.toList());
+            KeysetPage<AppointmentDTO> page = findPage(patientId, null, null, window);
 
-            response.put("appointments", appointments);
+            response.put("appointments", page.items());
+            response.put("nextCursor", page.nextCursor());
             return ResponseEntity.ok(response);
         }
         catch (Exception e) {
@@ -277,31 +271,18 @@ public class PatientService {
     }
 
     /**
-     * Converts an Appointment entity to an AppointmentDTO.
+     * Reads one (appointment time, id) keyset page of a patient's appointments.
      *
-     * @param appointment The Appointment entity to be converted.
-     * @return An AppointmentDTO containing the appointment details.
+     * @param patientId  The ID of the patient.
+     * @param doctorName The text the doctor's name must contain, or null.
+     * @param status     The status of the appointments, or null for any.
+     * @param window     The date window, cursor and page size.
+     * @return The page of appointments and the cursor of the next page.
      */
-    private AppointmentDTO convertAppointmentToDTO(Appointment appointment) {
-        AppointmentDTO appointmentDTO = new AppointmentDTO();
-
-        appointmentDTO.setId(appointment.getId());
-        appointmentDTO.setStatus(appointment.getStatus());
-        // appointmentDTO.setAppointmentTime(LocalDateTime.from(appointment.getAppointmentTime()));
-        appointmentDTO.setAppointmentTime(appointment.getEndTime().minusHours(1));
-
-        // Doctor's Info
-        appointmentDTO.setDoctorId(appointment.getDoctor().getId());
-        appointmentDTO.setDoctorName(appointment.getDoctor().getName());
-
-        // Patient's Info
-        appointmentDTO.setPatientId(appointment.getPatient().getId());
-        appointmentDTO.setPatientName(appointment.getPatient().getName());
-        appointmentDTO.setPatientEmail(appointment.getPatient().getEmail());
-        appointmentDTO.setPatientPhone(appointment.getPatient().getPhone());
-        appointmentDTO.setPatientAddress(appointment.getPatient().getAddress());
-
-        return appointmentDTO;
+    private KeysetPage<AppointmentDTO> findPage(Long patientId, String doctorName, Integer status, AppointmentWindow window) {
+        return window.page(appointmentRepository.findPatientPage(patientId, doctorName, status,
+                window.afterTime(), window.afterId(), window.to(), window.fetchLimit()), AppointmentService::keyOf);
     }
+
 }
 
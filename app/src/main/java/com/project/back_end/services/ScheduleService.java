@@ -0,0 +1,389 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.models.ScheduleInterval;
+import com.project.back_end.models.ScheduleOverride;
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.repo.ScheduleIntervalRepository;
+import com.project.back_end.repo.ScheduleOverrideRepository;
+import com.project.back_end.util.HelperUtil;
+import com.project.back_end.util.SlotSet;
+import jakarta.transaction.Transactional;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Service class for managing doctor schedules.
+ * A schedule consists of weekly recurring intervals plus date-specific overrides; doctors without weekly
+ * intervals fall back to their {@code availableTimes}, which then apply to every day.
+ * The schedule of a (doctor, date) is compiled into a {@link SlotSet} and cached, so availability checks
+ * are bit tests instead of parsing and comparing time labels.
+ * Every cached day carries the generation of its doctor it was compiled under; invalidating a doctor bumps the
+ * generation, so a day compiled from data read before the change is never served, even if it is cached afterwards.
+ * Every change to a schedule also recomputes the doctor's availability bitmask and AM/PM flags, so AM/PM filters
+ * and specialty facets follow the schedule rather than the available times it replaces.
+ */
+@Service
+public class ScheduleService {
+    private final ScheduleIntervalRepository scheduleIntervalRepository;
+    private final ScheduleOverrideRepository scheduleOverrideRepository;
+    private final DoctorRepository doctorRepository;
+    private final SpecialtyFacets specialtyFacets;
+    private final DoctorCatalog doctorCatalog;
+
+    private final Map<DayKey, Entry> cache = new ConcurrentHashMap<>();
+    private final Map<Long, Long> generations = new ConcurrentHashMap<>();
+    private final int maxSize;
+    private final long ttlMillis;
+
+    public ScheduleService(ScheduleIntervalRepository scheduleIntervalRepository,
+                           ScheduleOverrideRepository scheduleOverrideRepository,
+                           DoctorRepository doctorRepository,
+                           SpecialtyFacets specialtyFacets,
+                           DoctorCatalog doctorCatalog,
+                           @Value("${schedule.cache.max-size:10000}") int maxSize,
+                           @Value("${schedule.cache.ttl-seconds:300}") long ttlSeconds) {
+        this.scheduleIntervalRepository = scheduleIntervalRepository;
+        this.scheduleOverrideRepository = scheduleOverrideRepository;
+        this.doctorRepository = doctorRepository;
+        this.specialtyFacets = specialtyFacets;
+        this.doctorCatalog = doctorCatalog;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlSeconds * 1000L;
+    }
+
+    /**
+     * Returns the slots a doctor works on a given date. The returned set is shared and must not be modified.
+     *
+     * @param doctorId the ID of the doctor
+     * @param date     the date
+     * @return the slots of the day, empty if the doctor does not exist or does not work that day
+     */
+    public SlotSet getSlots(Long doctorId, LocalDate date) {
+        DayKey key = new DayKey(doctorId, date);
+        long now = System.currentTimeMillis();
+
+        Entry entry = cache.get(key);
+        if (isCurrent(key, entry, now)) return entry.slots();
+
+        // Read before compiling: an invalidation that lands while compiling makes the entry stale
+        long generation = generationOf(doctorId);
+        SlotSet slots = compile(doctorId, date);
+        if (cache.size() >= maxSize) evict(now);
+        cache.put(key, new Entry(slots, now + ttlMillis, generation));
+        return slots;
+    }
+
+    /**
+     * Compiles and caches the slots of several doctors over a range of dates with three queries in total,
+     * instead of a few queries per (doctor, date). Days that are already cached are kept.
+     *
+     * @param doctorIds the IDs of the doctors
+     * @param from      the first date
+     * @param to        the last date, inclusive
+     */
+    public void preload(Collection<Long> doctorIds, LocalDate from, LocalDate to) {
+        long now = System.currentTimeMillis();
+        List<Long> missing = doctorIds.stream()
+                .filter(doctorId -> from.datesUntil(to.plusDays(1)).anyMatch(date -> !isCached(new DayKey(doctorId, date), now)))
+                .toList();
+        if (missing.isEmpty()) return;
+
+        Map<Long, Long> generationsRead = new HashMap<>();
+        missing.forEach(doctorId -> generationsRead.put(doctorId, generationOf(doctorId)));
+
+        Map<Long, List<ScheduleInterval>> intervals = new HashMap<>();
+        for (ScheduleInterval interval : scheduleIntervalRepository.findByDoctorIdIn(missing)) {
+            intervals.computeIfAbsent(interval.getDoctorId(), id -> new ArrayList<>()).add(interval);
+        }
+
+        Map<Long, List<String>> availableTimes = new HashMap<>();
+        List<Long> withoutIntervals = missing.stream().filter(doctorId -> !intervals.containsKey(doctorId)).toList();
+        if (!withoutIntervals.isEmpty()) {
+            for (Object[] row : doctorRepository.findAvailableTimesByIdIn(withoutIntervals)) {
+                availableTimes.computeIfAbsent((Long) row[0], id -> new ArrayList<>()).add((String) row[1]);
+            }
+        }
+
+        Map<DayKey, List<ScheduleOverride>> overrides = new HashMap<>();
+        for (ScheduleOverride scheduleOverride : scheduleOverrideRepository.findByDoctorIdInAndDateBetween(missing, from, to)) {
+            overrides.computeIfAbsent(new DayKey(scheduleOverride.getDoctorId(), scheduleOverride.getDate()), key -> new ArrayList<>()).add(scheduleOverride);
+        }
+
+        for (Long doctorId : missing) {
+            for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+                DayKey key = new DayKey(doctorId, date);
+                if (isCached(key, now)) continue;
+
+                SlotSet slots = intervals.containsKey(doctorId)
+                        ? weeklySlots(intervals.get(doctorId), date)
+                        : SlotSet.fromLabels(availableTimes.get(doctorId));
+                applyOverrides(slots, overrides.getOrDefault(key, List.of()));
+
+                if (cache.size() >= maxSize) evict(now);
+                cache.put(key, new Entry(slots, now + ttlMillis, generationsRead.get(doctorId)));
+            }
+        }
+    }
+
+    private boolean isCached(DayKey key, long now) {
+        return isCurrent(key, cache.get(key), now);
+    }
+
+    private boolean isCurrent(DayKey key, Entry entry, long now) {
+        return entry != null && entry.expiresAt() > now && entry.generation() == generationOf(key.doctorId());
+    }
+
+    private long generationOf(Long doctorId) {
+        return generations.getOrDefault(doctorId, 0L);
+    }
+
+    /**
+     * Returns the weekly intervals of a doctor.
+     *
+     * @param doctorId the ID of the doctor
+     * @return the intervals, sorted by day and start time
+     */
+    public List<ScheduleInterval> getWeeklySchedule(Long doctorId) {
+        return scheduleIntervalRepository.findByDoctorIdOrderByDayOfWeekAscStartTimeAsc(doctorId);
+    }
+
+    /**
+     * Returns the overrides of a doctor from a given date on.
+     *
+     * @param doctorId the ID of the doctor
+     * @param from     the first date to include
+     * @return the overrides, sorted by date
+     */
+    public List<ScheduleOverride> getOverrides(Long doctorId, LocalDate from) {
+        return scheduleOverrideRepository.findByDoctorIdAndDateGreaterThanEqualOrderByDate(doctorId, from);
+    }
+
+    /**
+     * Replaces the weekly schedule of a doctor.
+     *
+     * @param doctorId  the ID of the doctor
+     * @param intervals the new weekly intervals
+     * @return 1 if saved successfully, -1 if an interval is invalid, 0 if an error occurs
+     */
+    @Transactional
+    public int replaceWeeklySchedule(Long doctorId, List<ScheduleInterval> intervals) {
+        for (ScheduleInterval interval : intervals) {
+            if (interval.getDayOfWeek() == null || interval.getStartTime() == null || interval.getEndTime() == null) return -1;
+            if (!interval.getStartTime().isBefore(interval.getEndTime())) return -1;
+        }
+
+        try {
+            scheduleIntervalRepository.deleteByDoctorId(doctorId);
+            for (ScheduleInterval interval : intervals) {
+                interval.setId(null);
+                interval.setDoctorId(doctorId);
+            }
+            scheduleIntervalRepository.saveAll(intervals);
+            invalidate(doctorId);
+            refreshAvailability(doctorId);
+            return 1;
+        }
+        catch (Exception e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Adds a date-specific override to the schedule of a doctor.
+     *
+     * @param doctorId         the ID of the doctor
+     * @param scheduleOverride the override to add
+     * @return 1 if saved successfully, -1 if the override is invalid, 0 if an error occurs
+     */
+    public int addOverride(Long doctorId, ScheduleOverride scheduleOverride) {
+        if (scheduleOverride.getDate() == null) return -1;
+
+        boolean hasStart = scheduleOverride.getStartTime() != null;
+        boolean hasEnd = scheduleOverride.getEndTime() != null;
+
+        if (hasStart != hasEnd) return -1;
+        if (hasStart && !scheduleOverride.getStartTime().isBefore(scheduleOverride.getEndTime())) return -1;
+        if (scheduleOverride.isAvailable() && !hasStart) return -1;
+
+        try {
+            scheduleOverride.setId(null);
+            scheduleOverride.setDoctorId(doctorId);
+            scheduleOverrideRepository.save(scheduleOverride);
+            invalidate(doctorId);
+            refreshAvailability(doctorId);
+            return 1;
+        }
+        catch (Exception e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Removes a date-specific override from the schedule of a doctor.
+     *
+     * @param doctorId   the ID of the doctor
+     * @param overrideId the ID of the override
+     * @return 1 if removed successfully, -1 if the override does not exist or belongs to another doctor, 0 if an error occurs
+     */
+    public int removeOverride(Long doctorId, Long overrideId) {
+        Optional<ScheduleOverride> existing = scheduleOverrideRepository.findById(overrideId);
+        if (existing.isEmpty() || !existing.get().getDoctorId().equals(doctorId)) return -1;
+
+        try {
+            scheduleOverrideRepository.delete(existing.get());
+            invalidate(doctorId);
+            refreshAvailability(doctorId);
+            return 1;
+        }
+        catch (Exception e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Computes the hours a doctor works in as a bitmask (see {@link SlotSet#hourMask()}): the hours of the weekly
+     * intervals on any weekday, or of the given available times if the doctor has no weekly schedule, plus the hours
+     * of available overrides from today on. Unavailable overrides only close single dates and are not subtracted.
+     *
+     * @param doctorId       the ID of the doctor, or null for a doctor that is not stored yet
+     * @param availableTimes the available times of the doctor
+     * @return the hour bitmask, 0 if the doctor works in no hour
+     */
+    public int availabilityMask(Long doctorId, List<String> availableTimes) {
+        if (doctorId == null) return HelperUtil.hourMask(availableTimes);
+
+        List<ScheduleInterval> intervals = scheduleIntervalRepository.findByDoctorIdOrderByDayOfWeekAscStartTimeAsc(doctorId);
+        int mask = intervals.isEmpty() ? HelperUtil.hourMask(availableTimes) : 0;
+
+        SlotSet slots = new SlotSet();
+        for (ScheduleInterval interval : intervals) {
+            slots.addInterval(SlotSet.minuteOf(interval.getStartTime()), SlotSet.minuteOf(interval.getEndTime()));
+        }
+        for (ScheduleOverride scheduleOverride : getOverrides(doctorId, LocalDate.now())) {
+            if (scheduleOverride.isAvailable()) {
+                slots.addInterval(SlotSet.minuteOf(scheduleOverride.getStartTime()), SlotSet.minuteOf(scheduleOverride.getEndTime()));
+            }
+        }
+        return mask | slots.hourMask();
+    }
+
+    /**
+     * Stores the availability bitmask of a doctor after its schedule changed and passes it on to the
+     * specialty facets and the catalog.
+     */
+    private void refreshAvailability(Long doctorId) {
+        Optional<Doctor> doctor = doctorRepository.findWithAvailableTimesById(doctorId);
+        if (doctor.isEmpty()) return;
+
+        doctor.get().applyAvailabilityMask(availabilityMask(doctorId, doctor.get().getAvailableTimes()));
+        doctorRepository.save(doctor.get());
+        specialtyFacets.put(doctorId, doctor.get().getSpecialty(), doctor.get().getAvailabilityMask());
+        doctorCatalog.requestRebuild();
+    }
+
+    /**
+     * Removes the whole schedule of a doctor, e.g. before the doctor is deleted.
+     *
+     * @param doctorId the ID of the doctor
+     */
+    public void deleteSchedule(Long doctorId) {
+        scheduleIntervalRepository.deleteByDoctorId(doctorId);
+        scheduleOverrideRepository.deleteByDoctorId(doctorId);
+        invalidate(doctorId);
+    }
+
+    /**
+     * Drops the compiled days of a doctor, e.g. after the schedule or available times changed.
+     * Inside a transaction this is repeated once it commits, so days compiled from the data it replaces
+     * while it was still uncommitted are dropped as well.
+     *
+     * @param doctorId the ID of the doctor
+     */
+    public void invalidate(Long doctorId) {
+        bumpGeneration(doctorId);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    bumpGeneration(doctorId);
+                }
+            });
+        }
+    }
+
+    private void bumpGeneration(Long doctorId) {
+        generations.merge(doctorId, 1L, Long::sum);
+        cache.keySet().removeIf(key -> key.doctorId().equals(doctorId));
+    }
+
+    /**
+     * Compiles the slots of a (doctor, date): the weekly intervals of that weekday (or the available times
+     * if the doctor has no weekly schedule), minus unavailable overrides, plus available overrides.
+     */
+    private SlotSet compile(Long doctorId, LocalDate date) {
+        SlotSet slots;
+
+        if (scheduleIntervalRepository.existsByDoctorId(doctorId)) {
+            slots = weeklySlots(scheduleIntervalRepository.findByDoctorIdAndDayOfWeek(doctorId, date.getDayOfWeek()), date);
+        }
+        else {
+            slots = SlotSet.fromLabels(doctorRepository.findAvailableTimesById(doctorId));
+        }
+
+        applyOverrides(slots, scheduleOverrideRepository.findByDoctorIdAndDate(doctorId, date));
+        return slots;
+    }
+
+    private static SlotSet weeklySlots(List<ScheduleInterval> intervals, LocalDate date) {
+        SlotSet slots = new SlotSet();
+        for (ScheduleInterval interval : intervals) {
+            if (interval.getDayOfWeek() == date.getDayOfWeek()) {
+                slots.addInterval(SlotSet.minuteOf(interval.getStartTime()), SlotSet.minuteOf(interval.getEndTime()));
+            }
+        }
+        return slots;
+    }
+
+    private static void applyOverrides(SlotSet slots, List<ScheduleOverride> overrides) {
+        for (ScheduleOverride scheduleOverride : overrides) {
+            if (scheduleOverride.isAvailable()) continue;
+
+            if (scheduleOverride.getStartTime() == null) slots.clear();
+            else slots.removeOverlapping(SlotSet.minuteOf(scheduleOverride.getStartTime()), SlotSet.minuteOf(scheduleOverride.getEndTime()));
+        }
+
+        for (ScheduleOverride scheduleOverride : overrides) {
+            if (scheduleOverride.isAvailable()) {
+                slots.addInterval(SlotSet.minuteOf(scheduleOverride.getStartTime()), SlotSet.minuteOf(scheduleOverride.getEndTime()));
+            }
+        }
+    }
+
+    /**
+     * Makes room in the cache: expired days are dropped first, then arbitrary days
+     * until the cache is back under 90% of its capacity.
+     */
+    private void evict(long now) {
+        cache.values().removeIf(entry -> entry.expiresAt() <= now);
+
+        Iterator<DayKey> iterator = cache.keySet().iterator();
+        while (cache.size() >= maxSize * 9 / 10 && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private record DayKey(Long doctorId, LocalDate date) {
+    }
+
+    private record Entry(SlotSet slots, long expiresAt, long generation) {
+    }
+}
@@ -0,0 +1,180 @@
+package com.project.back_end.services;
+
+import com.project.back_end.util.HashedWheelTimer;
+import com.project.back_end.util.SlotSet;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Short-lived reservations of a (doctor, slot) made while a patient is completing a booking, so other patients
+ * neither see the slot as available nor can book it in the meantime.
+ * Holds live in memory only: a hold is one small object keyed by a packed long, and it expires through a
+ * {@link HashedWheelTimer} instead of a scheduled task or database row per hold.
+ * A patient has at most one hold; holding another slot releases the previous one.
+ */
+@Component
+public class SlotHolds {
+    private final Map<Long, Hold> holds = new ConcurrentHashMap<>();
+    private final Map<Long, Long> holdsByPatient = new ConcurrentHashMap<>();
+    private final HashedWheelTimer timer;
+    private final long ttlSeconds;
+
+    public SlotHolds(@Value("${holds.ttl-seconds:120}") long ttlSeconds,
+                     @Value("${holds.tick-ms:1000}") long tickMillis,
+                     MeterRegistry meterRegistry) {
+        this.ttlSeconds = ttlSeconds;
+        this.timer = new HashedWheelTimer("slot-holds", tickMillis, TimeUnit.MILLISECONDS, 512);
+        meterRegistry.gaugeMapSize("holds.active", Tags.empty(), holds);
+    }
+
+    /**
+     * Places or renews a hold on a slot for a patient. Callers check that the slot is free first.
+     *
+     * @param doctorId  the ID of the doctor
+     * @param slot      the start of the slot
+     * @param patientId the ID of the patient
+     * @return 1 if the slot is now held by the patient, -3 if it is held by another patient
+     */
+    public int hold(Long doctorId, LocalDateTime slot, Long patientId) {
+        return hold(doctorId, slot, patientId, ttlSeconds, null);
+    }
+
+    /**
+     * Places or renews a hold on a slot for a patient, with its own lifetime and a callback for when it ends.
+     * A renewal by the same patient keeps the callback of the hold it replaces.
+     *
+     * @param doctorId   the ID of the doctor
+     * @param slot       the start of the slot
+     * @param patientId  the ID of the patient
+     * @param ttlSeconds the lifetime of the hold
+     * @param onEnd      called once the hold expires or is released, not when it is renewed (optional); must be short
+     * @return 1 if the slot is now held by the patient, -3 if it is held by another patient
+     */
+    public int hold(Long doctorId, LocalDateTime slot, Long patientId, long ttlSeconds, Runnable onEnd) {
+        long key = key(doctorId, slot);
+        Hold hold = new Hold(patientId, onEnd);
+        hold.timeout = timer.schedule(() -> expire(key, hold), ttlSeconds, TimeUnit.SECONDS);
+
+        Hold[] renewed = new Hold[1];
+        Hold current = holds.compute(key, (k, existing) -> {
+            if (existing != null && existing.patientId != patientId) return existing;
+            if (existing != null && hold.onEnd == null) hold.onEnd = existing.onEnd;
+            renewed[0] = existing;
+            return hold;
+        });
+
+        if (current != hold) {
+            hold.timeout.cancel();
+            return -3;
+        }
+        if (renewed[0] != null) renewed[0].timeout.cancel();
+
+        Long previous = holdsByPatient.put(patientId, key);
+        if (previous != null && previous != key) remove(previous, patientId);
+        return 1;
+    }
+
+    /**
+     * Releases the hold of a patient on a slot, e.g. once the slot is booked or the patient closed the booking form.
+     *
+     * @param doctorId  the ID of the doctor
+     * @param slot      the start of the slot
+     * @param patientId the ID of the patient
+     */
+    public void release(Long doctorId, LocalDateTime slot, Long patientId) {
+        long key = key(doctorId, slot);
+        if (remove(key, patientId)) holdsByPatient.remove(patientId, key);
+    }
+
+    /**
+     * Checks whether a slot is held by someone other than the given patient.
+     *
+     * @param doctorId  the ID of the doctor
+     * @param slot      the start of the slot
+     * @param patientId the ID of the patient asking (optional; without it any hold counts)
+     * @return true if another patient holds the slot
+     */
+    public boolean isHeldByOther(Long doctorId, LocalDateTime slot, Long patientId) {
+        Hold hold = holds.get(key(doctorId, slot));
+        return hold != null && (patientId == null || hold.patientId != patientId);
+    }
+
+    /**
+     * Removes the held slots of a doctor on a date from a set of slots.
+     *
+     * @param doctorId the ID of the doctor
+     * @param date     the date of the slots
+     * @param slots    the slots, modified in place
+     */
+    public void removeHeld(Long doctorId, LocalDate date, SlotSet slots) {
+        if (holds.isEmpty()) return;
+
+        for (int start : slots.starts()) {
+            if (holds.containsKey(key(doctorId, date.atStartOfDay().plusMinutes(start)))) slots.remove(start);
+        }
+    }
+
+    /**
+     * Returns how long a hold lasts unless it is renewed.
+     *
+     * @return the lifetime of a hold in seconds
+     */
+    public long getTtlSeconds() {
+        return ttlSeconds;
+    }
+
+    private void expire(long key, Hold hold) {
+        if (holds.remove(key, hold)) {
+            holdsByPatient.remove(hold.patientId, key);
+            if (hold.onEnd != null) hold.onEnd.run();
+        }
+    }
+
+    private boolean remove(long key, long patientId) {
+        Hold[] removed = new Hold[1];
+        holds.computeIfPresent(key, (k, existing) -> {
+            if (existing.patientId != patientId) return existing;
+            removed[0] = existing;
+            return null;
+        });
+
+        if (removed[0] == null) return false;
+        removed[0].timeout.cancel();
+        if (removed[0].onEnd != null) removed[0].onEnd.run();
+        return true;
+    }
+
+    /**
+     * Packs a (doctor, slot) into one long: the doctor ID in the high 32 bits, the slot's minute since the epoch in the low 32 bits.
+     */
+    private static long key(Long doctorId, LocalDateTime slot) {
+        long minute = slot.toEpochSecond(ZoneOffset.UTC) / 60;
+        return (doctorId << 32) | (minute & 0xFFFFFFFFL);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timer.close();
+    }
+
+    private static final class Hold {
+        private final long patientId;
+        private volatile Runnable onEnd;
+        private volatile HashedWheelTimer.Timeout timeout;
+
+        private Hold(long patientId, Runnable onEnd) {
+            this.patientId = patientId;
+            this.onEnd = onEnd;
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.DoctorRepository;
+import com.project.back_end.util.HelperUtil;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * In-memory aggregate of doctor counts per specialty, with the number of doctors available in the
+ * morning (AM) and in the afternoon (PM), used to render the specialty filters without scanning the doctor table.
+ * It is updated in O(1) by DoctorService on every doctor write, and reloaded as a {@link DoctorProjection}:
+ * the reload builds new counts outside the lock, swaps them in and replays the writes made meanwhile.
+ */
+@Component
+@RequiredArgsConstructor
+public class SpecialtyFacets implements DoctorProjection {
+    private static final Logger logger = LoggerFactory.getLogger(SpecialtyFacets.class);
+
+    private final DoctorRepository doctorRepository;
+
+    private final Object reloadLock = new Object();
+
+    private Map<Long, Facet> doctors = new HashMap<>();
+    private Map<String, Counts> counts = new HashMap<>();
+
+    // Writes made since the running reload started, keyed by doctor ID; a null facet is a removal
+    private Map<Long, Facet> journal;
+
+    /**
+     * Loads the specialty and availability of all doctors.
+     */
+    @Override
+    public void refresh() {
+        synchronized (reloadLock) {
+            synchronized (this) {
+                journal = new HashMap<>();
+            }
+
+            try {
+                List<Object[]> rows = doctorRepository.findAllSpecialtiesAndAvailability();
+
+                Map<Long, Facet> loadedDoctors = new HashMap<>();
+                Map<String, Counts> loadedCounts = new HashMap<>();
+                for (Object[] row : rows) {
+                    add(loadedDoctors, loadedCounts, (Long) row[0], new Facet((String) row[1], row[2] != null ? (Integer) row[2] : 0));
+                }
+
+                synchronized (this) {
+                    doctors = loadedDoctors;
+                    counts = loadedCounts;
+                    journal.forEach((id, facet) -> {
+                        removeInternal(id);
+                        if (facet != null) add(doctors, counts, id, facet);
+                    });
+                }
+            }
+            catch (Exception e) {
+                logger.error("Specialty facets reload failed: {}", e.getMessage());
+            }
+            finally {
+                synchronized (this) {
+                    journal = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a saved or updated doctor, moving it out of its previous specialty if it changed.
+     *
+     * @param id               the ID of the doctor
+     * @param specialty        the specialty of the doctor
+     * @param availabilityMask the hour bitmask of the doctor's available times
+     */
+    public synchronized void put(Long id, String specialty, Integer availabilityMask) {
+        if (id == null || specialty == null) return;
+
+        Facet facet = new Facet(specialty, availabilityMask != null ? availabilityMask : 0);
+        if (journal != null) journal.put(id, facet);
+
+        removeInternal(id);
+        add(doctors, counts, id, facet);
+    }
+
+    /**
+     * Removes a deleted doctor from the counts.
+     *
+     * @param id the ID of the doctor
+     */
+    public synchronized void remove(Long id) {
+        if (id == null) return;
+
+        if (journal != null) journal.put(id, null);
+        removeInternal(id);
+    }
+
+    /**
+     * Returns the counts of every specialty that has at least one doctor, sorted by specialty.
+     *
+     * @return the specialty facets
+     */
+    public synchronized List<FacetCount> getCounts() {
+        List<FacetCount> result = new ArrayList<>(counts.size());
+        new TreeMap<>(counts).forEach((specialty, count) ->
+                result.add(new FacetCount(specialty, count.total, count.am, count.pm)));
+        return result;
+    }
+
+    private static void add(Map<Long, Facet> doctors, Map<String, Counts> counts, Long id, Facet facet) {
+        doctors.put(id, facet);
+        counts.computeIfAbsent(facet.specialty(), key -> new Counts()).apply(facet.availabilityMask(), 1);
+    }
+
+    private void removeInternal(Long id) {
+        Facet previous = doctors.remove(id);
+        if (previous == null) return;
+
+        Counts count = counts.get(previous.specialty());
+        count.apply(previous.availabilityMask(), -1);
+        if (count.total == 0) counts.remove(previous.specialty());
+    }
+
+    /**
+     * Number of doctors of a specialty, in total and by time of day.
+     *
+     * @param specialty the specialty
+     * @param count     the number of doctors
+     * @param am        the number of doctors with a morning slot
+     * @param pm        the number of doctors with an afternoon slot
+     */
+    public record FacetCount(String specialty, int count, int am, int pm) {
+    }
+
+    private record Facet(String specialty, int availabilityMask) {
+    }
+
+    private static class Counts {
+        private int total;
+        private int am;
+        private int pm;
+
+        void apply(int availabilityMask, int delta) {
+            total += delta;
+            if ((availabilityMask & HelperUtil.AM_HOURS) != 0) am += delta;
+            if ((availabilityMask & HelperUtil.PM_HOURS) != 0) pm += delta;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.AppointmentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/**
+ * Marks appointments as past (status 1) once their time has gone by, so the past/future filters of
+ * {@link PatientService} can match on the status alone instead of comparing every row with the current time.
+ * Due appointments are updated in bounded batches, each its own short transaction driven by the
+ * (status, appointment_time) index, so a large backlog never locks many rows at once; a run stops after a
+ * maximum number of batches and the next run picks up the rest. Running on several instances is harmless,
+ * as every batch only touches rows that are still future.
+ */
+@Component
+public class StatusSweeper {
+    private static final Logger log = LoggerFactory.getLogger(StatusSweeper.class);
+
+    private final AppointmentRepository appointmentRepository;
+    private final int batchSize;
+    private final int maxBatches;
+
+    private final Counter swept;
+    private final Timer batches;
+
+    public StatusSweeper(AppointmentRepository appointmentRepository,
+                         @Value("${appointments.sweep.batch-size:500}") int batchSize,
+                         @Value("${appointments.sweep.max-batches:20}") int maxBatches,
+                         MeterRegistry meterRegistry) {
+        this.appointmentRepository = appointmentRepository;
+        this.batchSize = batchSize;
+        this.maxBatches = maxBatches;
+
+        this.swept = meterRegistry.counter("appointments.sweep.updated");
+        this.batches = meterRegistry.timer("appointments.sweep.batches");
+    }
+
+    /**
+     * Marks the future appointments whose time has passed as past.
+     */
+    @Scheduled(fixedDelayString = "${appointments.sweep.interval-ms:60000}", initialDelayString = "${appointments.sweep.interval-ms:60000}")
+    public void sweep() {
+        LocalDateTime now = LocalDateTime.now();
+        int total = 0;
+
+        try {
+            for (int batch = 0; batch < maxBatches; batch++) {
+                int updated = batches.record(() -> appointmentRepository.markPast(now, batchSize));
+                swept.increment(updated);
+                total += updated;
+
+                if (updated < batchSize) return;
+            }
+            log.info("Marked {} appointments as past; more are due and will be marked on the next run", total);
+        }
+        catch (Exception e) {
+            log.warn("Failed to mark past appointments after {} updates: {}", total, e.getMessage());
+        }
+    }
+}
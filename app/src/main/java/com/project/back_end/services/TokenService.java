@@ -1,16 +1,19 @@
 package com.project.back_end.services;
 
-import com.project.back_end.repo.AdminRepository;
-import com.project.back_end.repo.DoctorRepository;
-import com.project.back_end.repo.PatientRepository;
+import com.project.back_end.security.AuthPrincipal;
+import com.project.back_end.security.PrincipalRegistry;
+import com.project.back_end.security.RevocationList;
+import com.project.back_end.security.VerifiedTokenCache;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Date;
 
 /**
@@ -20,34 +23,56 @@ import java.util.Date;
 @Component
 @RequiredArgsConstructor
 public class TokenService {
-    private final AdminRepository adminRepository;
-    private final DoctorRepository doctorRepository;
-    private final PatientRepository patientRepository;
+    public static final Duration TOKEN_VALIDITY = Duration.ofDays(7);
+
+    private static final String ROLE_CLAIM = "role";
+    private static final String ID_CLAIM = "id";
+
+    private final PrincipalRegistry principalRegistry;
+    private final RevocationList revocationList;
+    private final VerifiedTokenCache verifiedTokenCache;
 
     @Value("${jwt.secret}")
     private String jwtSecret;
 
+    private SecretKey signingKey;
+    private JwtParser jwtParser;
+
+    /**
+     * Builds the signing key and the JWT parser once, so they are shared by every request
+     * instead of being recreated for each token.
+     */
+    @PostConstruct
+    void init() {
+        signingKey = Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        jwtParser = Jwts.parser().verifyWith(signingKey).build();
+    }
+
     /**
      * Retrieves the signing key for JWT using the secret from configuration.
-     * The secret is expected to be a base64-encoded string.
-     * @return
+     * @return the HMAC key built from the configured secret
      */
     private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtSecret.getBytes(StandardCharsets.UTF_8));
+        return signingKey;
     }
 
     /**
-     * Generates a JWT token for the given email.
+     * Generates a JWT token for the given principal.
+     * The role and entity id are signed into the token, so requests can be authorized without a database lookup.
      * The token is valid for 7 days.
      *
-     * @param email the email to include in the token
+     * @param email the email (or admin username) to include in the token
+     * @param role  the role of the principal (admin, doctor, patient)
+     * @param id    the id of the admin, doctor or patient entity
      * @return a JWT token as a String
      */
-    public String generateToken(String email) {
+    public String generateToken(String email, String role, Long id) {
         return Jwts.builder()
                 .setSubject(email)
+                .claim(ROLE_CLAIM, role)
+                .claim(ID_CLAIM, id)
                 .setIssuedAt(new Date())
-                .setExpiration(new Date(System.currentTimeMillis() + 7 * 24 * 60 * 60 * 1000L)) // 7 days
+                .setExpiration(new Date(System.currentTimeMillis() + TOKEN_VALIDITY.toMillis())) // 7 days
                 .signWith(getSigningKey(), SignatureAlgorithm.HS256)
                 .compact();
     }
@@ -59,13 +84,28 @@ public class TokenService {
      * @return the email if the token is valid, null otherwise
      */
     public String extractEmail(String token) {
+        Claims claims = parseClaims(token);
+        return claims != null ? claims.getSubject() : null;
+    }
+
+    /**
+     * Verifies the JWT token and returns its claims.
+     * Tokens that were already verified are served from the verified-token cache
+     * until they expire, so the signature is checked only once per token.
+     *
+     * @param token the JWT token
+     * @return the claims if the token is valid, null otherwise
+     */
+    public Claims parseClaims(String token) {
+        if (token == null || token.isBlank()) return null;
+
+        Claims claims = verifiedTokenCache.get(token);
+        if (claims != null) return claims;
+
         try {
-            Claims claims = Jwts.parser()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
-            return claims.getSubject();
+            claims = jwtParser.parseSignedClaims(token).getPayload();
+            verifiedTokenCache.put(token, claims);
+            return claims;
         } catch (JwtException | IllegalArgumentException e) {
             return null; // Token is invalid or malformed
         }
@@ -73,7 +113,6 @@ public class TokenService {
 
     /**
      * Validates the JWT token for the specified role.
-     * Checks if the user exists in the corresponding repository based on the role.
      *
      * @param token the JWT token
      * @param role  the role of the user (admin, doctor, patient)
@@ -81,17 +120,36 @@ public class TokenService {
      */
     public boolean validateToken(String token, String role) {
         try {
-            String email = extractEmail(token);
-            if (email == null) return false;
-
-            return switch (role.toLowerCase()) {
-                case "admin" -> adminRepository.existsByUsername(email);
-                case "doctor" -> doctorRepository.existsByEmail(email);
-                case "patient" -> patientRepository.existsByEmail(email);
-                default -> false;
-            };
+            return resolvePrincipal(parseClaims(token), role) != null;
         } catch (Exception e) {
             return false;
         }
     }
+
+    /**
+     * Resolves the principal a verified token belongs to, if it has the specified role.
+     * Tokens carrying role and id claims are authorized purely in memory, checking only the revocation list.
+     * Tokens issued before those claims existed fall back to the principal registry, and are checked against
+     * the revocation list as well, so a principal deleted on another instance loses access just as quickly.
+     *
+     * @param claims the verified claims of the token, may be null
+     * @param role   the role of the user (admin, doctor, patient)
+     * @return the principal, or null if the token is invalid, revoked, or issued for another role
+     */
+    public AuthPrincipal resolvePrincipal(Claims claims, String role) {
+        if (claims == null || role == null) return null;
+
+        String email = claims.getSubject();
+        String tokenRole = claims.get(ROLE_CLAIM, String.class);
+
+        if (tokenRole == null) {
+            Long id = principalRegistry.resolve(role, email);
+            return id != null && !revocationList.isRevoked(role, id) ? new AuthPrincipal(role.toLowerCase(), id, email) : null;
+        }
+
+        Long id = claims.get(ID_CLAIM, Long.class);
+        if (id == null || !tokenRole.equalsIgnoreCase(role) || revocationList.isRevoked(tokenRole, id)) return null;
+
+        return new AuthPrincipal(tokenRole.toLowerCase(), id, email);
+    }
 }
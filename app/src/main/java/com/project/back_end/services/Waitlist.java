@@ -0,0 +1,243 @@
+package com.project.back_end.services;
+
+import com.project.back_end.repo.DoctorRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Opt-in waitlists of patients for a doctor's fully booked day.
+ * When a slot of that day frees up, it is offered to the waiting patients one at a time, in the order they joined:
+ * the slot is held for the first patient for a short acceptance window and an {@code offer} event is pushed to
+ * their feed. If they do not book it in time, the hold expires and the slot is offered to the next patient;
+ * only once the waitlist is empty is the slot announced as available to everyone.
+ * This replaces a rush of patients polling for cancellations with a fair, first come, first served queue.
+ * Like the holds, waitlists live in memory and are per instance.
+ */
+@Component
+public class Waitlist {
+    private static final Logger log = LoggerFactory.getLogger(Waitlist.class);
+
+    private final CentralService centralService;
+    private final SlotHolds slotHolds;
+    private final AgendaFeed agendaFeed;
+    private final DoctorRepository doctorRepository;
+    private final Map<DayKey, Deque<Long>> waiting = new ConcurrentHashMap<>();
+    private final ExecutorService offerExecutor;
+    private final int maxPerDay;
+    private final long offerSeconds;
+
+    private final Counter offered;
+    private final Counter unclaimed;
+
+    public Waitlist(CentralService centralService,
+                    SlotHolds slotHolds,
+                    AgendaFeed agendaFeed,
+                    DoctorRepository doctorRepository,
+                    @Value("${waitlist.max-per-day:100}") int maxPerDay,
+                    @Value("${waitlist.offer-seconds:60}") long offerSeconds,
+                    MeterRegistry meterRegistry) {
+        this.centralService = centralService;
+        this.slotHolds = slotHolds;
+        this.agendaFeed = agendaFeed;
+        this.doctorRepository = doctorRepository;
+        this.maxPerDay = maxPerDay;
+        this.offerSeconds = offerSeconds;
+
+        this.offerExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "waitlist");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.offered = meterRegistry.counter("waitlist.offers", "result", "offered");
+        this.unclaimed = meterRegistry.counter("waitlist.offers", "result", "unclaimed");
+        meterRegistry.gaugeMapSize("waitlist.days", Tags.empty(), waiting);
+    }
+
+    /**
+     * Adds a patient to the waitlist of a doctor's day. Joining again keeps the patient's place.
+     *
+     * @param doctorId  the ID of the doctor
+     * @param date      the day the patient is waiting for
+     * @param patientId the ID of the patient
+     * @return the patient's position (1 is next), 0 if the day has passed or its waitlist is full, -1 if the doctor is not found
+     */
+    public int join(Long doctorId, LocalDate date, Long patientId) {
+        if (date.isBefore(LocalDate.now())) {
+            return 0;
+        }
+        if (!doctorRepository.existsById(doctorId)) {
+            return -1;
+        }
+
+        int[] position = new int[1];
+        waiting.compute(new DayKey(doctorId, date), (key, queue) -> {
+            Deque<Long> patients = queue != null ? queue : new ArrayDeque<>();
+            int index = indexOf(patients, patientId);
+            if (index >= 0) {
+                position[0] = index + 1;
+            }
+            else if (patients.size() < maxPerDay) {
+                patients.addLast(patientId);
+                position[0] = patients.size();
+            }
+            return patients.isEmpty() ? null : patients;
+        });
+        return position[0];
+    }
+
+    /**
+     * Removes a patient from the waitlist of a doctor's day.
+     *
+     * @param doctorId  the ID of the doctor
+     * @param date      the day the patient was waiting for
+     * @param patientId the ID of the patient
+     */
+    public void leave(Long doctorId, LocalDate date, Long patientId) {
+        waiting.computeIfPresent(new DayKey(doctorId, date), (key, patients) -> {
+            patients.remove(patientId);
+            return patients.isEmpty() ? null : patients;
+        });
+    }
+
+    /**
+     * Offers slots freed by a cancellation or a move to the waitlist of their day.
+     * Runs before the feed announces the change, so an offered slot is not also announced as available.
+     *
+     * @param event the committed change
+     */
+    @Order(1)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        if (event.type() == AppointmentChangedEvent.Type.CANCELLED) {
+            offerNext(event.doctorId(), event.time());
+        }
+        else if (event.type() == AppointmentChangedEvent.Type.MOVED) {
+            offerNext(event.previousDoctorId(), event.previousTime());
+        }
+    }
+
+    /**
+     * Removes the waitlists of days that have passed.
+     */
+    @Scheduled(fixedDelayString = "${waitlist.purge-ms:3600000}", initialDelayString = "${waitlist.purge-ms:3600000}")
+    public void purge() {
+        LocalDate today = LocalDate.now();
+        waiting.keySet().removeIf(key -> key.date().isBefore(today));
+    }
+
+    /**
+     * Holds a free slot for the next patient on its day's waitlist and sends them the offer.
+     * Patients who cannot be offered the slot, e.g. because it is already theirs, are skipped.
+     *
+     * @return true if the slot was offered, false if nobody is waiting or the slot is no longer free
+     */
+    private boolean offerNext(Long doctorId, LocalDateTime slot) {
+        DayKey day = new DayKey(doctorId, slot.toLocalDate());
+        if (!waiting.containsKey(day) || slot.isBefore(LocalDateTime.now())) {
+            return false;
+        }
+
+        Long patientId;
+        while ((patientId = poll(day)) != null) {
+            int valid = centralService.validateSlot(doctorId, slot, null, patientId);
+            if (valid == -2 || valid == -3) {
+                // Taken or held by someone else in the meantime: keep the patient's place for the next slot
+                requeue(day, patientId);
+                return false;
+            }
+            if (valid != 1) continue;
+
+            if (slotHolds.hold(doctorId, slot, patientId, offerSeconds, () -> onOfferEnded(doctorId, slot)) != 1) {
+                requeue(day, patientId);
+                return false;
+            }
+
+            offered.increment();
+            agendaFeed.publishOffer(patientId, doctorId, slot, offerSeconds);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Called when the hold of an offer ends, on the timer thread when it expires or on the booking thread when it is released.
+     * The slot is re-offered on the waitlist's own thread, since checking it queries the database.
+     */
+    private void onOfferEnded(Long doctorId, LocalDateTime slot) {
+        try {
+            offerExecutor.execute(() -> {
+                try {
+                    if (centralService.validateSlot(doctorId, slot, null, null) != 1) {
+                        return;
+                    }
+
+                    // The patient let the offer lapse
+                    unclaimed.increment();
+                    if (!offerNext(doctorId, slot)) {
+                        agendaFeed.publishSlot(doctorId, slot, !slotHolds.isHeldByOther(doctorId, slot, null));
+                    }
+                }
+                catch (RuntimeException e) {
+                    log.warn("Failed to offer freed slot to the waitlist: {}", e.getMessage());
+                }
+            });
+        }
+        catch (RejectedExecutionException ignored) {
+            // Shutting down
+        }
+    }
+
+    private Long poll(DayKey day) {
+        Long[] next = new Long[1];
+        waiting.computeIfPresent(day, (key, patients) -> {
+            next[0] = patients.pollFirst();
+            return patients.isEmpty() ? null : patients;
+        });
+        return next[0];
+    }
+
+    private void requeue(DayKey day, Long patientId) {
+        waiting.compute(day, (key, queue) -> {
+            Deque<Long> patients = queue != null ? queue : new ArrayDeque<>();
+            if (!patients.contains(patientId)) patients.addFirst(patientId);
+            return patients;
+        });
+    }
+
+    private static int indexOf(Deque<Long> patients, Long patientId) {
+        int index = 0;
+        for (Long waitingId : patients) {
+            if (waitingId.equals(patientId)) return index;
+            index++;
+        }
+        return -1;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        offerExecutor.shutdownNow();
+    }
+
+    private record DayKey(Long doctorId, LocalDate date) {
+    }
+}
@@ -0,0 +1,97 @@
+package com.project.back_end.util;
+
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page request over an appointment list: an optional date window, the cursor of the previous page and a page size.
+ * Queries read the rows after {@link #afterTime()}/{@link #afterId()} and before {@link #to()}, sorted by
+ * (appointment time, id), so each page is a bounded range scan of the (doctor, time) or (patient, time) index
+ * however long the history is.
+ *
+ * @param from   the start of the window, inclusive
+ * @param to     the end of the window, exclusive
+ * @param cursor the cursor of the previous page, or null for the first page
+ * @param limit  the maximum number of appointments to return
+ */
+public record AppointmentWindow(LocalDateTime from, LocalDateTime to, AppointmentCursor cursor, int limit) {
+    // Bounds of an open window; within the range of a MySQL DATETIME
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+
+    /**
+     * Builds a page request from request parameters.
+     *
+     * @param from   the first day of the window, or null for no lower bound
+     * @param to     the last day of the window, or null for no upper bound
+     * @param cursor the encoded cursor of the previous page, may be null or blank for the first page
+     * @param limit  the requested page size, may be null
+     * @return the page request
+     * @throws InvalidCursorException if the cursor is malformed
+     */
+    public static AppointmentWindow of(LocalDate from, LocalDate to, String cursor, Integer limit) {
+        return new AppointmentWindow(
+                from != null ? from.atStartOfDay() : EARLIEST,
+                to != null ? to.plusDays(1).atStartOfDay() : LATEST,
+                AppointmentCursor.decode(cursor),
+                AppointmentCursor.clampLimit(limit));
+    }
+
+    /**
+     * Narrows the window to a single day.
+     *
+     * @param date the day
+     * @return the page request for the appointments of that day
+     */
+    public AppointmentWindow onDay(LocalDate date) {
+        LocalDateTime start = date.atStartOfDay();
+        LocalDateTime end = date.plusDays(1).atStartOfDay();
+        return new AppointmentWindow(from.isAfter(start) ? from : start, to.isBefore(end) ? to : end, cursor, limit);
+    }
+
+    /**
+     * Returns the appointment time the page starts after: the cursor, or the start of the window on the first page.
+     *
+     * @return the appointment time of the keyset predicate
+     */
+    public LocalDateTime afterTime() {
+        return cursor != null && !cursor.time().isBefore(from) ? cursor.time() : from;
+    }
+
+    /**
+     * Returns the id the page starts after among appointments at {@link #afterTime()}; 0 includes all of them.
+     *
+     * @return the id of the keyset predicate
+     */
+    public long afterId() {
+        return cursor != null && !cursor.time().isBefore(from) ? cursor.id() : 0;
+    }
+
+    /**
+     * Returns the number of rows to fetch: one more than the page size, to know whether another page follows.
+     *
+     * @return the limit of the query
+     */
+    public Limit fetchLimit() {
+        return Limit.of(limit + 1);
+    }
+
+    /**
+     * Cuts the rows fetched with {@link #fetchLimit()} to a page.
+     *
+     * @param rows  the fetched rows, sorted by (appointment time, id)
+     * @param keyOf the (appointment time, id) of a row
+     * @param <T>   the type of the rows
+     * @return the page and the cursor of the next page
+     */
+    public <T> KeysetPage<T> page(List<T> rows, Function<T, AppointmentCursor> keyOf) {
+        if (rows.size() <= limit) return new KeysetPage<>(rows, null);
+
+        List<T> page = rows.subList(0, limit);
+        return new KeysetPage<>(page, keyOf.apply(page.get(limit - 1)).encode());
+    }
+}
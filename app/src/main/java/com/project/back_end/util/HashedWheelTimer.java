@@ -0,0 +1,182 @@
+package com.project.back_end.util;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Timer for large numbers of short timeouts that rarely need to be precise, such as expiring reservations.
+ * Timeouts are kept in a ring of buckets that a single thread advances one bucket per tick, so scheduling
+ * and cancelling are O(1) and a timeout costs one small object instead of a thread or a scheduled task.
+ * A timeout fires within one tick after its delay has passed; tasks run on the timer thread and must be short.
+ */
+public class HashedWheelTimer implements AutoCloseable {
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final long startTime;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    /**
+     * Creates the timer and starts its thread.
+     *
+     * @param name      the name of the timer thread
+     * @param tick      the duration of one tick, i.e. the precision of the timer
+     * @param unit      the unit of the tick
+     * @param wheelSize the minimum number of buckets; rounded up to a power of two
+     */
+    public HashedWheelTimer(String name, long tick, TimeUnit unit, int wheelSize) {
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickNanos = unit.toNanos(tick);
+        this.wheel = new Bucket[size];
+        this.mask = size - 1;
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+
+        this.startTime = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Schedules a task to run once after a delay.
+     *
+     * @param task  the task; runs on the timer thread
+     * @param delay the delay
+     * @param unit  the unit of the delay
+     * @return the timeout, which can be cancelled
+     */
+    public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = new Timeout(task, System.nanoTime() - startTime + unit.toNanos(Math.max(0, delay)));
+        added.add(timeout);
+        return timeout;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        long tick = 0;
+
+        while (running) {
+            long sleepNanos = tickNanos * (tick + 1) - (System.nanoTime() - startTime);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                }
+                catch (InterruptedException e) {
+                    if (!running) return;
+                }
+                continue;
+            }
+
+            transferAdded(tick);
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    /**
+     * Moves newly scheduled timeouts into their buckets; only the timer thread touches the buckets.
+     */
+    private void transferAdded(long tick) {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.isCancelled()) continue;
+
+            long due = Math.max(timeout.deadline / tickNanos, tick);
+            timeout.remainingRounds = (due - tick) / wheel.length;
+            wheel[(int) (due & mask)].add(timeout);
+        }
+    }
+
+    /**
+     * A scheduled task.
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private long remainingRounds;
+        private Timeout previous;
+        private Timeout next;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the timeout; the task will not run unless it already started.
+         *
+         * @return true if the timeout was cancelled, false if it had already fired or been cancelled
+         */
+        public boolean cancel() {
+            return done.compareAndSet(false, true);
+        }
+
+        private boolean isCancelled() {
+            return done.get();
+        }
+    }
+
+    /**
+     * Doubly linked list of the timeouts due in one slot of the wheel.
+     */
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.previous = tail;
+            if (tail == null) head = timeout;
+            else tail.next = timeout;
+            tail = timeout;
+        }
+
+        private void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+
+                if (timeout.isCancelled()) {
+                    remove(timeout);
+                }
+                else if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    if (timeout.done.compareAndSet(false, true)) {
+                        try {
+                            timeout.task.run();
+                        }
+                        catch (RuntimeException ignored) {
+                            // A failing task must not stop the timer
+                        }
+                    }
+                }
+                else {
+                    timeout.remainingRounds--;
+                }
+
+                timeout = next;
+            }
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.previous != null) timeout.previous.next = timeout.next;
+            else head = timeout.next;
+            if (timeout.next != null) timeout.next.previous = timeout.previous;
+            else tail = timeout.previous;
+
+            timeout.previous = null;
+            timeout.next = null;
+        }
+    }
+}
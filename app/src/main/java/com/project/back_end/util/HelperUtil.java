@@ -1,6 +1,7 @@
 package com.project.back_end.util;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.stream.Collectors;
 
 /**
@@ -8,6 +9,10 @@ import java.util.stream.Collectors;
  * Provides methods for string manipulation and formatting.
  */
 public class HelperUtil {
+    // Bits 0-11 of an hour bitmask are the AM hours, bits 12-23 the PM hours
+    public static final int AM_HOURS = 0xFFF;
+    public static final int PM_HOURS = 0xFFF000;
+
     /**
      * Converts a given text to title case.
      * Each word's first letter is capitalized, and the rest are in lowercase.
@@ -23,4 +28,28 @@ public class HelperUtil {
                 .collect(Collectors.joining(" "));
 
     }
+
+    /**
+     * Builds the hour bitmask of a list of time slots such as "09:00-10:00".
+     * Bit h is set if a slot starts at hour h; slots that cannot be parsed are ignored.
+     *
+     * @param times the time slots
+     * @return the hour bitmask, 0 if there are no slots
+     */
+    public static int hourMask(List<String> times) {
+        int mask = 0;
+        if (times == null) return mask;
+
+        for (String time : times) {
+            if (time == null || time.length() < 2) continue;
+
+            try {
+                int hour = Integer.parseInt(time.substring(0, 2).replace(":", ""));
+                if (hour >= 0 && hour < 24) mask |= 1 << hour;
+            }
+            catch (NumberFormatException ignored) {
+            }
+        }
+        return mask;
+    }
 }
@@ -0,0 +1,57 @@
+package com.project.back_end.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque cursor for keyset pagination over lists sorted by (name, id).
+ * The cursor holds the sort key of the last row of a page; the next page starts strictly after it,
+ * so each page is a bounded index range scan no matter how deep the client has scrolled.
+ *
+ * @param name the name of the last row of the page
+ * @param id   the id of the last row of the page
+ */
+public record KeysetCursor(String name, long id) {
+    public static final int DEFAULT_LIMIT = 20;
+    public static final int MAX_LIMIT = 100;
+
+    /**
+     * Encodes the cursor as a URL-safe string.
+     *
+     * @return the encoded cursor
+     */
+    public String encode() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString((id + ":" + name).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor received from a client.
+     *
+     * @param value the encoded cursor, may be null or blank for the first page
+     * @return the cursor, or null for the first page
+     * @throws InvalidCursorException if the cursor is malformed
+     */
+    public static KeysetCursor decode(String value) {
+        if (value == null || value.isBlank()) return null;
+
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+            int separator = decoded.indexOf(':');
+            return new KeysetCursor(decoded.substring(separator + 1), Long.parseLong(decoded.substring(0, separator)));
+        }
+        catch (RuntimeException e) {
+            throw new InvalidCursorException("Invalid cursor.");
+        }
+    }
+
+    /**
+     * Clamps a requested page size to the allowed range.
+     *
+     * @param limit the requested page size, may be null
+     * @return the page size to use
+     */
+    public static int clampLimit(Integer limit) {
+        if (limit == null || limit <= 0) return DEFAULT_LIMIT;
+        return Math.min(limit, MAX_LIMIT);
+    }
+}
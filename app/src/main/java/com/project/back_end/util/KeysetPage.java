@@ -0,0 +1,13 @@
+package com.project.back_end.util;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated list.
+ *
+ * @param items      the rows of the page
+ * @param nextCursor the cursor of the next page, or null if this is the last page
+ * @param <T>        the type of the rows
+ */
+public record KeysetPage<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,209 @@
+package com.project.back_end.util;
+
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Compact set of the appointment slots of one day, stored as a bitset over the minutes of the day.
+ * Bit m is set if a slot starts at minute m; every slot lasts {@link #SLOT_MINUTES} minutes,
+ * the length of an appointment. Checking a slot is a single bit test.
+ */
+public final class SlotSet {
+    public static final int SLOT_MINUTES = 60;
+    public static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final long[] words;
+
+    public SlotSet() {
+        this.words = new long[(MINUTES_PER_DAY + 63) / 64];
+    }
+
+    private SlotSet(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * Parses slot labels such as "09:00-10:00"; labels that cannot be parsed are ignored.
+     *
+     * @param labels the slot labels
+     * @return the slot set
+     */
+    public static SlotSet fromLabels(List<String> labels) {
+        SlotSet slots = new SlotSet();
+        if (labels == null) return slots;
+
+        for (String label : labels) {
+            try {
+                slots.add(minuteOf(LocalTime.parse(label.substring(0, 5))));
+            }
+            catch (RuntimeException ignored) {
+            }
+        }
+        return slots;
+    }
+
+    /**
+     * Returns the minute of the day of a time.
+     *
+     * @param time the time
+     * @return the minutes since midnight
+     */
+    public static int minuteOf(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * Adds a slot starting at the given minute.
+     *
+     * @param start the minute of the day the slot starts at
+     */
+    public void add(int start) {
+        if (start >= 0 && start + SLOT_MINUTES <= MINUTES_PER_DAY) words[start >>> 6] |= 1L << start;
+    }
+
+    /**
+     * Removes the slot starting at the given minute.
+     *
+     * @param start the minute of the day the slot starts at
+     */
+    public void remove(int start) {
+        if (start >= 0 && start < MINUTES_PER_DAY) words[start >>> 6] &= ~(1L << start);
+    }
+
+    /**
+     * Adds the consecutive slots that fit into an interval.
+     *
+     * @param from the first minute of the interval
+     * @param to   the minute the interval ends at (exclusive)
+     */
+    public void addInterval(int from, int to) {
+        for (int start = from; start + SLOT_MINUTES <= to; start += SLOT_MINUTES) add(start);
+    }
+
+    /**
+     * Removes every slot that overlaps an interval.
+     *
+     * @param from the first minute of the interval
+     * @param to   the minute the interval ends at (exclusive)
+     */
+    public void removeOverlapping(int from, int to) {
+        for (int start = Math.max(0, from - SLOT_MINUTES + 1); start < to && start < MINUTES_PER_DAY; start++) remove(start);
+    }
+
+    /**
+     * Removes every slot that overlaps an appointment starting at one of the minutes of another set.
+     *
+     * @param booked the start minutes of booked appointments
+     */
+    public void removeOverlapping(SlotSet booked) {
+        for (int start : booked.starts()) removeOverlapping(start, start + SLOT_MINUTES);
+    }
+
+    /**
+     * Removes every slot.
+     */
+    public void clear() {
+        Arrays.fill(words, 0L);
+    }
+
+    /**
+     * Checks whether a slot starts at the given minute.
+     *
+     * @param start the minute of the day
+     * @return true if a slot starts at that minute
+     */
+    public boolean contains(int start) {
+        return start >= 0 && start < MINUTES_PER_DAY && (words[start >>> 6] & (1L << start)) != 0;
+    }
+
+    /**
+     * Checks whether the set has no slots.
+     *
+     * @return true if there are no slots
+     */
+    public boolean isEmpty() {
+        for (long word : words) {
+            if (word != 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns an independent copy of this set.
+     *
+     * @return the copy
+     */
+    public SlotSet copy() {
+        return new SlotSet(words.clone());
+    }
+
+    /**
+     * Returns the start minutes of all slots in ascending order.
+     *
+     * @return the start minutes
+     */
+    public int[] starts() {
+        int[] starts = new int[Arrays.stream(words).mapToInt(Long::bitCount).sum()];
+        int count = 0;
+
+        for (int i = 0; i < words.length; i++) {
+            long word = words[i];
+            while (word != 0) {
+                starts[count++] = i * 64 + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return starts;
+    }
+
+    /**
+     * Returns the start minute of the earliest slot.
+     *
+     * @return the minute of the day the first slot starts at, or -1 if there are no slots
+     */
+    public int first() {
+        for (int i = 0; i < words.length; i++) {
+            if (words[i] != 0) return i * 64 + Long.numberOfTrailingZeros(words[i]);
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the hours in which slots start as a bitmask: bit h is set if a slot starts during hour h.
+     *
+     * @return the hour bitmask
+     */
+    public int hourMask() {
+        int mask = 0;
+        for (int start : starts()) {
+            mask |= 1 << (start / 60);
+        }
+        return mask;
+    }
+
+    /**
+     * Formats the slots as labels such as "09:00-10:00".
+     *
+     * @return the slot labels in ascending order
+     */
+    public List<String> toLabels() {
+        List<String> labels = new ArrayList<>();
+        for (int start : starts()) {
+            labels.add(labelOf(start));
+        }
+        return labels;
+    }
+
+    /**
+     * Formats a single slot as a label such as "09:00-10:00".
+     *
+     * @param start the minute of the day the slot starts at
+     * @return the slot label
+     */
+    public static String labelOf(int start) {
+        int end = start + SLOT_MINUTES;
+        return String.format("%02d:%02d-%02d:%02d", start / 60, start % 60, end / 60, end % 60);
+    }
+}
@@ -0,0 +1,40 @@
+package com.project.back_end.util;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks shared by an unbounded set of keys: every key maps to one of the stripes by its hash.
+ * Operations on different keys rarely wait for each other, while the memory used stays constant.
+ */
+public class StripedLocks {
+    private final Lock[] stripes;
+    private final int mask;
+
+    /**
+     * Creates the locks.
+     *
+     * @param stripes the minimum number of stripes; rounded up to a power of two
+     */
+    public StripedLocks(int stripes) {
+        int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+        this.stripes = new Lock[size];
+        this.mask = size - 1;
+
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Returns the lock guarding a key.
+     *
+     * @param key the key
+     * @return the lock of the key's stripe
+     */
+    public Lock get(Object key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return stripes[hash & mask];
+    }
+}
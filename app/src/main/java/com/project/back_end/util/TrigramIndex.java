@@ -0,0 +1,226 @@
+package com.project.back_end.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * In-memory trigram index for case-insensitive substring search.
+ * Every indexed text is split into its overlapping three-character sequences; a query is answered by
+ * intersecting the id sets of its own trigrams and confirming the few remaining candidates with a
+ * plain {@code contains}, so the cost depends on the number of matches rather than the number of entries.
+ * Queries shorter than three characters cannot be split and are not answered, nor are queries that match more
+ * entries than the caller's limit; the caller then searches its source of truth instead.
+ * Reads and writes are guarded by a read-write lock; writes are expected to be rare.
+ * Writes made while a {@link #rebuild} is loading its entries are replayed onto the rebuilt index, so they are not
+ * lost to a snapshot taken before them.
+ */
+public class TrigramIndex {
+    private static final int N = 3;
+
+    private final Map<Long, String> texts = new HashMap<>();
+    private final Map<String, Set<Long>> postings = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Writes made since the running rebuild started, keyed by id; a null text is a removal
+    private Map<Long, String> journal;
+
+    /**
+     * Adds or replaces the text indexed for an id.
+     *
+     * @param id   the id of the entry
+     * @param text the text to index
+     */
+    public void put(long id, String text) {
+        lock.writeLock().lock();
+        try {
+            if (journal != null) journal.put(id, text);
+            removeInternal(id);
+            if (text == null) return;
+
+            String normalized = normalize(text);
+            texts.put(id, normalized);
+            for (String trigram : trigrams(normalized)) {
+                postings.computeIfAbsent(trigram, key -> new HashSet<>()).add(id);
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes an id from the index.
+     *
+     * @param id the id of the entry
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            if (journal != null) journal.put(id, null);
+            removeInternal(id);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces the whole content of the index with freshly loaded entries.
+     * Writes made while the entries are loaded and indexed take precedence over them.
+     *
+     * @param loader loads the texts to index, keyed by id
+     */
+    public synchronized void rebuild(Supplier<Map<Long, String>> loader) {
+        lock.writeLock().lock();
+        try {
+            journal = new HashMap<>();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            swap(loader.get());
+        }
+        finally {
+            lock.writeLock().lock();
+            try {
+                journal = null;
+            }
+            finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void swap(Map<Long, String> entries) {
+        Map<Long, String> newTexts = new HashMap<>();
+        Map<String, Set<Long>> newPostings = new HashMap<>();
+
+        entries.forEach((id, text) -> {
+            if (text == null) return;
+
+            String normalized = normalize(text);
+            newTexts.put(id, normalized);
+            for (String trigram : trigrams(normalized)) {
+                newPostings.computeIfAbsent(trigram, key -> new HashSet<>()).add(id);
+            }
+        });
+
+        lock.writeLock().lock();
+        try {
+            texts.clear();
+            texts.putAll(newTexts);
+            postings.clear();
+            postings.putAll(newPostings);
+
+            journal.forEach((id, text) -> {
+                removeInternal(id);
+                if (text == null) return;
+
+                String normalized = normalize(text);
+                texts.put(id, normalized);
+                for (String trigram : trigrams(normalized)) {
+                    postings.computeIfAbsent(trigram, key -> new HashSet<>()).add(id);
+                }
+            });
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the ids of all entries whose text contains the query, ignoring case.
+     *
+     * @param query the substring to look for
+     * @param limit the maximum number of ids to return
+     * @return the matching ids, an empty set if nothing matches, or null if the query is shorter than three
+     * characters or more than {@code limit} entries match
+     */
+    public Set<Long> search(String query, int limit) {
+        String normalized = normalize(query);
+        if (normalized.length() < N) return null;
+
+        lock.readLock().lock();
+        try {
+            List<Set<Long>> lists = new ArrayList<>();
+            for (String trigram : trigrams(normalized)) {
+                Set<Long> ids = postings.get(trigram);
+                if (ids == null) return Set.of();
+                lists.add(ids);
+            }
+            lists.sort(Comparator.comparingInt(Collection::size));
+
+            Set<Long> matches = new LinkedHashSet<>();
+            for (Long id : lists.get(0)) {
+                if (!containsAll(lists, id) || !texts.get(id).contains(normalized)) continue;
+
+                if (matches.size() == limit) return null;
+                matches.add(id);
+            }
+            return matches;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of indexed entries.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return texts.size();
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeInternal(long id) {
+        String previous = texts.remove(id);
+        if (previous == null) return;
+
+        for (String trigram : trigrams(previous)) {
+            Set<Long> ids = postings.get(trigram);
+            if (ids == null) continue;
+
+            ids.remove(id);
+            if (ids.isEmpty()) postings.remove(trigram);
+        }
+    }
+
+    private static boolean containsAll(List<Set<Long>> lists, Long id) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) return false;
+        }
+        return true;
+    }
+
+    private static Set<String> trigrams(String text) {
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + N <= text.length(); i++) {
+            trigrams.add(text.substring(i, i + N));
+        }
+        return trigrams;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,47 @@
+-- Schema as Hibernate (ddl-auto=update) generated it for the original admin, doctor, patient and appointment entities.
+-- Databases created by that version are baselined at this version (spring.flyway.baseline-on-migrate) and start at V2.
+
+create table admin (
+    id bigint not null auto_increment,
+    password varchar(255) not null,
+    username varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table doctor (
+    id bigint not null auto_increment,
+    specialty varchar(50) not null,
+    name varchar(100) not null,
+    email varchar(255) not null,
+    password varchar(255) not null,
+    phone varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table doctor_available_times (
+    doctor_id bigint not null,
+    available_times varchar(255)
+) engine=InnoDB;
+
+create table patient (
+    id bigint not null auto_increment,
+    name varchar(100) not null,
+    address varchar(255) not null,
+    email varchar(255) not null,
+    password varchar(255) not null,
+    phone varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+create table appointment (
+    status integer not null,
+    appointment_time datetime(6),
+    doctor_id bigint not null,
+    id bigint not null auto_increment,
+    patient_id bigint not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table appointment add constraint fk_appointment_doctor foreign key (doctor_id) references doctor (id);
+alter table appointment add constraint fk_appointment_patient foreign key (patient_id) references patient (id);
+alter table doctor_available_times add constraint fk_doctor_available_times_doctor foreign key (doctor_id) references doctor (id);
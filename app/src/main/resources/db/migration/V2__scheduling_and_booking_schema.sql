@@ -0,0 +1,56 @@
+-- Tables, columns and indexes the entities gained after the baseline: availability bitmask and keyset index of doctors,
+-- one appointment per (doctor, time), booking leases and their fence, revoked principals, and weekly schedules with overrides.
+
+-- Bit h is set if a slot starts at hour h; filled in for existing doctors by DoctorService.backfillAvailabilityMasks
+alter table doctor add column availability_mask integer;
+create index idx_doctor_specialty_availability on doctor (specialty, availability_mask);
+create index idx_doctor_name_id on doctor (name, id);
+
+alter table appointment add column lease_fence bigint;
+alter table appointment add constraint uk_appointment_doctor_time unique (doctor_id, appointment_time);
+create index idx_appointment_patient_time on appointment (patient_id, appointment_time, id);
+
+create table booking_lease (
+    doctor_id bigint not null,
+    expires_at datetime(6) not null,
+    fence bigint not null,
+    id bigint not null auto_increment,
+    slot datetime(6) not null,
+    holder varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table booking_lease add constraint uk_booking_lease_doctor_slot unique (doctor_id, slot);
+
+create table revoked_principal (
+    id bigint not null auto_increment,
+    principal_id bigint not null,
+    revoked_at datetime(6) not null,
+    role varchar(255) not null,
+    primary key (id)
+) engine=InnoDB;
+
+alter table revoked_principal add constraint uk_revoked_principal_role_principal unique (role, principal_id);
+
+create table schedule_interval (
+    end_time time(6) not null,
+    start_time time(6) not null,
+    doctor_id bigint,
+    id bigint not null auto_increment,
+    day_of_week enum ('FRIDAY','MONDAY','SATURDAY','SUNDAY','THURSDAY','TUESDAY','WEDNESDAY') not null,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_schedule_interval_doctor on schedule_interval (doctor_id);
+
+create table schedule_override (
+    available bit not null,
+    date date not null,
+    end_time time(6),
+    start_time time(6),
+    doctor_id bigint,
+    id bigint not null auto_increment,
+    primary key (id)
+) engine=InnoDB;
+
+create index idx_schedule_override_doctor_date on schedule_override (doctor_id, date);
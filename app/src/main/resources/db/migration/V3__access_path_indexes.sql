@@ -0,0 +1,34 @@
+-- One index per repository access path that had none; the comments name the queries each one serves.
+-- Secondary indexes carry the primary key, so an index on (email) also covers "select id ... where email = ?".
+
+-- AdminRepository.findByUsername, findIdByUsername
+create index idx_admin_username on admin (username);
+
+-- DoctorRepository.findByEmail, findIdByEmail
+create index idx_doctor_email on doctor (email);
+
+-- DoctorRepository.findIdsAndNamesBySpecialty (covering)
+create index idx_doctor_specialty_name on doctor (specialty, name);
+
+-- DoctorRepository.findAvailableTimesById, findAvailableTimesByIdIn and the availableTimes collection (covering)
+create index idx_doctor_available_times_doctor on doctor_available_times (doctor_id, available_times);
+
+-- PatientRepository.findByEmail, findIdByEmail and the email half of findByEmailOrPhone
+create index idx_patient_email on patient (email);
+
+-- The phone half of PatientRepository.findByEmailOrPhone
+create index idx_patient_phone on patient (phone);
+
+-- AppointmentRepository.findPatientPage with a status, i.e. the past/future filter of a patient's appointments;
+-- without a status it keeps using idx_appointment_patient_time
+create index idx_appointment_patient_status_time on appointment (patient_id, status, appointment_time, id);
+
+-- BookingLeaseRepository.deleteBySlotBefore
+create index idx_booking_lease_slot on booking_lease (slot);
+
+-- RevokedPrincipalRepository.deleteByRevokedAtBefore
+create index idx_revoked_principal_revoked_at on revoked_principal (revoked_at);
+
+-- ScheduleIntervalRepository.findByDoctorIdAndDayOfWeek, findByDoctorIdOrderByDayOfWeekAscStartTimeAsc
+create index idx_schedule_interval_doctor_day on schedule_interval (doctor_id, day_of_week, start_time);
+drop index idx_schedule_interval_doctor on schedule_interval;
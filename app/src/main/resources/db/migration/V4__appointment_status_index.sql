@@ -0,0 +1,2 @@
+-- AppointmentRepository.markPast: the status sweeper reads the future appointments that have started in time order
+create index idx_appointment_status_time on appointment (status, appointment_time);
@@ -0,0 +1,12 @@
+-- DoctorSpecifications.filter: AM/PM are stored as flags, so the time of day filter is an equality that leads an index
+-- both on its own and after the specialty, and the keyset order (name, id) comes from the same index.
+-- Doctors whose availability_mask is still null are filled in by DoctorService.backfillAvailabilityMasks
+alter table doctor add column has_am bit not null default 0;
+alter table doctor add column has_pm bit not null default 0;
+update doctor set has_am = (mod(availability_mask, 4096) <> 0), has_pm = (availability_mask >= 4096) where availability_mask is not null;
+
+create index idx_doctor_am_name on doctor (has_am, name, id);
+create index idx_doctor_pm_name on doctor (has_pm, name, id);
+create index idx_doctor_specialty_am_name on doctor (specialty, has_am, name, id);
+create index idx_doctor_specialty_pm_name on doctor (specialty, has_pm, name, id);
+drop index idx_doctor_specialty_availability on doctor;
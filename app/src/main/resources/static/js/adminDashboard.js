@@ -1,29 +1,46 @@
 import { openModal } from './components/modals.js';
-import { getDoctors, filterDoctors, saveDoctor } from './services/doctorServices.js';
+import { getDoctorsPage, filterDoctors, saveDoctor, createDoctorPager, populateSpecialtyFilter } from './services/doctorServices.js';
 import { createDoctorCard } from './components/doctorCard.js';
+import { observeScrollEnd } from './util.js';
 
 
+// Loads further pages of doctor cards as the admin scrolls
+const doctorPager = createDoctorPager(appendDoctorCards);
+
 /**
- * Fetch all doctors and display them as cards
+ * Append one page of doctors as cards; the first page replaces the current content
+ * @param {Array} doctors - Array of doctor objects
+ * @param {boolean} firstPage - Whether this is the first page of the list
  */
-async function loadDoctorCards() {
-    try {
-        const doctors = await getDoctors();
-
-        const contentDiv = document.getElementById('content');
+async function appendDoctorCards(doctors, firstPage) {
+    const contentDiv = document.getElementById('content');
 
-        if (!contentDiv) {
-            //console.log('Element with id="content" not found in DOM.');
-            return;
-        }
+    if (!contentDiv) {
+        //console.log('Element with id="content" not found in DOM.');
+        return;
+    }
 
+    if (firstPage) {
         contentDiv.innerHTML = '';
 
-        for (const doctor of doctors) {
-            const card = await createDoctorCard(doctor);
-            contentDiv.appendChild(card);
+        if (doctors.length === 0) {
+            contentDiv.innerHTML = '<p>No doctors found with the given filters.</p>';
+            return;
         }
+    }
 
+    for (const doctor of doctors) {
+        const card = await createDoctorCard(doctor); // ✅ await the async function
+        contentDiv.appendChild(card);
+    }
+}
+
+/**
+ * Fetch the first page of doctors and display them as cards
+ */
+async function loadDoctorCards() {
+    try {
+        await doctorPager.reset((cursor) => getDoctorsPage(cursor));
     } catch (error) {
         console.error('Error loading doctors:', error);
     }
@@ -38,20 +55,7 @@ async function filterDoctorsOnChange() {
         const time = document.getElementById('timeFilter')?.value || document.getElementById('filterTime')?.value || null;
         const specialty = document.getElementById('specialtyFilter')?.value || document.getElementById('filterSpecialty')?.value || null;
 
-        const filteredDoctors = await filterDoctors(name, time, specialty);
-
-        const contentDiv = document.getElementById('content');
-        contentDiv.innerHTML = '';
-
-        if (filteredDoctors && filteredDoctors.doctors.length > 0) {
-            for (const doctor of filteredDoctors.doctors) {
-                const card = await createDoctorCard(doctor); // ✅ await the async function
-                contentDiv.appendChild(card);
-            }
-        }
-        else {
-            contentDiv.innerHTML = '<p>No doctors found with the given filters.</p>';
-        }
+        await doctorPager.reset((cursor) => filterDoctors(name, time, specialty, cursor));
     }
     catch (error) {
         alert('Failed to filter doctors. Please try again.');
@@ -149,6 +153,10 @@ document.addEventListener('DOMContentLoaded', () => {
     if (searchInput) searchInput.addEventListener('input', filterDoctorsOnChange);
     if (timeFilter) timeFilter.addEventListener('change', filterDoctorsOnChange);
     if (specialtyFilter) specialtyFilter.addEventListener('change', filterDoctorsOnChange);
+    if (specialtyFilter) populateSpecialtyFilter(specialtyFilter, timeFilter);
+
+    const contentDiv = document.getElementById('content');
+    if (contentDiv) observeScrollEnd(contentDiv, () => doctorPager.loadMore());
 
     loadDoctorCards(); // Only call after DOM is ready
 });
@@ -10,8 +10,14 @@ async function loadAppointments(filter = "upcoming") {
     const token = localStorage.getItem("token");
 
     try {
-        // const appointments = await getAllAppointments(doctorId, token);
-        const appointments = await getAllAppointments('null', 'null', token);
+        // Let the server cut the list at today instead of fetching the whole history
+        const today = new Date();
+        const pad = (value) => String(value).padStart(2, "0");
+        const day = (date) => `${date.getFullYear()}-${pad(date.getMonth() + 1)}-${pad(date.getDate())}`;
+        const yesterday = new Date(today.getFullYear(), today.getMonth(), today.getDate() - 1);
+        const range = filter === "upcoming" ? { from: day(today) } : { to: day(yesterday) };
+
+        const { appointments } = await getAllAppointments(null, 'null', token, range);
 
         if (!appointments || appointments.length === 0) {
             tableBody.innerHTML = `
@@ -22,7 +28,6 @@ async function loadAppointments(filter = "upcoming") {
         }
 
         // Get today's date at midnight
-        const today = new Date();
         today.setHours(0, 0, 0, 0);
 
         const filtered = appointments.filter((a) => {
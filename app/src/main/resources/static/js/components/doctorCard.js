@@ -7,6 +7,7 @@ export async function createDoctorCard(doctor) {
     // Main card container
     const card = document.createElement("div");
     card.classList.add("doctor-card");
+    card.dataset.doctorId = doctor.id;
 
     // Get current user role from localStorage
     const role = localStorage.getItem("userRole");
@@ -29,6 +30,7 @@ export async function createDoctorCard(doctor) {
 
     // Availability - assume doctor.availability is an array of strings
     const availability = document.createElement("p");
+    availability.classList.add("doctor-availability");
     // availability.textContent = `Availability: ${doctor.availability.join(", ")}`;
     availability.textContent = `Availability: ${doctor.availableTimes?.join(", ") || "Not Available"}`;
 
@@ -127,3 +129,30 @@ export async function createDoctorCard(doctor) {
 
     return card;
 }
+
+/**
+ * Show the first free slot of a doctor on its card, from one row of the availability matrix.
+ * @param {HTMLElement} card - Card created by createDoctorCard.
+ * @param {string} from - First date of the matrix, as YYYY-MM-DD.
+ * @param {{first: Array<number>}} row - Start of the earliest free slot per day, in minutes since midnight (-1 if none).
+ */
+export function renderFreeSlots(card, from, row) {
+    const availability = card.querySelector(".doctor-availability");
+    if (!availability || !row) return;
+
+    for (let day = 0; day < row.first.length; day++) {
+        const start = row.first[day];
+        if (start < 0) continue;
+
+        const date = new Date(`${from}T00:00:00`);
+        date.setDate(date.getDate() + day);
+
+        // Slots last one hour (SlotSet.SLOT_MINUTES)
+        const pad = (value) => String(value).padStart(2, "0");
+        const time = (minutes) => `${pad(Math.floor(minutes / 60))}:${pad(minutes % 60)}`;
+        availability.textContent = `Next free slot: ${date.toDateString()}, ${time(start)}-${time(start + 60)}`;
+        return;
+    }
+
+    availability.textContent = `No free slots in the next ${row.first.length} days`;
+}
@@ -40,7 +40,7 @@ export function createPatientRecordRow2(appointment) {
 
     // Set the inner HTML with table data cells
     row.innerHTML = `
-      <td>${appointment.patient.id}</td>
+      <td>${appointment.patientId}</td>
       <td>${appointment.id}</td>
       <td>${convertDate(appointment.appointmentDate)}</td>
       <td>
@@ -48,7 +48,7 @@ export function createPatientRecordRow2(appointment) {
           src="/assets/images/edit/edit.png"  
           alt="View Prescription" 
           class="prescription-btn" 
-          data-id="${appointment.patient.id}" 
+          data-id="${appointment.patientId}" 
           style="cursor: pointer; width: 20px;"
         />
       </td>
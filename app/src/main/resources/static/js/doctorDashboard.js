@@ -55,8 +55,9 @@
 
 // doctorDashboard.js
 
-import { getAllAppointments } from './services/appointmentRecordService.js';
+import { getAllAppointments, openAgendaFeed } from './services/appointmentRecordService.js';
 import { createPatientRow } from './components/patientRows.js';
+import { observeScrollEnd } from './util.js';
 // import { createAppointmentRow } from "./components/appointmentRow.js";
 
 // === Global Variables ===
@@ -66,6 +67,9 @@ let selectedDate = null; // Today's date (YYYY-MM-DD)
 // let selectedDate = null;
 let patientName = null; // For search filtering
 const token = localStorage.getItem('token'); // For authentication
+let loadedDate = null; // Date of the rows on display
+let nextCursor = null; // Cursor of the next page of rows, null once all are shown
+let loadVersion = 0; // Discards pages of a filter that has since changed
 
 
 // === Main Logic ===
@@ -74,35 +78,62 @@ const token = localStorage.getItem('token'); // For authentication
  * Fetch and display appointments based on selectedDate and patientName.
  */
 async function loadAppointments(selectedDate = null) {
+    const version = ++loadVersion;
     try {
-        const appointments = await getAllAppointments(selectedDate, patientName, token);
+        const page = await getAllAppointments(selectedDate, patientName, token);
+        if (version !== loadVersion) return;
+
+        loadedDate = selectedDate;
+        nextCursor = page.nextCursor;
 
         // Clear current table rows
         tableBody.innerHTML = '';
 
-        if (!appointments || appointments.length === 0) {
+        if (!page.appointments || page.appointments.length === 0) {
             tableBody.innerHTML = `<tr><td colspan="5">No Appointments found for today.</td></tr>`;
             return;
         }
 
-        // Render each appointment as a row
-        appointments.forEach(appointment => {
-            const p = appointment.patient;
-            const patient = {
-                id: p.id,
-                name: p.name,
-                phone: p.phone,
-                email: p.email
-            };
-            const row = createPatientRow(patient, appointment.id, appointment.doctor.id);
-            tableBody.appendChild(row);
-        });
+        renderAppointments(page.appointments);
     } catch (error) {
         console.error('Failed to load appointments:', error);
         tableBody.innerHTML = `<tr><td colspan="5">Error loading appointments. Try again later.</td></tr>`;
     }
 }
 
+/**
+ * Append the next page of appointments when the end of the table scrolls into view.
+ */
+async function loadMoreAppointments() {
+    if (!nextCursor) return;
+
+    const version = loadVersion;
+    try {
+        const page = await getAllAppointments(loadedDate, patientName, token, { cursor: nextCursor });
+        if (version !== loadVersion) return;
+
+        nextCursor = page.nextCursor;
+        renderAppointments(page.appointments);
+    } catch (error) {
+        console.error('Failed to load more appointments:', error);
+        nextCursor = null;
+    }
+}
+
+// Render each appointment as a row
+function renderAppointments(appointments) {
+    appointments.forEach(appointment => {
+        const patient = {
+            id: appointment.patientId,
+            name: appointment.patientName,
+            phone: appointment.patientPhone,
+            email: appointment.patientEmail
+        };
+        const row = createPatientRow(patient, appointment.id, appointment.doctorId);
+        tableBody.appendChild(row);
+    });
+}
+
 // Optional: UI setup function
 function renderContent() {
     document.getElementById('datePicker').value = selectedDate;
@@ -140,4 +171,13 @@ document.addEventListener('DOMContentLoaded', () => {
 
     renderContent();
     loadAppointments();
+    observeScrollEnd(tableBody, loadMoreAppointments);
+
+    // Reload when an appointment on the displayed day is booked, moved or cancelled, instead of polling
+    openAgendaFeed(token, (change) => {
+        const dates = [change.time, change.previousTime].filter(Boolean).map(time => time.split('T')[0]);
+        if (!selectedDate || dates.includes(selectedDate)) {
+            loadAppointments(selectedDate);
+        }
+    });
 });
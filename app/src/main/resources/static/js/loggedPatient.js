@@ -1,7 +1,9 @@
 // Imports
-import { getDoctors, filterDoctors } from "./services/doctorServices.js";
-import { bookAppointment } from "./services/appointmentRecordService.js";
-import { createDoctorCard } from "./components/doctorCard.js";
+import { getDoctorsPage, filterDoctors, createDoctorPager, populateSpecialtyFilter, getAvailabilityMatrix, openSlotFeed } from "./services/doctorServices.js";
+import { bookAppointment, holdSlot, releaseSlot, joinWaitlist } from "./services/appointmentRecordService.js";
+import { getPatientData, openOfferFeed } from "./services/patientServices.js";
+import { createDoctorCard, renderFreeSlots } from "./components/doctorCard.js";
+import { observeScrollEnd } from "./util.js";
 
 // DOM Elements
 const contentContainer = document.getElementById("content");
@@ -9,20 +11,51 @@ const searchInput = document.getElementById("searchBar");
 const timeDropdown = document.getElementById("filterTime");
 const specialtyDropdown = document.getElementById("filterSpecialty");
 
-// Fetch and display all doctors
+// Number of days for which the doctor cards show free slots
+const AVAILABILITY_DAYS = 7;
+
+// Loads further pages of doctor cards as the patient scrolls
+const doctorPager = createDoctorPager(async (doctors, firstPage) => {
+    if (firstPage) {
+        await renderDoctorCards(doctors);
+    }
+    else {
+        for (const doctor of doctors) {
+            contentContainer.appendChild(await createDoctorCard(doctor));
+        }
+    }
+
+    await showFreeSlots(doctors);
+});
+
+// Fetch the free slots of a whole page of doctors in one request and show them on their cards
+async function showFreeSlots(doctors) {
+    const token = localStorage.getItem("token");
+    if (!token || !doctors || doctors.length === 0) return;
+
+    const now = new Date();
+    const pad = (value) => String(value).padStart(2, "0");
+    const from = `${now.getFullYear()}-${pad(now.getMonth() + 1)}-${pad(now.getDate())}`;
+
+    const matrix = await getAvailabilityMatrix(doctors.map((doctor) => doctor.id), from, AVAILABILITY_DAYS, "patient", token);
+    if (!matrix) return;
+
+    for (const doctor of doctors) {
+        const card = contentContainer.querySelector(`.doctor-card[data-doctor-id="${doctor.id}"]`);
+        if (card) renderFreeSlots(card, matrix.from, matrix.availability[doctor.id]);
+    }
+}
+
+// Fetch and display the first page of doctors
 async function loadDoctorCards() {
     try {
-        const doctors = await getDoctors();
-
         const contentDiv = document.getElementById('content');
         if (!contentDiv) {
             //console.log('Element with id="content" not found in DOM.');
             return;
         }
 
-        contentDiv.innerHTML = '';
-
-        await renderDoctorCards(doctors);
+        await doctorPager.reset((cursor) => getDoctorsPage(cursor));
     }
     catch (error) {
         console.error("Failed to load doctors:", error);
@@ -178,6 +211,7 @@ export function showBookingOverlayBackup(booking, doctor, event) {
             </div>
             
             <button id="confirmBookingBtn" class="patientBtn">Confirm Booking</button>
+            <button id="waitlistBtn" class="patientBtn">Notify Me If A Slot Frees Up</button>
             <button id="cancelBookingBtn" class="modal-close patientBtn">Cancel</button>
         </div>
     `;
@@ -185,11 +219,42 @@ export function showBookingOverlayBackup(booking, doctor, event) {
     document.getElementById('modal-body').innerHTML = modalContent;
     document.getElementById('modal').style.display = 'block';
 
-    document.getElementById('close-modal').onclick = () => {
+    // Keep the time options current while the modal is open: slots taken by others are disabled, freed ones re-enabled
+    const slotFeed = openSlotFeed(doctor.id, "patient", localStorage.getItem("token"), (slot) => {
+        if (slot.date !== modal.querySelector("#appointmentDate").value) return;
+
+        const option = modal.querySelector(`#appointmentTime option[value="${slot.time.split("-")[0]}"]`);
+        if (option) option.disabled = !slot.available;
+    });
+
+    // Reserve the selected slot while the patient completes the form, so nobody else books it meanwhile
+    let heldTime = null;
+    const holdSelectedSlot = async () => {
+        const date = modal.querySelector("#appointmentDate").value;
+        const time = modal.querySelector("#appointmentTime").value;
+        if (!date || !time) return;
+
+        const result = await holdSlot(doctor.id, `${date}T${time}`, localStorage.getItem("token"));
+        heldTime = result.success ? `${date}T${time}` : null;
+        if (!result.success && result.message) alert(result.message);
+    };
+
+    // Slot events only cover the date they were received for
+    modal.querySelector("#appointmentDate").addEventListener("change", () => {
+        modal.querySelectorAll("#appointmentTime option").forEach((option) => option.disabled = false);
+        holdSelectedSlot();
+    });
+    modal.querySelector("#appointmentTime").addEventListener("change", holdSelectedSlot);
+
+    const closeModal = () => {
+        slotFeed.close();
+        if (heldTime) releaseSlot(doctor.id, heldTime, localStorage.getItem("token"));
         document.getElementById('modal').style.display = 'none';
         ripple.remove();
     };
 
+    document.getElementById('close-modal').onclick = closeModal;
+
     // Event Listeners
     modal.querySelector("#confirmBookingBtn").addEventListener("click", async () => {
         const token = localStorage.getItem("token");
@@ -213,8 +278,8 @@ export function showBookingOverlayBackup(booking, doctor, event) {
 
             if (result.success) {
                 alert("Appointment booked successfully!");
-                document.getElementById('modal').style.display = 'none';
-                ripple.remove();
+                heldTime = null;
+                closeModal();
             } 
             else {
                 alert("Failed to book appointment: " + result.message);
@@ -226,12 +291,40 @@ export function showBookingOverlayBackup(booking, doctor, event) {
         }
     });
 
+    // Fully booked day: queue for it instead of checking back for cancellations
+    modal.querySelector("#waitlistBtn").addEventListener("click", async () => {
+        const date = modal.querySelector("#appointmentDate").value;
+        if (!date) {
+            alert("Please select a date.");
+            return;
+        }
+
+        const result = await joinWaitlist(doctor.id, date, localStorage.getItem("token"));
+        alert(result.success ? `You are number ${result.position} on the waitlist for ${date}.` : result.message);
+    });
+
     modal.querySelector("#cancelBookingBtn").addEventListener("click", async () => {
-        document.getElementById('modal').style.display = 'none';
-        ripple.remove();
+        closeModal();
     });
 }
 
+// Offer a slot freed on a waitlisted day; it is held for the patient until the offer expires
+async function acceptOffer(offer) {
+    const token = localStorage.getItem("token");
+    const time = offer.time.split("-")[0];
+    if (!confirm(`An appointment on ${offer.date} at ${formatTimeToAmPm(time)} became available. `
+            + `It is reserved for you for ${offer.expiresInSeconds} seconds. Book it now?`)) {
+        releaseSlot(offer.doctorId, `${offer.date}T${time}`, token);
+        return;
+    }
+
+    const patient = await getPatientData(token);
+    if (!patient) return;
+
+    const result = await bookAppointment({ doctorId: offer.doctorId, patientId: patient.id, appointmentTime: `${offer.date}T${time}` }, token);
+    alert(result.success ? "Appointment booked successfully!" : "Failed to book appointment: " + result.message);
+}
+
 
 
 // Filtering logic
@@ -240,17 +333,7 @@ async function filterDoctorsOnChange() {
     const time = timeDropdown.value || null;
     const specialty = specialtyDropdown.value || null;
 
-    filterDoctors(name, time, specialty)
-        .then((data) => {
-            //console.log("data: " + data);
-
-            if (data.doctors && data.doctors.length > 0) {
-                renderDoctorCards(data.doctors);
-            }
-            else {
-                contentContainer.innerHTML = `<p class="text-gray-500">No doctors found with the given filters.</p>`;
-            }
-        })
+    doctorPager.reset((cursor) => filterDoctors(name, time, specialty, cursor))
         .catch((error) => {
             //console.error("Error filtering doctors:", error);
             contentContainer.innerHTML = `<p class="text-red-500">Failed to fetch filtered doctors.</p>`;
@@ -280,6 +363,12 @@ document.addEventListener("DOMContentLoaded", () => {
     if (searchInput) searchInput.addEventListener("input", filterDoctorsOnChange);
     if (timeDropdown) timeDropdown.addEventListener("change", filterDoctorsOnChange);
     if (specialtyDropdown) specialtyDropdown.addEventListener("change", filterDoctorsOnChange);
+    if (specialtyDropdown) populateSpecialtyFilter(specialtyDropdown, timeDropdown);
+
+    if (contentContainer) observeScrollEnd(contentContainer, () => doctorPager.loadMore());
+
+    const token = localStorage.getItem("token");
+    if (token) openOfferFeed(token, acceptOffer);
 
     loadDoctorCards();
 });
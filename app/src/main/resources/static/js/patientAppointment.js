@@ -5,7 +5,7 @@ import {
     filterAppointments,
 } from "./services/patientServices.js";
 
-import { convertDate } from "./util.js"; // Import utility function for date formatting
+import { convertDate, observeScrollEnd } from "./util.js"; // Import utility function for date formatting
 
 // DOM Elements & Variables
 const tableBody = document.getElementById("patientTableBody");
@@ -16,6 +16,7 @@ let token = localStorage.getItem("token");
 let allAppointments = [];
 let filteredAppointments = [];
 let patientId = null;
+let loadMore = null; // Fetches the next page of the list on display, null once all rows are shown
 
 // Initialize on page load
 document.addEventListener("DOMContentLoaded", async () => {
@@ -26,11 +27,15 @@ document.addEventListener("DOMContentLoaded", async () => {
         const patientData = await getPatientData(token);
         patientId = patientData.id;
 
-        // Fetch all appointments linked to this patient
-        allAppointments = await getPatientAppointments(patientId, null, token);
+        // Fetch the first page of appointments linked to this patient
+        const page = await getPatientAppointments(patientId, null, token);
+        allAppointments = page ? page.appointments : [];
 
         // Render initial appointments list
         renderAppointments(allAppointments);
+        setNextPage(page?.nextCursor, (cursor) => getPatientAppointments(patientId, null, token, cursor));
+
+        observeScrollEnd(tableBody, () => loadMore?.());
     }
     catch (error) {
         console.error("Failed to load patient data or appointments:", error);
@@ -38,6 +43,18 @@ document.addEventListener("DOMContentLoaded", async () => {
     }
 });
 
+// Remember how to fetch the page after the one on display
+function setNextPage(cursor, fetchPage) {
+    loadMore = !cursor ? null : async () => {
+        const current = loadMore;
+        const page = await fetchPage(cursor);
+        if (loadMore !== current) return; // The list was replaced meanwhile
+
+        appendAppointments(page ? page.appointments : []);
+        setNextPage(page?.nextCursor, fetchPage);
+    };
+}
+
 // Render appointment rows in the table
 function renderAppointments(appointments) {
     tableBody.innerHTML = ""; // Clear previous rows
@@ -51,6 +68,11 @@ function renderAppointments(appointments) {
         return;
     }
 
+    appendAppointments(appointments);
+}
+
+// Append appointment rows to the table
+function appendAppointments(appointments) {
     appointments.forEach((appointment) => {
         const tr = document.createElement("tr");
 
@@ -118,8 +140,10 @@ async function handleFilterChange() {
     const filteredCondition = filterDropdown.value || '';
 
     try {
-        const filtered = await filterAppointments(searchTerm, filteredCondition, token);
-        renderAppointments(filtered);
+        loadMore = null;
+        const page = await filterAppointments(searchTerm, filteredCondition, token);
+        renderAppointments(page.appointments);
+        setNextPage(page.nextCursor, (cursor) => filterAppointments(searchTerm, filteredCondition, token, cursor));
     }
     catch (error) {
         console.error("Failed to filter appointments:", error);
@@ -1,8 +1,12 @@
 import { createDoctorCard } from './components/doctorCard.js';
 import { openModal } from './components/modals.js';
-import { filterDoctors, getDoctors } from './services/doctorServices.js';
+import { filterDoctors, getDoctorsPage, createDoctorPager, populateSpecialtyFilter } from './services/doctorServices.js';
 import { patientLogin, patientSignup } from './services/patientServices.js';
 import { selectRole } from "./render.js";
+import { observeScrollEnd } from "./util.js";
+
+// Loads further pages of doctor cards as the patient scrolls
+const doctorPager = createDoctorPager(appendDoctorCards);
 
 // === Page Load ===
 document.addEventListener("DOMContentLoaded", () => {
@@ -26,13 +30,16 @@ document.addEventListener("DOMContentLoaded", () => {
   if (searchBar) searchBar.addEventListener("input", filterDoctorsOnChange);
   if (filterTime) filterTime.addEventListener("change", filterDoctorsOnChange);
   if (filterSpecialty) filterSpecialty.addEventListener("change", filterDoctorsOnChange);
+  if (filterSpecialty) populateSpecialtyFilter(filterSpecialty, filterTime);
+
+  const contentDiv = document.getElementById("content");
+  if (contentDiv) observeScrollEnd(contentDiv, () => doctorPager.loadMore());
 });
 
 // === Load All Doctors ===
 async function loadDoctorCards() {
   try {
-    const doctors = await getDoctors();
-    await renderDoctorCards(doctors);
+    await doctorPager.reset((cursor) => getDoctorsPage(cursor));
   }
   catch (error) {
     console.error("Failed to load doctors:", error);
@@ -47,18 +54,28 @@ async function filterDoctorsOnChange() {
     const time = document.getElementById("filterTime")?.value || null;
     const specialty = document.getElementById("filterSpecialty")?.value || null;
 
-    const { doctors } = await filterDoctors(name || null, time || null, specialty || null);
-    const contentDiv = document.getElementById("content");
+    await doctorPager.reset((cursor) => filterDoctors(name || null, time || null, specialty || null, cursor));
+  } catch (error) {
+    console.error("Failed to filter doctors:", error);
+    alert("❌ An error occurred while filtering doctors.");
+  }
+}
+
+// === Append One Page of Doctors (the first page replaces the content) ===
+async function appendDoctorCards(doctors, firstPage) {
+  const contentDiv = document.getElementById("content");
+
+  if (firstPage) {
     contentDiv.innerHTML = "";
 
-    if (doctors.length > 0) {
-      renderDoctorCards(doctors);
-    } else {
+    if (doctors.length === 0) {
       contentDiv.innerHTML = "<p>No doctors found with the given filters.</p>";
+      return;
     }
-  } catch (error) {
-    console.error("Failed to filter doctors:", error);
-    alert("❌ An error occurred while filtering doctors.");
+  }
+
+  for (const doctor of doctors) {
+    contentDiv.appendChild(await createDoctorCard(doctor));
   }
 }
 
@@ -26,7 +26,16 @@ async function initializePage() {
 
     try {
         // Fetch appointments for the patient with role "doctor" for backend access
-        const appointments = await getPatientAppointments(patientId, doctorId, token);
+        // Every page of the history with this doctor, one bounded request at a time
+        const appointments = [];
+        let cursor = null;
+        do {
+            const page = await getPatientAppointments(patientId, doctorId, token, cursor);
+            if (!page) break;
+            appointments.push(...page.appointments);
+            cursor = page.nextCursor;
+        } while (cursor);
+
         renderAppointments(appointments);
     }
     catch (error) {
@@ -3,13 +3,14 @@ import { APPOINTMENTS_API } from "../config/config.js";
 // const APPOINTMENT_API = `${BASE_API_URL}/appointments`;
 
 /**
- * Fetch all appointments for a doctor filtered by date and patient name.
+ * Fetch one page of a doctor's appointments filtered by date and patient name.
  * @param {null} date - The selected appointment date.
  * @param {string} patientName - The name of the patient to filter by.
  * @param {string} token - The authentication token.
- * @returns {Promise<Object>} - The list of appointments or an error.
+ * @param {{cursor?: string, from?: string, to?: string}} [page] - The cursor of the previous page and an optional date window.
+ * @returns {Promise<{appointments: Array, nextCursor: string|null}>} - The page of appointments or an error.
  */
-export async function getAllAppointments(date, patientName, token) {
+export async function getAllAppointments(date, patientName, token, page = {}) {
     try {
         // const url = `${APPOINTMENTS_API}?date=${encodeURIComponent(date)}&patientName=${encodeURIComponent(patientName)}`;
         // const response = await fetch(url, {
@@ -29,6 +30,12 @@ export async function getAllAppointments(date, patientName, token) {
             url = `${APPOINTMENTS_API}/${encodeURIComponent(date)}/${encodeURIComponent(patientName)}/${token}`;
         }
 
+        const params = new URLSearchParams();
+        if (page.cursor) params.set("cursor", page.cursor);
+        if (page.from) params.set("from", page.from);
+        if (page.to) params.set("to", page.to);
+        if (params.toString()) url += `?${params}`;
+
         const response = await fetch(url, {
             method: "GET",
             // headers: {
@@ -40,7 +47,7 @@ export async function getAllAppointments(date, patientName, token) {
             throw new Error("Failed to fetch appointments.");
         }
 
-        return await response.json();
+        return { appointments: await response.json(), nextCursor: response.headers.get("X-Next-Cursor") };
     }
     catch (error) {
         console.error("getAllAppointments error:", error);
@@ -114,3 +121,81 @@ export async function updateAppointment(appointment, token) {
         };
     }
 }
+
+/**
+ * Subscribe to the changes of the logged-in doctor's agenda.
+ * The browser reconnects automatically if the connection drops.
+ * @param {string} token - The authentication token of the doctor.
+ * @param {function(Object): void} onChange - Called with {type, appointmentId, time, previousTime} for every booking, move or cancellation.
+ * @returns {EventSource} The open feed; call close() to unsubscribe.
+ */
+export function openAgendaFeed(token, onChange) {
+    const feed = new EventSource(`${APPOINTMENTS_API}/feed/${token}`);
+    feed.addEventListener("appointment", (event) => onChange(JSON.parse(event.data)));
+    return feed;
+}
+
+/**
+ * Reserve a slot for the logged-in patient while the booking form is open.
+ * Holding the same slot again renews the hold; holding another slot releases the previous one.
+ * @param {number} doctorId - ID of the doctor.
+ * @param {string} time - Start of the slot, e.g. "2025-05-01T09:00".
+ * @param {string} token - The authentication token of the patient.
+ * @returns {Promise<{success: boolean, message: string, expiresInSeconds: number|undefined}>}
+ */
+export async function holdSlot(doctorId, time, token) {
+    try {
+        const response = await fetch(`${APPOINTMENTS_API}/holds/${doctorId}/${time}`, {
+            method: "POST",
+            headers: { Authorization: `Bearer ${token}` }
+        });
+
+        const data = await response.json();
+        return { success: response.ok, message: data.message, expiresInSeconds: data.expiresInSeconds };
+    }
+    catch (error) {
+        console.error("holdSlot error:", error);
+        return { success: false, message: "Could not reserve the appointment time." };
+    }
+}
+
+/**
+ * Release a slot held by the logged-in patient.
+ * @param {number} doctorId - ID of the doctor.
+ * @param {string} time - Start of the slot, e.g. "2025-05-01T09:00".
+ * @param {string} token - The authentication token of the patient.
+ */
+export async function releaseSlot(doctorId, time, token) {
+    try {
+        await fetch(`${APPOINTMENTS_API}/holds/${doctorId}/${time}`, {
+            method: "DELETE",
+            headers: { Authorization: `Bearer ${token}` }
+        });
+    }
+    catch (error) {
+        console.error("releaseSlot error:", error);
+    }
+}
+
+/**
+ * Join the waitlist of a doctor's day; a slot that frees up on that day is then offered on the patient's feed.
+ * @param {number} doctorId - ID of the doctor.
+ * @param {string} date - The day to wait for, e.g. "2025-05-01".
+ * @param {string} token - The authentication token of the patient.
+ * @returns {Promise<{success: boolean, message: string, position: number|undefined}>}
+ */
+export async function joinWaitlist(doctorId, date, token) {
+    try {
+        const response = await fetch(`${APPOINTMENTS_API}/waitlist/${doctorId}/${date}`, {
+            method: "POST",
+            headers: { Authorization: `Bearer ${token}` }
+        });
+
+        const data = await response.json();
+        return { success: response.ok, message: data.message, position: data.position };
+    }
+    catch (error) {
+        console.error("joinWaitlist error:", error);
+        return { success: false, message: "Could not join the waitlist." };
+    }
+}
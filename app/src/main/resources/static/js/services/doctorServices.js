@@ -4,24 +4,35 @@ import { DOCTORS_API } from '../config/config.js';  // Adjust path as needed
 // const DOCTOR_API = `${BASE_API_URL}/doctor`;
 
 /**
- * Fetch all doctors from the API.
+ * Fetch the first page of doctors from the API.
  * @returns {Promise<Array>} Array of doctor objects or [] if error.
  */
 export async function getDoctors() {
+    const { doctors } = await getDoctorsPage();
+    return doctors;
+}
+
+/**
+ * Fetch one page of doctors from the API, sorted by name.
+ * @param {string|null} cursor - Cursor returned with the previous page, or null for the first page.
+ * @returns {Promise<{doctors: Array, nextCursor: string|null}>} The page, or an empty page on error.
+ */
+export async function getDoctorsPage(cursor = null) {
     try {
-        const response = await fetch(DOCTORS_API);
+        const url = cursor ? `${DOCTORS_API}?cursor=${encodeURIComponent(cursor)}` : DOCTORS_API;
+        const response = await fetch(url);
 
         if (!response.ok) {
             console.error('Failed to fetch doctors: ', response.statusText);
-            return [];
+            return { doctors: [], nextCursor: null };
         }
 
         const data = await response.json();
-        return data.doctors || [];
+        return { doctors: data.doctors || [], nextCursor: data.nextCursor || null };
     }
     catch (error) {
         console.error('Error fetching doctors: ', error);
-        return [];
+        return { doctors: [], nextCursor: null };
     }
 }
 
@@ -45,6 +56,50 @@ export async function getDoctor(id) {
     }
 }
 
+/**
+ * Fetch the free slots of several doctors over a range of days in one request.
+ * Per doctor, "hours" holds one hour bitmask per day (bit h is set if a free slot starts during hour h)
+ * and "first" the start of the day's earliest free slot in minutes since midnight, or -1 if there is none.
+ * @param {Array<number>} doctorIds - IDs of the doctors (at most 100).
+ * @param {string} from - First date, as YYYY-MM-DD.
+ * @param {number} days - Number of days.
+ * @param {string} user - Role of the caller, e.g. "patient".
+ * @param {string} token - Authentication token.
+ * @returns {Promise<{from: string, days: number, availability: Object<string, {hours: Array<number>, first: Array<number>}>}|null>} The matrix, or null on error.
+ */
+export async function getAvailabilityMatrix(doctorIds, from, days, user, token) {
+    try {
+        const url = `${DOCTORS_API}/availability/${user}/${token}?ids=${doctorIds.join(',')}&from=${from}&days=${days}`;
+        const response = await fetch(url);
+
+        if (!response.ok) {
+            console.error('Failed to fetch availability: ', response.statusText);
+            return null;
+        }
+
+        return await response.json();
+    }
+    catch (error) {
+        console.error('Error fetching availability: ', error);
+        return null;
+    }
+}
+
+/**
+ * Subscribe to the slot changes of a doctor, e.g. while the booking modal is open.
+ * The browser reconnects automatically if the connection drops.
+ * @param {number} doctorId - ID of the doctor.
+ * @param {string} user - Role of the caller, e.g. "patient".
+ * @param {string} token - Authentication token.
+ * @param {function(Object): void} onSlot - Called with {doctorId, date, time, available} whenever a slot is taken or freed.
+ * @returns {EventSource} The open feed; call close() to unsubscribe.
+ */
+export function openSlotFeed(doctorId, user, token, onSlot) {
+    const feed = new EventSource(`${DOCTORS_API}/${doctorId}/feed/${user}/${token}`);
+    feed.addEventListener("slot", (event) => onSlot(JSON.parse(event.data)));
+    return feed;
+}
+
 /**
  * Delete a doctor by ID with authentication token.
  * @param {string} id - Doctor's unique ID.
@@ -116,9 +171,10 @@ export async function saveDoctor(doctor, token) {
  * @param {string|null} name - Doctor's name filter (nullable).
  * @param {string|null} time - Available time filter (nullable).
  * @param {string|null} specialty - Specialty filter (nullable).
- * @returns {Promise<{doctors: Array}>} Filtered list or empty list on error.
+ * @param {string|null} cursor - Cursor returned with the previous page, or null for the first page.
+ * @returns {Promise<{doctors: Array, nextCursor: string|null}>} One page of the filtered list or empty list on error.
  */
-export async function filterDoctors(name, time, specialty) {
+export async function filterDoctors(name, time, specialty, cursor = null) {
     try {
         // Use 'null' string or empty if parameters are falsy to avoid breaking URLs
         const n = name || 'null';
@@ -126,20 +182,120 @@ export async function filterDoctors(name, time, specialty) {
         const s = specialty || 'null';
 
         //const url = `${DOCTORS_API}/filter/${encodeURIComponent(n)}/${encodeURIComponent(t)}/${encodeURIComponent(s)}`;
-        const url = `${DOCTORS_API}/filter?name=${encodeURIComponent(n)}&time=${encodeURIComponent(t)}&specialty=${encodeURIComponent(s)}`;
+        let url = `${DOCTORS_API}/filter?name=${encodeURIComponent(n)}&time=${encodeURIComponent(t)}&specialty=${encodeURIComponent(s)}`;
+        if (cursor) url += `&cursor=${encodeURIComponent(cursor)}`;
 
         const response = await fetch(url);
         if (!response.ok) {
             console.error('Failed to filter doctors:', response.statusText);
-            return { doctors: [] };
+            return { doctors: [], nextCursor: null };
         }
 
         const data = await response.json();
-        return { doctors: data || [] };
+        return { doctors: data || [], nextCursor: response.headers.get('X-Next-Cursor') };
     }
     catch (error) {
         alert('Failed to filter doctors. Please try again.');
         console.error('Error filtering doctors:', error);
-        return { doctors: [] };
+        return { doctors: [], nextCursor: null };
+    }
+}
+
+/**
+ * Load pages of doctors one after another, e.g. while the user scrolls.
+ * Calling reset() starts over with a new page source and ignores pages still in flight for the old one.
+ * @param {function(Array, boolean): Promise<void>} renderPage - Renders a page; the flag tells whether it is the first one.
+ * @returns {{reset: function(function(string|null): Promise<{doctors: Array, nextCursor: string|null}>): Promise<void>, loadMore: function(): Promise<void>}}
+ */
+export function createDoctorPager(renderPage) {
+    let fetchPage = null;
+    let nextCursor = null;
+    let loading = false;
+    let generation = 0;
+
+    async function loadPage(first) {
+        if (!fetchPage || loading || (!first && !nextCursor)) return;
+
+        const current = generation;
+        loading = true;
+        try {
+            const page = await fetchPage(first ? null : nextCursor);
+            if (current !== generation) return;
+
+            nextCursor = page.nextCursor;
+            await renderPage(page.doctors, first);
+        }
+        finally {
+            if (current === generation) loading = false;
+        }
     }
+
+    return {
+        reset(source) {
+            generation++;
+            fetchPage = source;
+            nextCursor = null;
+            loading = false;
+            return loadPage(true);
+        },
+        loadMore() {
+            return loadPage(false);
+        },
+    };
+}
+
+/**
+ * Fetch the number of doctors per specialty, in total and available in the morning (am) and afternoon (pm).
+ * @returns {Promise<Array<{specialty: string, count: number, am: number, pm: number}>>} The counts or [] on error.
+ */
+export async function getSpecialtyFacets() {
+    try {
+        const response = await fetch(`${DOCTORS_API}/specialties`);
+
+        if (!response.ok) {
+            console.error('Failed to fetch specialties: ', response.statusText);
+            return [];
+        }
+
+        const data = await response.json();
+        return data.specialties || [];
+    }
+    catch (error) {
+        console.error('Error fetching specialties: ', error);
+        return [];
+    }
+}
+
+/**
+ * Fill a specialty dropdown with the specialties that have doctors and their counts.
+ * The counts follow the selected time of day when a time dropdown is given.
+ * The existing options are kept if the counts cannot be loaded.
+ * @param {HTMLSelectElement} specialtySelect - The specialty dropdown.
+ * @param {HTMLSelectElement|null} timeSelect - The AM/PM dropdown (optional).
+ */
+export async function populateSpecialtyFilter(specialtySelect, timeSelect = null) {
+    const facets = await getSpecialtyFacets();
+    if (!specialtySelect || facets.length === 0) return;
+
+    const placeholder = specialtySelect.options[0];
+    const selected = specialtySelect.value;
+
+    const render = () => {
+        const time = (timeSelect?.value || '').toLowerCase();
+
+        specialtySelect.innerHTML = '';
+        specialtySelect.appendChild(placeholder);
+
+        for (const facet of facets) {
+            const count = time === 'am' ? facet.am : time === 'pm' ? facet.pm : facet.count;
+            const option = document.createElement('option');
+            option.value = facet.specialty;
+            option.textContent = `${facet.specialty} (${count})`;
+            option.selected = facet.specialty.toLowerCase() === selected.toLowerCase();
+            specialtySelect.appendChild(option);
+        }
+    };
+
+    render();
+    if (timeSelect) timeSelect.addEventListener('change', render);
 }
@@ -84,9 +84,10 @@ export async function getPatientData(token) {
  * @param {string} patientId - patient
  * @param {string} token - Authentication token
  * @param {string} doctorId - doctor
- * @returns {Promise<Array|null>} Appointments array or null on failure
+ * @param {string} [cursor] - The cursor of the previous page
+ * @returns {Promise<{appointments: Array, nextCursor: string|null}|null>} One page of appointments or null on failure
  */
-export async function getPatientAppointments(patientId, doctorId, token) {
+export async function getPatientAppointments(patientId, doctorId, token, cursor = null) {
     try {
         // const url = `${PATIENTS_API}/${id}/${user}/${token}`;
         // const url = `${PATIENTS_API}/filter?patientId=${patientId}&doctorId=${doctorId}&token=${token}`;
@@ -98,6 +99,7 @@ export async function getPatientAppointments(patientId, doctorId, token) {
         else{
             url = `${PATIENTS_API}/appointments?id=${patientId}&token=${token}`;
         }
+        if (cursor) url += `&cursor=${encodeURIComponent(cursor)}`;
 
         //const response = await fetch(url);
 
@@ -114,7 +116,7 @@ export async function getPatientAppointments(patientId, doctorId, token) {
         }
 
         const data = await response.json();
-        return data.appointments || [];
+        return { appointments: data.appointments || [], nextCursor: data.nextCursor || null };
     } catch (error) {
         console.error('Error fetching appointments:', error);
         return null;
@@ -126,12 +128,14 @@ export async function getPatientAppointments(patientId, doctorId, token) {
  * @param {string} condition - Appointment status filter ('pending', 'consulted', etc.)
  * @param {string} filter - Dropdown filter
  * @param {string} token - Authentication token
- * @returns {Promise<Array>} Filtered appointments or empty array on failure
+ * @param {string} [cursor] - The cursor of the previous page
+ * @returns {Promise<{appointments: Array, nextCursor: string|null}>} One page of filtered appointments, empty on failure
  */
-export async function filterAppointments(searchTerm, condition, token) {
+export async function filterAppointments(searchTerm, condition, token, cursor = null) {
     try {
         // const url = `${PATIENTS_API}/filter/${encodeURIComponent(condition)}/${encodeURIComponent(filter)}/${encodeURIComponent(token)}`;
-        const url = `${PATIENTS_API}/filter/appointments?name=${searchTerm ? encodeURIComponent(searchTerm) : ''}&condition=${condition ? encodeURIComponent(condition): ''}&token=${encodeURIComponent(token)}`;
+        let url = `${PATIENTS_API}/filter/appointments?name=${searchTerm ? encodeURIComponent(searchTerm) : ''}&condition=${condition ? encodeURIComponent(condition): ''}&token=${encodeURIComponent(token)}`;
+        if (cursor) url += `&cursor=${encodeURIComponent(cursor)}`;
 
         const response = await fetch(url, {
             method: "GET",
@@ -142,16 +146,29 @@ export async function filterAppointments(searchTerm, condition, token) {
 
         if (!response.ok) {
             console.error('Failed to filter appointments:', response.statusText);
-            return [];
+            return { appointments: [], nextCursor: null };
         }
 
         const data = await response.json();
 
-        return data.appointments || [];
+        return { appointments: data.appointments || [], nextCursor: data.nextCursor || null };
     } 
     catch (error) {
         alert('Failed to filter appointments. Please try again.');
         console.error('Error filtering appointments:', error);
-        return [];
+        return { appointments: [], nextCursor: null };
     }
 }
+
+/**
+ * Open the feed of waitlist offers of the logged-in patient.
+ * The callback receives each offer ({doctorId, date, time, expiresInSeconds}); the slot is held for the patient meanwhile.
+ * @param {string} token - The authentication token of the patient.
+ * @param {function(Object): void} onOffer - Called for every offer.
+ * @returns {EventSource} The feed; close it when leaving the page.
+ */
+export function openOfferFeed(token, onOffer) {
+    const feed = new EventSource(`${PATIENTS_API}/feed/${token}`);
+    feed.addEventListener("offer", (event) => onOffer(JSON.parse(event.data)));
+    return feed;
+}
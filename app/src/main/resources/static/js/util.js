@@ -29,3 +29,39 @@ export function convertDate(inputDate = null, inputTime = null) {
   
   return '';
 }
+
+// Call the callback whenever the end of the element scrolls into view (used for infinite scrolling)
+export function observeScrollEnd(element, callback) {
+  const sentinel = document.createElement("div");
+  sentinel.className = "scroll-sentinel";
+  element.after(sentinel);
+
+  let visible = false;
+  let running = false;
+
+  // Keep loading while the end stays visible, so short pages do not stall the scroll
+  async function run() {
+    if (running) return;
+    running = true;
+    try {
+      while (visible) {
+        const before = element.childElementCount;
+        await callback();
+        if (element.childElementCount === before) break;
+      }
+    } finally {
+      running = false;
+    }
+  }
+
+  const observer = new IntersectionObserver((entries) => {
+    visible = entries.some((entry) => entry.isIntersecting);
+    if (visible) run();
+  }, { rootMargin: "200px" });
+  observer.observe(sentinel);
+
+  return () => {
+    observer.disconnect();
+    sentinel.remove();
+  };
+}
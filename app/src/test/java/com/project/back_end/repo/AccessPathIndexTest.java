@@ -0,0 +1,222 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.Doctor;
+import com.project.back_end.util.KeysetCursor;
+import org.hibernate.Hibernate;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Applies the Flyway migrations to an embedded database in MySQL mode, calls the repository methods, captures the SQL
+ * Hibernate generates for them with a {@link StatementInspector} and checks with EXPLAIN that each statement is answered
+ * through an index rather than a full table scan.
+ * <p>
+ * The SQL is generated for the embedded database's dialect, so it differs from the MySQL SQL in syntax only.
+ * {@code PatientRepository.findByEmailOrPhone} is checked through its indexes instead: MySQL answers the OR with an
+ * index merge of the two, which the embedded database does not implement.
+ * The methods that load every doctor on purpose (search index, facets, catalog and the availability backfill) are not checked.
+ */
+class AccessPathIndexTest {
+    private static final String DATABASE = "jdbc:h2:mem:access-paths;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    private static final LocalDateTime TIME = LocalDateTime.of(2025, 5, 1, 9, 0);
+    private static final LocalDate DATE = TIME.toLocalDate();
+    private static final List<Long> IDS = List.of(1L, 2L, 3L);
+
+    private static ConfigurableApplicationContext context;
+    private static JdbcTemplate jdbc;
+    private static TransactionTemplate transaction;
+
+    @BeforeAll
+    static void start() {
+        context = new SpringApplicationBuilder(RepositoryConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + DATABASE,
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.properties.hibernate.session_factory.statement_inspector=" + Recorder.class.getName(),
+                        "--spring.jpa.show-sql=false",
+                        "--spring.devtools.restart.enabled=false");
+        jdbc = context.getBean(JdbcTemplate.class);
+        transaction = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        // Two doctors with available times, so loading their collections issues the batch query
+        jdbc.update("insert into doctor (id, name, specialty, email, password, phone, has_am, has_pm) values"
+                + " (1, 'Dr. Adams', 'Cardiology', 'adams@example.com', 'secret', '5551012020', true, false),"
+                + " (2, 'Dr. Brown', 'Cardiology', 'brown@example.com', 'secret', '5551012021', false, true)");
+        jdbc.update("insert into doctor_available_times (doctor_id, available_times) values (1, '09:00-10:00'), (2, '14:00-15:00')");
+    }
+
+    @AfterAll
+    static void stop() {
+        context.close();
+    }
+
+    @TestFactory
+    Stream<DynamicTest> repositoryQueriesUseIndexes() {
+        AdminRepository admins = context.getBean(AdminRepository.class);
+        DoctorRepository doctors = context.getBean(DoctorRepository.class);
+        PatientRepository patients = context.getBean(PatientRepository.class);
+        AppointmentRepository appointments = context.getBean(AppointmentRepository.class);
+        BookingLeaseRepository leases = context.getBean(BookingLeaseRepository.class);
+        RevokedPrincipalRepository revocations = context.getBean(RevokedPrincipalRepository.class);
+        ScheduleIntervalRepository intervals = context.getBean(ScheduleIntervalRepository.class);
+        ScheduleOverrideRepository overrides = context.getBean(ScheduleOverrideRepository.class);
+
+        Map<String, Runnable> calls = new LinkedHashMap<>();
+
+        calls.put("AdminRepository.findByUsername", () -> admins.findByUsername("admin"));
+        calls.put("AdminRepository.findIdByUsername", () -> admins.findIdByUsername("admin"));
+
+        calls.put("DoctorRepository.findByEmail", () -> doctors.findByEmail("adams@example.com"));
+        calls.put("DoctorRepository.findIdByEmail", () -> doctors.findIdByEmail("adams@example.com"));
+        calls.put("DoctorRepository.findIdsAndNamesBySpecialty", () -> doctors.findIdsAndNamesBySpecialty("Cardiology"));
+        calls.put("DoctorRepository.findAvailableTimesById", () -> doctors.findAvailableTimesById(1L));
+        calls.put("DoctorRepository.findAvailableTimesByIdIn", () -> doctors.findAvailableTimesByIdIn(IDS));
+        calls.put("DoctorRepository.findWithAvailableTimesById", () -> doctors.findWithAvailableTimesById(1L));
+        calls.put("Doctor.availableTimes (batch)", () -> doctors.findAllById(List.of(1L, 2L))
+                .forEach(doctor -> Hibernate.initialize(doctor.getAvailableTimes())));
+        calls.put("DoctorSpecifications.filter (ids, keyset)", () -> findDoctorPage(doctors,
+                DoctorSpecifications.filter(IDS, null, null, null), new KeysetCursor("Dr. Adams", 1L)));
+        calls.put("DoctorSpecifications.filter (AM)", () -> findDoctorPage(doctors,
+                DoctorSpecifications.filter(null, null, null, "AM"), null));
+        calls.put("DoctorSpecifications.filter (specialty, PM)", () -> findDoctorPage(doctors,
+                DoctorSpecifications.filter(null, null, "Cardiology", "PM"), null));
+        calls.put("DoctorSpecifications.after (name, id keyset)", () -> findDoctorPage(doctors,
+                Specification.where(null), new KeysetCursor("Dr. Adams", 1L)));
+
+        calls.put("PatientRepository.findByEmail", () -> patients.findByEmail("jane@example.com"));
+        calls.put("PatientRepository.findIdByEmail", () -> patients.findIdByEmail("jane@example.com"));
+
+        calls.put("AppointmentRepository.findByDoctorIdAndAppointmentTimeBetweenOrderByAppointmentTime",
+                () -> appointments.findByDoctorIdAndAppointmentTimeBetweenOrderByAppointmentTime(1L, TIME, TIME.plusDays(1)));
+        calls.put("AppointmentRepository.findStartsByDoctorIdIn", () -> appointments.findStartsByDoctorIdIn(IDS, TIME, TIME.plusDays(7)));
+        calls.put("AppointmentRepository.deleteAllByDoctorId", () -> appointments.deleteAllByDoctorId(1L));
+        calls.put("AppointmentRepository.findDoctorPage",
+                () -> appointments.findDoctorPage(1L, null, null, TIME, 7L, TIME.plusDays(1), Limit.of(51)));
+        calls.put("AppointmentRepository.findDoctorPage (patient)",
+                () -> appointments.findDoctorPage(1L, 1L, null, TIME, 7L, TIME.plusDays(1), Limit.of(51)));
+        calls.put("AppointmentRepository.findPatientPage",
+                () -> appointments.findPatientPage(1L, null, null, TIME.minusYears(1), 0L, TIME, Limit.of(51)));
+        calls.put("AppointmentRepository.findPatientPage (status)",
+                () -> appointments.findPatientPage(1L, null, 1, TIME.minusYears(1), 0L, TIME, Limit.of(51)));
+        calls.put("AppointmentRepository.updateStatus", () -> appointments.updateStatus(1, 1L));
+        calls.put("AppointmentRepository.markPast", () -> appointments.markPast(TIME, 500));
+
+        calls.put("BookingLeaseRepository.claimExpired", () -> leases.claimExpired(1L, TIME, "a", 10_000_000_000L));
+        calls.put("BookingLeaseRepository.findFence", () -> leases.findFence(1L, TIME, "a"));
+        calls.put("BookingLeaseRepository.confirm", () -> leases.confirm(1L, TIME, "a", 1L, 10_000_000_000L));
+        calls.put("BookingLeaseRepository.release", () -> leases.release(1L, TIME, "a", 1L));
+        calls.put("BookingLeaseRepository.deleteBySlotBefore", () -> leases.deleteBySlotBefore(TIME));
+
+        calls.put("RevokedPrincipalRepository.existsByRoleAndPrincipalId", () -> revocations.existsByRoleAndPrincipalId("doctor", 1L));
+        calls.put("RevokedPrincipalRepository.deleteByRevokedAtBefore", () -> revocations.deleteByRevokedAtBefore(TIME));
+
+        calls.put("ScheduleIntervalRepository.findByDoctorIdOrderByDayOfWeekAscStartTimeAsc",
+                () -> intervals.findByDoctorIdOrderByDayOfWeekAscStartTimeAsc(1L));
+        calls.put("ScheduleIntervalRepository.findByDoctorIdAndDayOfWeek", () -> intervals.findByDoctorIdAndDayOfWeek(1L, DayOfWeek.MONDAY));
+        calls.put("ScheduleIntervalRepository.existsByDoctorId", () -> intervals.existsByDoctorId(1L));
+        calls.put("ScheduleIntervalRepository.findByDoctorIdIn", () -> intervals.findByDoctorIdIn(IDS));
+        calls.put("ScheduleIntervalRepository.deleteByDoctorId", () -> intervals.deleteByDoctorId(1L));
+        calls.put("ScheduleOverrideRepository.findByDoctorIdAndDate", () -> overrides.findByDoctorIdAndDate(1L, DATE));
+        calls.put("ScheduleOverrideRepository.findByDoctorIdAndDateGreaterThanEqualOrderByDate",
+                () -> overrides.findByDoctorIdAndDateGreaterThanEqualOrderByDate(1L, DATE));
+        calls.put("ScheduleOverrideRepository.findByDoctorIdInAndDateBetween",
+                () -> overrides.findByDoctorIdInAndDateBetween(IDS, DATE, DATE.plusDays(30)));
+        calls.put("ScheduleOverrideRepository.deleteByDoctorId", () -> overrides.deleteByDoctorId(1L));
+
+        Stream<DynamicTest> plans = calls.entrySet().stream().map(call -> DynamicTest.dynamicTest(call.getKey(), () -> {
+            List<String> statements = capture(call.getValue());
+            assertFalse(statements.isEmpty(), () -> call.getKey() + " ran no SQL");
+
+            for (String sql : statements) {
+                String plan = jdbc.queryForObject("explain " + sql, String.class);
+                assertFalse(plan.contains(".tableScan"), () -> call.getKey() + " scans a whole table:\n" + plan);
+            }
+        }));
+
+        Stream<DynamicTest> indexMerge = Stream.of(DynamicTest.dynamicTest("PatientRepository.findByEmailOrPhone", () -> {
+            List<String> statements = capture(() -> patients.findByEmailOrPhone("jane@example.com", "8881111111"));
+            assertTrue(statements.stream().anyMatch(sql -> sql.matches("(?s).*\\.email=\\? or \\w+\\.phone=\\?.*")),
+                    () -> "unexpected SQL: " + statements);
+            assertTrue(leadsIndex("patient", "email"), "patient.email leads no index");
+            assertTrue(leadsIndex("patient", "phone"), "patient.phone leads no index");
+        }));
+
+        return Stream.concat(plans, indexMerge);
+    }
+
+    private static void findDoctorPage(DoctorRepository doctors, Specification<Doctor> filter, KeysetCursor cursor) {
+        // As DoctorService.findPage runs it
+        doctors.findBy(filter.and(DoctorSpecifications.after(cursor)),
+                query -> query.sortBy(Sort.by("name", "id").ascending()).limit(21).all());
+    }
+
+    /**
+     * Runs a repository call in a transaction that is rolled back, and returns the SQL it issued.
+     */
+    private static List<String> capture(Runnable call) {
+        Recorder.statements.clear();
+        transaction.executeWithoutResult(status -> {
+            call.run();
+            status.setRollbackOnly();
+        });
+        return new ArrayList<>(Recorder.statements);
+    }
+
+    private static boolean leadsIndex(String table, String column) {
+        return jdbc.queryForObject("select count(*) from information_schema.index_columns"
+                + " where table_name = ? and column_name = ? and ordinal_position = 1", Integer.class, table, column) > 0;
+    }
+
+    /**
+     * Records every statement Hibernate prepares.
+     */
+    public static class Recorder implements StatementInspector {
+        static final List<String> statements = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            statements.add(sql);
+            return sql;
+        }
+    }
+
+    @EnableAutoConfiguration(exclude = {MongoAutoConfiguration.class, MongoDataAutoConfiguration.class, MongoRepositoriesAutoConfiguration.class})
+    @EntityScan(basePackageClasses = Doctor.class)
+    @EnableJpaRepositories(basePackageClasses = DoctorRepository.class)
+    static class RepositoryConfiguration {
+    }
+}
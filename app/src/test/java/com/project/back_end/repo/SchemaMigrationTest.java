@@ -0,0 +1,70 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.Doctor;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Starts JPA with the application's Flyway settings and ddl-auto=validate against embedded databases in MySQL mode:
+ * an empty one, and one holding the schema the original app created, which is baselined at V1 and migrated from V2 on.
+ * Either way the migrated schema must match the entities.
+ */
+class SchemaMigrationTest {
+
+    @Test
+    void emptyDatabaseIsMigratedToEntitySchema() {
+        try (ConfigurableApplicationContext context = start("jdbc:h2:mem:schema-empty;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1")) {
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+            assertEquals(0, jdbc.queryForObject("select count(*) from flyway_schema_history where type = 'BASELINE'", Integer.class));
+        }
+    }
+
+    @Test
+    void originalDatabaseIsBaselinedAndMigrated() throws SQLException {
+        String database = "jdbc:h2:mem:schema-original;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        try (Connection connection = DriverManager.getConnection(database, "sa", "");
+             Statement statement = connection.createStatement()) {
+            statement.execute("runscript from 'classpath:db/migration/V1__baseline_schema.sql'");
+            statement.execute("insert into doctor (name, specialty, email, password, phone) values ('Dr. Adams', 'Cardiology', 'dr@example.com', 'secret', '5551012020')");
+        }
+
+        try (ConfigurableApplicationContext context = start(database)) {
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+            assertEquals(1, jdbc.queryForObject("select count(*) from flyway_schema_history where type = 'BASELINE' and version = '1'", Integer.class));
+            assertEquals(1, jdbc.queryForObject("select count(*) from doctor where availability_mask is null", Integer.class));
+            assertEquals(0, jdbc.queryForObject("select count(*) from booking_lease", Integer.class));
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String database) {
+        return new SpringApplicationBuilder(SchemaConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + database,
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.data.jpa.repositories.enabled=false",
+                        "--spring.devtools.restart.enabled=false");
+    }
+
+    @EnableAutoConfiguration(exclude = {MongoAutoConfiguration.class, MongoDataAutoConfiguration.class, MongoRepositoriesAutoConfiguration.class})
+    @EntityScan(basePackageClasses = Doctor.class)
+    static class SchemaConfiguration {
+    }
+}
@@ -0,0 +1,79 @@
+package com.project.back_end.repo;
+
+import com.project.back_end.models.Appointment;
+import com.project.back_end.services.StatusSweeper;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the status sweeper against the migrated embedded database and checks that it marks started appointments
+ * as past in batches, stops after its maximum number of batches and leaves future appointments alone.
+ */
+class StatusSweeperTest {
+    private static final String DATABASE = "jdbc:h2:mem:status-sweeper;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+
+    @Test
+    void startedAppointmentsAreMarkedPastInBoundedBatches() {
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(SweeperConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + DATABASE,
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.devtools.restart.enabled=false",
+                        "--appointments.sweep.batch-size=2",
+                        "--appointments.sweep.max-batches=2")) {
+            JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+            StatusSweeper sweeper = context.getBean(StatusSweeper.class);
+
+            jdbc.update("insert into doctor (id, name, specialty, email, password, phone) values (1, 'Dr. Adams', 'Cardiology', 'dr@example.com', 'secret', '5551012020')");
+            jdbc.update("insert into patient (id, name, address, email, password, phone) values (1, 'Jane Doe', '1 Main St', 'jane@example.com', 'secret', '8881111111')");
+
+            LocalDateTime now = LocalDateTime.now().withNano(0);
+            for (int i = 1; i <= 6; i++) {
+                jdbc.update("insert into appointment (doctor_id, patient_id, appointment_time, status) values (1, 1, ?, 0)", now.minusHours(i));
+            }
+            jdbc.update("insert into appointment (doctor_id, patient_id, appointment_time, status) values (1, 1, ?, 0)", now.plusDays(1));
+
+            // 2 batches of 2 per run: the first run leaves 2 of the 6 started appointments for the next one
+            sweeper.sweep();
+            assertEquals(4, countPast(jdbc));
+
+            sweeper.sweep();
+            assertEquals(6, countPast(jdbc));
+
+            sweeper.sweep();
+            assertEquals(6, countPast(jdbc));
+            assertEquals(1, jdbc.queryForObject("select count(*) from appointment where status = 0 and appointment_time > ?", Integer.class, now));
+        }
+    }
+
+    private static int countPast(JdbcTemplate jdbc) {
+        return jdbc.queryForObject("select count(*) from appointment where status = 1", Integer.class);
+    }
+
+    @EnableAutoConfiguration(exclude = {MongoAutoConfiguration.class, MongoDataAutoConfiguration.class, MongoRepositoriesAutoConfiguration.class})
+    @EntityScan(basePackageClasses = Appointment.class)
+    @EnableJpaRepositories(basePackageClasses = AppointmentRepository.class,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = AppointmentRepository.class))
+    @Import(StatusSweeper.class)
+    static class SweeperConfiguration {
+    }
+}
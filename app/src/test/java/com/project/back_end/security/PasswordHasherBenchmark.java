@@ -0,0 +1,55 @@
+package com.project.back_end.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Reports login throughput (verifications per second) through the login pool for several hash costs.
+ * Run with: mvn test -Dtest=PasswordHasherBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PasswordHasherBenchmark {
+    private static final int[] ITERATIONS = {10_000, 50_000, 100_000, 200_000};
+    private static final int LOGINS = 200;
+    private static final int CALLERS = 32;
+
+    @Test
+    void loginsPerSecondByHashCost() throws Exception {
+        for (int iterations : ITERATIONS) {
+            PasswordHasher hasher = new PasswordHasher(iterations);
+            LoginExecutor loginExecutor = new LoginExecutor(0, LOGINS, 60_000, new SimpleMeterRegistry());
+            ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+
+            try {
+                String stored = hasher.hash("secret");
+                loginExecutor.execute(() -> hasher.verify("secret", stored));
+
+                long start = System.nanoTime();
+                List<CompletableFuture<PasswordHasher.Verification>> logins = new ArrayList<>();
+                for (int i = 0; i < LOGINS; i++) {
+                    logins.add(CompletableFuture.supplyAsync(
+                            () -> loginExecutor.execute(() -> hasher.verify("secret", stored)), callers));
+                }
+                for (CompletableFuture<PasswordHasher.Verification> login : logins) {
+                    assertTrue(login.get().matches());
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+
+                System.out.printf("iterations=%-7d logins/sec=%.1f%n", iterations, LOGINS / seconds);
+            }
+            finally {
+                callers.shutdownNow();
+                loginExecutor.shutdown();
+            }
+        }
+    }
+}
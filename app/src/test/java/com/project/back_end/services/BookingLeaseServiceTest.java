@@ -0,0 +1,129 @@
+package com.project.back_end.services;
+
+import com.project.back_end.models.BookingLease;
+import com.project.back_end.repo.BookingLeaseRepository;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoDataAutoConfiguration;
+import org.springframework.boot.autoconfigure.data.mongo.MongoRepositoriesAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.mongo.MongoAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.ComponentScan;
+import org.springframework.context.annotation.FilterType;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs two application contexts, standing in for two instances behind a load balancer,
+ * against one embedded database and checks that they exclude each other through booking leases.
+ */
+class BookingLeaseServiceTest {
+    private static final String DATABASE = "jdbc:h2:mem:booking-leases;MODE=MySQL;DB_CLOSE_DELAY=-1";
+
+    private static ConfigurableApplicationContext first;
+    private static ConfigurableApplicationContext second;
+
+    private static BookingLeaseService firstLeases;
+    private static BookingLeaseService secondLeases;
+
+    @BeforeAll
+    static void startInstances() {
+        // The first instance uses short leases, so the tests can let them expire
+        first = start("instance-a", 300);
+        second = start("instance-b", 60_000);
+        firstLeases = first.getBean(BookingLeaseService.class);
+        secondLeases = second.getBean(BookingLeaseService.class);
+    }
+
+    @AfterAll
+    static void stopInstances() {
+        second.close();
+        first.close();
+    }
+
+    @Test
+    void leasedSlotIsRejectedByOtherInstanceWithoutWaiting() {
+        LocalDateTime slot = LocalDateTime.now().plusDays(1).withHour(9).withMinute(0).withSecond(0).withNano(0);
+
+        BookingLeaseService.Lease lease = secondLeases.tryAcquire(1L, slot);
+        assertNotNull(lease);
+        assertEquals(1L, lease.fence());
+
+        long started = System.nanoTime();
+        assertNull(firstLeases.tryAcquire(1L, slot));
+        assertTrue(System.nanoTime() - started < 1_000_000_000L, "claim should fail fast");
+
+        // Other slots of the same doctor are not affected
+        assertNotNull(firstLeases.tryAcquire(1L, slot.plusHours(1)));
+    }
+
+    @Test
+    void releasedSlotCanBeClaimedWithNewFence() {
+        LocalDateTime slot = LocalDateTime.now().plusDays(1).withHour(10).withMinute(0).withSecond(0).withNano(0);
+
+        BookingLeaseService.Lease lease = secondLeases.tryAcquire(2L, slot);
+        assertNotNull(lease);
+        secondLeases.release(lease);
+
+        BookingLeaseService.Lease next = firstLeases.tryAcquire(2L, slot);
+        assertNotNull(next);
+        assertEquals("instance-a", next.holder());
+        assertEquals(lease.fence() + 1, next.fence());
+    }
+
+    @Test
+    void writeUnderTakenOverLeaseIsFencedOff() throws InterruptedException {
+        LocalDateTime slot = LocalDateTime.now().plusDays(1).withHour(11).withMinute(0).withSecond(0).withNano(0);
+
+        BookingLeaseService.Lease stale = firstLeases.tryAcquire(3L, slot);
+        assertNotNull(stale);
+        Thread.sleep(500);
+
+        BookingLeaseService.Lease current = secondLeases.tryAcquire(3L, slot);
+        assertNotNull(current);
+        assertTrue(current.fence() > stale.fence());
+
+        AtomicBoolean staleWrite = new AtomicBoolean();
+        AtomicBoolean currentWrite = new AtomicBoolean();
+        assertFalse(firstLeases.runFenced(stale, () -> staleWrite.set(true)));
+        assertTrue(secondLeases.runFenced(current, () -> currentWrite.set(true)));
+        assertFalse(staleWrite.get());
+        assertTrue(currentWrite.get());
+
+        // Releasing the stale lease must not release the current one
+        firstLeases.release(stale);
+        assertNull(firstLeases.tryAcquire(3L, slot));
+    }
+
+    private static ConfigurableApplicationContext start(String holder, long ttlMillis) {
+        return new SpringApplicationBuilder(LeaseConfiguration.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=" + DATABASE,
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                        "--spring.jpa.hibernate.ddl-auto=update",
+                        "--spring.jpa.show-sql=false",
+                        "--spring.devtools.restart.enabled=false",
+                        "--booking.lease.holder=" + holder,
+                        "--booking.lease.ttl-ms=" + ttlMillis);
+    }
+
+    @EnableAutoConfiguration(exclude = {MongoAutoConfiguration.class, MongoDataAutoConfiguration.class, MongoRepositoriesAutoConfiguration.class})
+    @EntityScan(basePackageClasses = BookingLease.class)
+    @EnableJpaRepositories(basePackageClasses = BookingLeaseRepository.class,
+            includeFilters = @ComponentScan.Filter(type = FilterType.ASSIGNABLE_TYPE, classes = BookingLeaseRepository.class))
+    @Import(BookingLeaseService.class)
+    static class LeaseConfiguration {
+    }
+}
@@ -0,0 +1,86 @@
+package com.project.back_end.services;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that holds block other patients until they expire or are released, and that renewing a hold extends it.
+ */
+class SlotHoldsTest {
+    private static final long DOCTOR = 1L;
+    private static final long PATIENT = 10L;
+    private static final long OTHER_PATIENT = 20L;
+    private static final LocalDateTime SLOT = LocalDateTime.of(2030, 5, 1, 9, 0);
+
+    private final SlotHolds holds = new SlotHolds(1, 10, new SimpleMeterRegistry());
+
+    @AfterEach
+    void shutdown() {
+        holds.shutdown();
+    }
+
+    @Test
+    void holdBlocksOtherPatientsUntilItExpires() throws InterruptedException {
+        CountDownLatch ended = new CountDownLatch(1);
+
+        assertEquals(1, holds.hold(DOCTOR, SLOT, PATIENT, 1, ended::countDown));
+        assertTrue(holds.isHeldByOther(DOCTOR, SLOT, OTHER_PATIENT));
+        assertFalse(holds.isHeldByOther(DOCTOR, SLOT, PATIENT));
+        assertEquals(-3, holds.hold(DOCTOR, SLOT, OTHER_PATIENT));
+
+        assertTrue(ended.await(3, TimeUnit.SECONDS));
+        assertFalse(holds.isHeldByOther(DOCTOR, SLOT, OTHER_PATIENT));
+        assertEquals(1, holds.hold(DOCTOR, SLOT, OTHER_PATIENT));
+    }
+
+    @Test
+    void onlyTheHolderCanReleaseAHold() {
+        AtomicInteger ended = new AtomicInteger();
+        holds.hold(DOCTOR, SLOT, PATIENT, 60, ended::incrementAndGet);
+
+        holds.release(DOCTOR, SLOT, OTHER_PATIENT);
+        assertTrue(holds.isHeldByOther(DOCTOR, SLOT, OTHER_PATIENT));
+        assertEquals(0, ended.get());
+
+        holds.release(DOCTOR, SLOT, PATIENT);
+        assertFalse(holds.isHeldByOther(DOCTOR, SLOT, OTHER_PATIENT));
+        assertEquals(1, ended.get());
+
+        assertEquals(1, holds.hold(DOCTOR, SLOT, OTHER_PATIENT));
+    }
+
+    @Test
+    void renewingAHoldExtendsItWithoutEndingIt() throws InterruptedException {
+        AtomicInteger ended = new AtomicInteger();
+        holds.hold(DOCTOR, SLOT, PATIENT, 1, ended::incrementAndGet);
+
+        Thread.sleep(600);
+        assertEquals(1, holds.hold(DOCTOR, SLOT, PATIENT));
+        Thread.sleep(700);
+
+        // The first hold would have expired by now; the renewal keeps the slot and its callback
+        assertTrue(holds.isHeldByOther(DOCTOR, SLOT, OTHER_PATIENT));
+        assertEquals(0, ended.get());
+
+        holds.release(DOCTOR, SLOT, PATIENT);
+        assertEquals(1, ended.get());
+    }
+
+    @Test
+    void holdingAnotherSlotReleasesThePreviousOne() {
+        LocalDateTime nextSlot = SLOT.plusHours(1);
+        holds.hold(DOCTOR, SLOT, PATIENT);
+
+        assertEquals(1, holds.hold(DOCTOR, nextSlot, PATIENT));
+        assertFalse(holds.isHeldByOther(DOCTOR, SLOT, OTHER_PATIENT));
+        assertTrue(holds.isHeldByOther(DOCTOR, nextSlot, OTHER_PATIENT));
+    }
+}
@@ -0,0 +1,73 @@
+package com.project.back_end.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that timeouts fire once after their delay, including delays longer than one turn of the wheel,
+ * and that cancelled timeouts and failing tasks are handled.
+ */
+class HashedWheelTimerTest {
+    private final HashedWheelTimer timer = new HashedWheelTimer("test-timer", 10, TimeUnit.MILLISECONDS, 4);
+
+    @AfterEach
+    void close() {
+        timer.close();
+    }
+
+    @Test
+    void timeoutFiresOnceAfterItsDelay() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        HashedWheelTimer.Timeout timeout = timer.schedule(fired::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertFalse(timeout.cancel(), "a fired timeout can no longer be cancelled");
+    }
+
+    @Test
+    void delayLongerThanOneTurnWaitsForItsRound() throws InterruptedException {
+        // 4 buckets of 10 ms: the wheel turns every 40 ms, so this timeout must skip several rounds
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        timer.schedule(fired::countDown, 150, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(150));
+    }
+
+    @Test
+    void cancelledTimeoutDoesNotFire() throws InterruptedException {
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch later = new CountDownLatch(1);
+
+        HashedWheelTimer.Timeout timeout = timer.schedule(runs::incrementAndGet, 30, TimeUnit.MILLISECONDS);
+        assertTrue(timeout.cancel());
+        assertFalse(timeout.cancel());
+
+        timer.schedule(later::countDown, 100, TimeUnit.MILLISECONDS);
+        assertTrue(later.await(2, TimeUnit.SECONDS));
+        assertEquals(0, runs.get());
+    }
+
+    @Test
+    void failingTaskDoesNotStopTheTimer() throws InterruptedException {
+        CountDownLatch fired = new CountDownLatch(1);
+
+        timer.schedule(() -> {
+            throw new IllegalStateException("failing task");
+        }, 10, TimeUnit.MILLISECONDS);
+        timer.schedule(fired::countDown, 50, TimeUnit.MILLISECONDS);
+
+        assertTrue(fired.await(2, TimeUnit.SECONDS));
+    }
+}